@@ -0,0 +1,43 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compare getAll with calling get for each key, for batches of random keys of various sizes.
+ * The bigger the batch, the closer together its keys, and the more a finger search saves.
+ *
+ * Usage: java BatchBenchmark [size]
+ */
+public class BatchBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    Integer[] keys = SkipListBenchmark.keys(n, false);
+    SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> i - j);
+    SkipListBenchmark.fill(list, keys);
+    Random random = new Random(n);
+
+    SkipListBenchmark.header();
+    for (int batch = 10; batch <= 10000; batch *= 10) {
+      // A few different batches, so that we don't measure the same keys every time
+      ArrayList<List<Integer>> batches = new ArrayList<List<Integer>>();
+      for (int b = 0; b < 16; b++) {
+        ArrayList<Integer> keyBatch = new ArrayList<Integer>();
+        for (int i = 0; i < batch; i++) {
+          keyBatch.add(keys[random.nextInt(n)]);
+        } // for
+        batches.add(keyBatch);
+      } // for
+      int ops = Math.max(20, 2000000 / batch / 10);
+      // Each op is a whole batch; divide ops/s by the batch size for keys/s
+      SkipListBenchmark.measure("get loop n=" + n + " batch=" + batch, ops, () -> (i) -> {
+        for (Integer key : batches.get(i & 15)) {
+          SkipListBenchmark.consume(list.get(key));
+        } // for
+      });
+      SkipListBenchmark.measure("getAll n=" + n + " batch=" + batch, ops,
+          () -> (i) -> SkipListBenchmark.consume(list.getAll(batches.get(i & 15))));
+    } // for
+  } // main(String[])
+
+} // class BatchBenchmark
@@ -0,0 +1,58 @@
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Compare building a skip list from sorted entries by calling set for each one with bulkLoad.
+ *
+ * Usage: java BulkLoadBenchmark [size]
+ */
+public class BulkLoadBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    Integer[] keys = SkipListBenchmark.keys(n, true);
+    for (int round = 0; round < 3; round++) {
+      long start = System.nanoTime();
+      SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> i - j);
+      for (Integer key : keys) {
+        list.set(key, key);
+      } // for
+      long set = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      list = new SkipList<Integer, Integer>((i, j) -> i - j);
+      list.bulkLoad(entries(keys), false);
+      long random = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      list = new SkipList<Integer, Integer>((i, j) -> i - j);
+      list.bulkLoad(entries(keys), true);
+      long pattern = System.nanoTime() - start;
+
+      System.out.printf("n=%d  set: %8.1f ms  bulkLoad: %8.1f ms  bulkLoad (pattern): %8.1f ms%n",
+          n, set / 1e6, random / 1e6, pattern / 1e6);
+    } // for
+  } // main(String[])
+
+  /**
+   * Stream the keys as entries that map each key to itself.
+   */
+  static Iterator<Map.Entry<Integer, Integer>> entries(Integer[] keys) {
+    return new Iterator<Map.Entry<Integer, Integer>>() {
+      int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.i < keys.length;
+      } // hasNext()
+
+      @Override
+      public Map.Entry<Integer, Integer> next() {
+        Integer key = keys[this.i++];
+        return new AbstractMap.SimpleImmutableEntry<Integer, Integer>(key, key);
+      } // next()
+    };
+  } // entries(Integer[])
+
+} // class BulkLoadBenchmark
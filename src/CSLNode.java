@@ -0,0 +1,90 @@
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Nodes in the concurrent skip list.
+ */
+class CSLNode<K, V> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Atomic access to the value field.
+   */
+  @SuppressWarnings("rawtypes")
+  static final AtomicReferenceFieldUpdater<CSLNode, Object> VALUE =
+      AtomicReferenceFieldUpdater.newUpdater(CSLNode.class, Object.class, "value");
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key.
+   */
+  final K key;
+
+  /**
+   * The value, or null once the node has been removed.
+   */
+  volatile V value;
+
+  /**
+   * Pointers to the next nodes. A marked pointer means that this node has been removed from that
+   * level.
+   */
+  final AtomicMarkableReference<CSLNode<K, V>>[] next;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key and value.
+   */
+  @SuppressWarnings("unchecked")
+  public CSLNode(K key, V value, int n) {
+    this.key = key;
+    this.value = value;
+    this.next = (AtomicMarkableReference<CSLNode<K, V>>[]) new AtomicMarkableReference<?>[n];
+    for (int i = 0; i < n; i++) {
+      this.next[i] = new AtomicMarkableReference<CSLNode<K, V>>(null, false);
+    } // for
+  } // CSLNode(K, V, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Create an array of n null node references.
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> CSLNode<K, V>[] nodes(int n) {
+    return (CSLNode<K, V>[]) new CSLNode<?, ?>[n];
+  } // nodes(int)
+
+  /**
+   * Replace the value if it is still expected.
+   */
+  boolean casValue(V expected, V replacement) {
+    return VALUE.compareAndSet(this, expected, replacement);
+  } // casValue(V, V)
+
+  /**
+   * Mark every forward pointer, from the top down, so that searches snip this node out.
+   */
+  void markTower() {
+    boolean[] marked = {false};
+    for (int i = this.next.length - 1; i >= 0; i--) {
+      CSLNode<K, V> succ = this.next[i].get(marked);
+      while (!marked[0]) {
+        this.next[i].compareAndSet(succ, succ, false, true);
+        succ = this.next[i].get(marked);
+      } // while
+    } // for
+  } // markTower()
+
+} // CSLNode<K,V>
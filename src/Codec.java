@@ -0,0 +1,76 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A way to turn values into bytes and back.
+ *
+ * Codecs used for keys should preserve order: comparing two encodings byte by byte, as unsigned
+ * values, should give the same answer as comparing the values they encode.
+ */
+public interface Codec<T> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Strings as UTF-8. Byte order matches code point order, which matches String.compareTo except
+   * for characters outside the Basic Multilingual Plane.
+   */
+  public static final Codec<String> STRING = new Codec<String>() {
+    @Override
+    public byte[] encode(String str) {
+      return str.getBytes(StandardCharsets.UTF_8);
+    } // encode(String)
+
+    @Override
+    public String decode(byte[] bytes) {
+      return new String(bytes, StandardCharsets.UTF_8);
+    } // decode(byte[])
+  };
+
+  /**
+   * Integers as four big-endian bytes, with the sign bit flipped so that negatives sort first.
+   */
+  public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+    @Override
+    public byte[] encode(Integer i) {
+      return ByteBuffer.allocate(Integer.BYTES).putInt(i ^ Integer.MIN_VALUE).array();
+    } // encode(Integer)
+
+    @Override
+    public Integer decode(byte[] bytes) {
+      return ByteBuffer.wrap(bytes).getInt() ^ Integer.MIN_VALUE;
+    } // decode(byte[])
+  };
+
+  /**
+   * Longs as eight big-endian bytes, with the sign bit flipped so that negatives sort first.
+   */
+  public static final Codec<Long> LONG = new Codec<Long>() {
+    @Override
+    public byte[] encode(Long l) {
+      return ByteBuffer.allocate(Long.BYTES).putLong(l ^ Long.MIN_VALUE).array();
+    } // encode(Long)
+
+    @Override
+    public Long decode(byte[] bytes) {
+      return ByteBuffer.wrap(bytes).getLong() ^ Long.MIN_VALUE;
+    } // decode(byte[])
+  };
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Convert a value to bytes.
+   */
+  public byte[] encode(T value);
+
+  /**
+   * Convert bytes made by encode back to a value.
+   */
+  public T decode(byte[] bytes);
+
+} // interface Codec<T>
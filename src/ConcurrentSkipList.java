@@ -0,0 +1,473 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * A lock-free implementation of skip lists that may be shared between threads.
+ *
+ * A node is removed in two steps. First, its value is swapped to null with a CAS; that is the
+ * moment the key leaves the map. Then each of its forward pointers is marked, and searches that
+ * run into marked pointers snip the node out of the level. Because a null value means "removed",
+ * this map does not permit null values.
+ *
+ * The iterators are weakly consistent: they never throw ConcurrentModificationException, and they
+ * see every entry that is present for the whole iteration, but they may or may not see entries
+ * that are added or removed while they run.
+ */
+public class ConcurrentSkipList<K, V> implements SimpleMap<K, V> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The maximum height of a node.
+   */
+  static final int MAX_HEIGHT = 32;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The dummy node at the front of the list, with pointers on every level.
+   */
+  final CSLNode<K, V> head;
+
+  /**
+   * The comparator used to determine the ordering in the list.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * The number of values in the list, give or take operations in progress. It can dip below
+   * zero for a moment.
+   */
+  final AtomicInteger size;
+
+  /**
+   * The highest level that any node has reached. Read-only searches start here rather than at
+   * MAX_HEIGHT; reading a stale value is harmless, since they just skip an express lane. find
+   * cannot use it, because a writer that trusted a stale height could link a node on a higher
+   * level without comparing it to what another thread had just put there.
+   */
+  final AtomicInteger height;
+
+  /**
+   * The probability used to determine the height of nodes.
+   */
+  final double prob = 0.5;
+
+  /**
+   * Where the heights of new nodes come from. Each thread draws from its own generator.
+   */
+  final LevelGenerator levels = LevelGenerator.random(this.prob);
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new skip list that orders values using the specified comparator.
+   */
+  public ConcurrentSkipList(Comparator<K> comparator) {
+    this.head = new CSLNode<K, V>(null, null, MAX_HEIGHT);
+    this.comparator = comparator;
+    this.size = new AtomicInteger(0);
+    this.height = new AtomicInteger(1);
+  } // ConcurrentSkipList(Comparator<K>)
+
+  /**
+   * Create a new skip list that orders values using a not-very-clever default comparator.
+   */
+  public ConcurrentSkipList() {
+    this((k1, k2) -> k1.toString().compareTo(k2.toString()));
+  } // ConcurrentSkipList()
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value associated with key.
+   *
+   * @throws NullPointerException if the key or the value is null.
+   */
+  @Override
+  public V set(K key, V value) {
+    // Check for valid key and value
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    if (value == null) {
+      throw new NullPointerException("null value");
+    } // if
+
+    int topLevel = randomHeight();
+    CSLNode<K, V>[] preds = CSLNode.nodes(MAX_HEIGHT);
+    CSLNode<K, V>[] succs = CSLNode.nodes(MAX_HEIGHT);
+    while (true) {
+      // If the key is already there, swap in the new value
+      if (find(key, preds, succs)) {
+        CSLNode<K, V> node = succs[0];
+        V old = node.value;
+        if (old != null && node.casValue(old, value)) {
+          return old;
+        } // if
+        // The node is being removed; help out, then try again
+        if (old == null) {
+          node.markTower();
+        } // if
+        continue;
+      } // if
+
+      // Otherwise, link a new node in at level 0, which is when it joins the map
+      CSLNode<K, V> newNode = new CSLNode<K, V>(key, value, topLevel);
+      for (int i = 0; i < topLevel; i++) {
+        newNode.next[i].set(succs[i], false);
+      } // for
+      if (!preds[0].next[0].compareAndSet(succs[0], newNode, false, false)) {
+        continue;
+      } // if
+      this.size.incrementAndGet();
+      raiseHeight(topLevel);
+
+      // Link the express lanes
+      for (int i = 1; i < topLevel; i++) {
+        while (true) {
+          CSLNode<K, V> succ = succs[i];
+          // Any other node with our key was marked before we joined level 0, but may still be
+          // linked here. Once we were in front of it, no search for the key would reach it to
+          // snip it, so look again, which snips it.
+          boolean stale = succ != null && succ.next[i].isMarked();
+          if (!stale) {
+            // Point the new node at the successor we expect, unless it is being removed
+            CSLNode<K, V> oldSucc = newNode.next[i].getReference();
+            if (!newNode.next[i].compareAndSet(oldSucc, succ, false, false)) {
+              return null;
+            } // if
+            if (preds[i].next[i].compareAndSet(succ, newNode, false, false)) {
+              break;
+            } // if
+          } // if
+          // Someone changed the level under us, so look again
+          find(key, preds, succs);
+          if (succs[0] != newNode) {
+            // The new node has already been removed
+            return null;
+          } // if
+        } // while
+      } // for
+      return null;
+    } // while
+  } // set(K,V)
+
+  @Override
+  public V get(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    CSLNode<K, V> node = search(key);
+    if (node != null) {
+      return node.value;
+    } else {
+      return null;
+    }
+  } // get(K)
+
+  /**
+   * Count the entries. While other threads are changing the list this is only an estimate: a
+   * remove may count its entry out before the racing set that added it counts it in.
+   */
+  @Override
+  public int size() {
+    return Math.max(0, this.size.get());
+  } // size()
+
+  @Override
+  public boolean containsKey(K key) {
+    return get(key) != null;
+  } // containsKey(K)
+
+  @Override
+  public V remove(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    CSLNode<K, V>[] preds = CSLNode.nodes(MAX_HEIGHT);
+    CSLNode<K, V>[] succs = CSLNode.nodes(MAX_HEIGHT);
+    while (true) {
+      if (!find(key, preds, succs)) {
+        return null;
+      } // if
+      CSLNode<K, V> node = succs[0];
+      V old = node.value;
+      if (old == null) {
+        // Someone else is removing it; help out, then look again
+        node.markTower();
+        continue;
+      } // if
+      if (node.casValue(old, null)) {
+        this.size.decrementAndGet();
+        node.markTower();
+        // Snip the node out of every level
+        find(key, preds, succs);
+        return old;
+      } // if
+    } // while
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return new Iterator<K>() {
+      Iterator<CSLNode<K, V>> nit = ConcurrentSkipList.this.nodes();
+
+      @Override
+      public boolean hasNext() {
+        return nit.hasNext();
+      } // hasNext()
+
+      @Override
+      public K next() {
+        return nit.next().key;
+      } // next()
+
+      @Override
+      public void remove() {
+        nit.remove();
+      } // remove()
+    };
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    return new Iterator<V>() {
+      Iterator<CSLNode<K, V>> nit = ConcurrentSkipList.this.nodes();
+
+      /**
+       * The value of node, as we read it.
+       */
+      V value;
+
+      /**
+       * The node whose value we return next, or null at the end.
+       */
+      CSLNode<K, V> node = advance();
+
+      /**
+       * The node whose value we returned last, for remove.
+       */
+      CSLNode<K, V> last;
+
+      @Override
+      public boolean hasNext() {
+        return this.node != null;
+      } // hasNext()
+
+      @Override
+      public V next() {
+        if (this.node == null) {
+          throw new NoSuchElementException();
+        } // if
+        V result = this.value;
+        this.last = this.node;
+        this.node = advance();
+        return result;
+      } // next()
+
+      @Override
+      public void remove() {
+        if (this.last == null) {
+          throw new IllegalStateException();
+        } // if
+        ConcurrentSkipList.this.remove(this.last.key);
+        this.last = null;
+      } // remove()
+
+      /**
+       * Find the next node that still has a value when we read it, and save that value. A node
+       * can be removed between nit finding it and our reading its value.
+       *
+       * @return the node, or null at the end.
+       */
+      CSLNode<K, V> advance() {
+        while (nit.hasNext()) {
+          CSLNode<K, V> candidate = nit.next();
+          V candidateValue = candidate.value;
+          if (candidateValue != null) {
+            this.value = candidateValue;
+            return candidate;
+          } // if
+        } // while
+        return null;
+      } // advance()
+    };
+  } // values()
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (CSLNode<K, V> node = this.head.next[0].getReference(); node != null;
+        node = node.next[0].getReference()) {
+      V value = node.value;
+      if (value != null) {
+        action.accept(node.key, value);
+      } // if
+    } // for
+  } // forEach
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Pick a random height for a new node.
+   */
+  int randomHeight() {
+    return this.levels.height(MAX_HEIGHT);
+  } // randomHeight()
+
+  /**
+   * Note that some node now reaches level n.
+   */
+  void raiseHeight(int n) {
+    int old = this.height.get();
+    while (old < n && !this.height.compareAndSet(old, n)) {
+      old = this.height.get();
+    } // while
+  } // raiseHeight(int)
+
+  /**
+   * Find the predecessor and successor of key on each level, snipping out marked nodes along the
+   * way. Every level is searched, even those above the height, which may have gained nodes since
+   * we last looked; empty levels cost one read each.
+   *
+   * @return true if succs[0] holds key.
+   */
+  boolean find(K key, CSLNode<K, V>[] preds, CSLNode<K, V>[] succs) {
+    boolean[] marked = {false};
+    retry: while (true) {
+      CSLNode<K, V> pred = this.head;
+      CSLNode<K, V> curr = null;
+      for (int i = MAX_HEIGHT - 1; i >= 0; i--) {
+        curr = pred.next[i].getReference();
+        while (curr != null) {
+          CSLNode<K, V> succ = curr.next[i].get(marked);
+          // Snip out nodes that have been removed
+          while (marked[0]) {
+            if (!pred.next[i].compareAndSet(curr, succ, false, false)) {
+              continue retry;
+            } // if
+            curr = succ;
+            if (curr == null) {
+              break;
+            } // if
+            succ = curr.next[i].get(marked);
+          } // while
+          if (curr == null || this.comparator.compare(curr.key, key) >= 0) {
+            break;
+          } // if
+          pred = curr;
+          curr = succ;
+        } // while
+        preds[i] = pred;
+        succs[i] = curr;
+      } // for
+      return curr != null && this.comparator.compare(curr.key, key) == 0;
+    } // while
+  } // find(K, CSLNode[], CSLNode[])
+
+  /**
+   * Find the live node with the given key without modifying the list.
+   *
+   * @return the node, or null if the key is not in the list.
+   */
+  CSLNode<K, V> search(K key) {
+    boolean[] marked = {false};
+    CSLNode<K, V> pred = this.head;
+    CSLNode<K, V> curr = null;
+    for (int i = this.height.get() - 1; i >= 0; i--) {
+      curr = pred.next[i].getReference();
+      while (curr != null) {
+        CSLNode<K, V> succ = curr.next[i].get(marked);
+        // Step over nodes that have been removed
+        while (marked[0] && succ != null) {
+          curr = succ;
+          succ = curr.next[i].get(marked);
+        } // while
+        if (marked[0]) {
+          curr = null;
+          break;
+        } // if
+        if (this.comparator.compare(curr.key, key) >= 0) {
+          break;
+        } // if
+        pred = curr;
+        curr = succ;
+      } // while
+    } // for
+    if (curr != null && this.comparator.compare(curr.key, key) == 0) {
+      return curr;
+    } // if
+    return null;
+  } // search(K)
+
+  /**
+   * Get an iterator for all of the live nodes. (Useful for implementing the other iterators.)
+   */
+  Iterator<CSLNode<K, V>> nodes() {
+    return new Iterator<CSLNode<K, V>>() {
+
+      /**
+       * A reference to the next node to return.
+       */
+      CSLNode<K, V> next = advance(ConcurrentSkipList.this.head);
+
+      /**
+       * The node most recently returned.
+       */
+      CSLNode<K, V> last = null;
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      } // hasNext()
+
+      @Override
+      public CSLNode<K, V> next() {
+        if (this.next == null) {
+          throw new NoSuchElementException();
+        }
+        this.last = this.next;
+        this.next = advance(this.next);
+        return this.last;
+      } // next()
+
+      @Override
+      public void remove() {
+        if (this.last == null) {
+          throw new IllegalStateException();
+        }
+        ConcurrentSkipList.this.remove(this.last.key);
+        this.last = null;
+      } // remove()
+
+      /**
+       * Find the first live node after node on level 0.
+       */
+      CSLNode<K, V> advance(CSLNode<K, V> node) {
+        CSLNode<K, V> result = node.next[0].getReference();
+        while (result != null && result.value == null) {
+          result = result.next[0].getReference();
+        } // while
+        return result;
+      } // advance(CSLNode)
+    }; // new Iterator
+  } // nodes()
+
+} // class ConcurrentSkipList
@@ -0,0 +1,267 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Some tests of concurrent skip lists.
+ */
+public class ConcurrentSkipListTests {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of threads used by the stress tests.
+   */
+  static final int THREADS = 8;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A sorted list of integers for tests.
+   */
+  ConcurrentSkipList<Integer, String> ints;
+
+  /**
+   * For reporting errors: what went wrong, in any thread.
+   */
+  ArrayList<String> errors;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Set up everything.
+   */
+  @BeforeEach
+  public void setup() {
+    this.ints = new ConcurrentSkipList<Integer, String>((i, j) -> i - j);
+    this.errors = new ArrayList<String>();
+  } // setup
+
+  /**
+   * Log a failure from any thread.
+   */
+  void log(String str) {
+    synchronized (this.errors) {
+      System.err.println(str);
+      this.errors.add(str);
+    } // synchronized
+  } // log
+
+  /**
+   * Run the same task in several threads at once and wait for them all.
+   */
+  static void runThreads(int n, IntTask task) throws InterruptedException {
+    Thread[] threads = new Thread[n];
+    for (int t = 0; t < n; t++) {
+      final int id = t;
+      threads[t] = new Thread(() -> task.run(id));
+      threads[t].start();
+    } // for
+    for (Thread thread : threads) {
+      thread.join();
+    } // for
+  } // runThreads(int, IntTask)
+
+  /**
+   * Something to do in a thread with a given id.
+   */
+  interface IntTask {
+    void run(int id);
+  } // interface IntTask
+
+  /**
+   * Determine if an iterator only returns values in increasing order.
+   */
+  static boolean strictlyInOrder(Iterator<Integer> it) {
+    Integer prev = null;
+    while (it.hasNext()) {
+      Integer next = it.next();
+      if (prev != null && prev >= next) {
+        return false;
+      } // if
+      prev = next;
+    } // while
+    return true;
+  } // strictlyInOrder(Iterator<Integer>)
+
+  // +-------------+-----------------------------------------------------
+  // | Basic Tests |
+  // +-------------+
+
+  /**
+   * Add, replace, and remove a single element.
+   */
+  @Test
+  public void simpleTest() {
+    setup();
+    assertNull(ints.set(1, "one"));
+    assertTrue(ints.containsKey(1));
+    assertEquals("one", ints.set(1, "uno"));
+    assertEquals("uno", ints.get(1));
+    assertEquals(1, ints.size());
+    assertEquals("uno", ints.remove(1));
+    assertFalse(ints.containsKey(1));
+    assertNull(ints.remove(1));
+    assertEquals(0, ints.size());
+  } // simpleTest()
+
+  /**
+   * Verify that a single thread sees the same behavior as a SkipList.
+   */
+  @Test
+  public void matchesSkipListTest() {
+    setup();
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    Random random = new Random();
+    for (int i = 0; i < 10000; i++) {
+      int key = random.nextInt(500);
+      if (random.nextBoolean()) {
+        assertEquals(expected.set(key, "v" + i), ints.set(key, "v" + i));
+      } else {
+        assertEquals(expected.remove(key), ints.remove(key));
+      } // if/else
+    } // for
+    assertEquals(expected.size(), ints.size());
+    Iterator<Integer> eit = expected.keys();
+    Iterator<Integer> ait = ints.keys();
+    while (eit.hasNext()) {
+      assertTrue(ait.hasNext());
+      assertEquals(eit.next(), ait.next());
+    } // while
+    assertFalse(ait.hasNext());
+  } // matchesSkipListTest()
+
+  // +--------------+----------------------------------------------------
+  // | Stress Tests |
+  // +--------------+
+
+  /**
+   * Each thread adds and removes keys in its own range, checking as it goes, while the other
+   * threads do the same in neighboring ranges.
+   */
+  @Test
+  public void disjointRandomTest() throws InterruptedException {
+    setup();
+    runThreads(THREADS, (id) -> {
+      Random random = new Random();
+      ArrayList<Integer> keys = new ArrayList<Integer>();
+      for (int i = 0; errors.isEmpty() && i < 10000; i++) {
+        int key = id * 1000 + random.nextInt(1000);
+        // Half the time we add
+        if (random.nextBoolean()) {
+          ints.set(key, "v" + key);
+          if (!keys.contains(key)) {
+            keys.add(key);
+          } // if
+          if (!ints.containsKey(key)) {
+            log("After adding " + key + ", contains(" + key + ") fails");
+          } // if
+        } // if we add
+        // Half the time we remove
+        else {
+          ints.remove(key);
+          keys.remove((Integer) key);
+          if (ints.containsKey(key)) {
+            log("After removing " + key + ", contains(" + key + ") succeeds");
+          } // if
+        } // if we remove
+      } // for
+      // See if all of the appropriate elements are still there
+      for (Integer key : keys) {
+        if (!ints.containsKey(key)) {
+          log("ints no longer contains " + key);
+          break;
+        } // if
+      } // for
+    });
+    if (!errors.isEmpty()) {
+      fail(errors.get(0));
+    } // if
+    assertTrue(strictlyInOrder(ints.keys()));
+  } // disjointRandomTest()
+
+  /**
+   * All threads fight over the same small set of keys; the size must match what is left.
+   */
+  @Test
+  public void contendedRandomTest() throws InterruptedException {
+    setup();
+    AtomicInteger net = new AtomicInteger(0);
+    runThreads(THREADS, (id) -> {
+      Random random = new Random();
+      for (int i = 0; i < 20000; i++) {
+        int key = random.nextInt(64);
+        if (random.nextBoolean()) {
+          if (ints.set(key, "t" + id) == null) {
+            net.incrementAndGet();
+          } // if
+        } else if (ints.remove(key) != null) {
+          net.decrementAndGet();
+        } // if/else
+      } // for
+    });
+    int count = 0;
+    Iterator<Integer> it = ints.keys();
+    while (it.hasNext()) {
+      it.next();
+      count++;
+    } // while
+    assertEquals("net insertions", net.get(), count);
+    assertEquals("size()", count, ints.size());
+    assertTrue(strictlyInOrder(ints.keys()));
+  } // contendedRandomTest()
+
+  /**
+   * Threads insert and remove nodes that are all tall, so the height keeps rising under searches
+   * that have already read it. Afterwards every level, not just level 0, must be in order.
+   */
+  @Test
+  public void tallTowersTest() throws InterruptedException {
+    for (int round = 0; round < 100; round++) {
+      ConcurrentSkipList<Integer, String> tall = new ConcurrentSkipList<Integer, String>(
+          (i, j) -> i - j) {
+        @Override
+        int randomHeight() {
+          return 1 + ThreadLocalRandom.current().nextInt(ConcurrentSkipList.MAX_HEIGHT);
+        } // randomHeight()
+      };
+      runThreads(THREADS, (id) -> {
+        Random random = new Random();
+        for (int i = 0; i < 500; i++) {
+          int key = random.nextInt(1000);
+          if (random.nextInt(4) > 0) {
+            tall.set(key, "v" + key);
+          } else {
+            tall.remove(key);
+          } // if/else
+        } // for
+      });
+      for (int level = 0; level < ConcurrentSkipList.MAX_HEIGHT; level++) {
+        Integer prev = null;
+        for (CSLNode<Integer, String> node = tall.head.next[level].getReference();
+            node != null; node = node.next[level].getReference()) {
+          if (prev != null && prev >= node.key) {
+            fail("level " + level + " has " + node.key + " after " + prev);
+          } // if
+          prev = node.key;
+        } // for
+      } // for
+      Iterator<String> values = tall.values();
+      while (values.hasNext()) {
+        assertNotNull(values.next());
+      } // while
+    } // for
+  } // tallTowersTest()
+
+} // class ConcurrentSkipListTests
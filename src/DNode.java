@@ -0,0 +1,45 @@
+/**
+ * Nodes in a deterministic skip list.
+ */
+class DNode<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key: an entry's key on the bottom level, and the key of the last node in the group
+   * above it. Null for infinity.
+   */
+  K key;
+
+  /**
+   * The value, on the bottom level.
+   */
+  V value;
+
+  /**
+   * The next node on this level.
+   */
+  DNode<K, V> right;
+
+  /**
+   * The first node of our group on the level below.
+   */
+  DNode<K, V> down;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node.
+   */
+  DNode(K key, V value, DNode<K, V> right, DNode<K, V> down) {
+    this.key = key;
+    this.value = value;
+    this.right = right;
+    this.down = down;
+  } // DNode(K, V, DNode<K, V>, DNode<K, V>)
+
+} // class DNode<K, V>
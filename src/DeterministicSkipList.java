@@ -0,0 +1,377 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * A deterministic 1-2-3 skip list (Munro, Papadakis, and Sedgewick). Between any two adjacent
+ * nodes at one level there are one, two, or three nodes at the level below, so a search makes at
+ * most four steps per level and there are at most log2(n) + 1 levels, whatever the keys. Nothing
+ * is random, so there are no unlucky towers to slow down the tail.
+ *
+ * Each level is a linked list ending in a node whose key is infinity (a null key). A node above
+ * the bottom stands for a group of two to four nodes on the level below: down points to the
+ * first, and the node's key is the key of the last. Bottom-level nodes hold the entries. This is
+ * a 2-3-4 tree in skip list clothes, and set and remove work top down, the way 2-3-4 trees do:
+ *
+ * set splits any group of four it is about to descend into, so there is room for one more.
+ *
+ * remove makes sure any group it is about to descend into has at least three nodes, borrowing one
+ * from a neighboring group or merging with it, so there is one to spare.
+ */
+public class DeterministicSkipList<K, V> implements SimpleMap<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The comparator used to determine the ordering in the list.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * Below the bottom level: the down pointer of every bottom node.
+   */
+  final DNode<K, V> bottom = new DNode<K, V>(null, null, null, null);
+
+  /**
+   * After the end of every level. Its right is itself, so looking a few nodes ahead is safe.
+   */
+  final DNode<K, V> tail = new DNode<K, V>(null, null, null, null);
+
+  /**
+   * The infinite node at the top, whose group is the whole level below.
+   */
+  DNode<K, V> head;
+
+  /**
+   * The number of levels, counting the bottom one.
+   */
+  int height;
+
+  /**
+   * The number of entries.
+   */
+  int size;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, list that orders keys using comparator.
+   */
+  public DeterministicSkipList(Comparator<K> comparator) {
+    this.comparator = comparator;
+    this.tail.right = this.tail;
+    this.head = new DNode<K, V>(null, null, this.tail, this.bottom);
+    this.height = 1;
+  } // DeterministicSkipList(Comparator<K>)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public V set(K key, V value) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    DNode<K, V> current = this.head;
+    while (true) {
+      while (before(current, key)) {
+        current = current.right;
+      } // while
+      if (current.down == this.bottom) {
+        break;
+      } // if
+      // Split a group of four before we descend into it
+      DNode<K, V> third = current.down.right.right;
+      if (precedes(third, current)) {
+        current.right = new DNode<K, V>(current.key, null, current.right, third);
+        current.key = current.down.right.key;
+      } // if
+      // The key may now belong to the new node
+      if (before(current, key)) {
+        current = current.right;
+      } // if
+      current = current.down;
+    } // while
+    raise();
+
+    if (matches(current, key)) {
+      V result = current.value;
+      current.value = value;
+      return result;
+    } // if
+    // Insert before current by moving its entry into a new node after it
+    current.right = new DNode<K, V>(current.key, current.value, current.right, this.bottom);
+    current.key = key;
+    current.value = value;
+    this.size++;
+    raise();
+    return null;
+  } // set(K, V)
+
+  @Override
+  public V get(K key) {
+    DNode<K, V> node = find(key);
+    return (node == null) ? null : node.value;
+  } // get(K)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  @Override
+  public boolean containsKey(K key) {
+    return find(key) != null;
+  } // containsKey(K)
+
+  @Override
+  public V remove(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    if (this.size == 0) {
+      return null;
+    } // if
+    lower();
+    // The nodes on our path whose key is key, which will need a new one
+    ArrayList<DNode<K, V>> path = new ArrayList<DNode<K, V>>();
+    DNode<K, V> parent = this.head;
+    while (parent.down.down != this.bottom) {
+      // Find the child of parent to descend into, and the one before it
+      DNode<K, V> prev = null;
+      DNode<K, V> child = parent.down;
+      while (before(child, key)) {
+        prev = child;
+        child = child.right;
+      } // while
+      child = widen(parent, prev, child);
+      if (matches(child, key)) {
+        path.add(child);
+      } // if
+      parent = child;
+    } // while
+
+    // parent is just above the bottom; find the entry in its group
+    DNode<K, V> prev = null;
+    DNode<K, V> leaf = parent.down;
+    while (before(leaf, key)) {
+      prev = leaf;
+      leaf = leaf.right;
+    } // while
+    if (!matches(leaf, key)) {
+      return null;
+    } // if
+    V result = leaf.value;
+    if (!same(leaf, parent)) {
+      // Move the next entry in the group into this node
+      DNode<K, V> next = leaf.right;
+      leaf.key = next.key;
+      leaf.value = next.value;
+      leaf.right = next.right;
+    } else {
+      // The last in the group: unlink it. The one before becomes the group's last, so it gives
+      // its key to every node on our path that had this one's.
+      prev.right = leaf.right;
+      for (DNode<K, V> node : path) {
+        node.key = prev.key;
+      } // for
+    } // if/else
+    this.size--;
+    lower();
+    return result;
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return new Iterator<K>() {
+      DNode<K, V> next = first();
+
+      @Override
+      public boolean hasNext() {
+        return this.next.key != null;
+      } // hasNext()
+
+      @Override
+      public K next() {
+        if (this.next.key == null) {
+          throw new NoSuchElementException();
+        } // if
+        K result = this.next.key;
+        this.next = this.next.right;
+        return result;
+      } // next()
+    };
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    return new Iterator<V>() {
+      DNode<K, V> next = first();
+
+      @Override
+      public boolean hasNext() {
+        return this.next.key != null;
+      } // hasNext()
+
+      @Override
+      public V next() {
+        if (this.next.key == null) {
+          throw new NoSuchElementException();
+        } // if
+        V result = this.next.value;
+        this.next = this.next.right;
+        return result;
+      } // next()
+    };
+  } // values()
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (DNode<K, V> node = first(); node.key != null; node = node.right) {
+      action.accept(node.key, node.value);
+    } // for
+  } // forEach(BiConsumer)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Find the bottom node with the given key.
+   *
+   * @return the node, or null if the key is not in the list.
+   */
+  DNode<K, V> find(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    DNode<K, V> current = this.head;
+    while (true) {
+      while (before(current, key)) {
+        current = current.right;
+      } // while
+      if (current.down == this.bottom) {
+        return matches(current, key) ? current : null;
+      } // if
+      current = current.down;
+    } // while
+  } // find(K)
+
+  /**
+   * Get the first bottom node, which is the infinite one if the list is empty.
+   */
+  DNode<K, V> first() {
+    DNode<K, V> node = this.head;
+    while (node.down != this.bottom) {
+      node = node.down;
+    } // while
+    return node;
+  } // first()
+
+  /**
+   * Make sure that child, in the group of parent and just after prev (null if child comes first),
+   * has at least three nodes in its own group, by borrowing one from a neighbor or merging with
+   * it.
+   *
+   * @return the node that now covers child's group.
+   */
+  DNode<K, V> widen(DNode<K, V> parent, DNode<K, V> prev, DNode<K, V> child) {
+    if (!same(child.down.right, child)) {
+      return child;
+    } // if
+    // child has exactly two nodes below it
+    if (!same(child, parent)) {
+      DNode<K, V> next = child.right;
+      if (!same(next.down.right, next)) {
+        // Take the first node of next's group
+        child.key = next.down.key;
+        next.down = next.down.right;
+      } else {
+        // Absorb next
+        child.key = next.key;
+        child.right = next.right;
+      } // if/else
+      return child;
+    } // if
+    if (prev == null) {
+      // child is the only node in parent's group; parent is the head
+      return child;
+    } // if
+    // Find the last two nodes of prev's group
+    DNode<K, V> secondLast = prev.down;
+    while (!same(secondLast.right, prev)) {
+      secondLast = secondLast.right;
+    } // while
+    if (secondLast != prev.down) {
+      // Take the last node of prev's group
+      child.down = secondLast.right;
+      prev.key = secondLast.key;
+      return child;
+    } // if
+    // Absorb child into prev
+    prev.key = child.key;
+    prev.right = child.right;
+    return prev;
+  } // widen(DNode<K, V>, DNode<K, V>, DNode<K, V>)
+
+  /**
+   * Add a level on top if the head is no longer alone on its level, because we split its group
+   * or, when the list was empty, inserted into it.
+   */
+  void raise() {
+    if (this.head.right != this.tail) {
+      this.head = new DNode<K, V>(null, null, this.tail, this.head);
+      this.height++;
+    } // if
+  } // raise()
+
+  /**
+   * Drop top levels whose groups have only one node.
+   */
+  void lower() {
+    while (this.head.down != this.bottom && this.head.down.key == null) {
+      this.head = this.head.down;
+      this.height--;
+    } // while
+  } // lower()
+
+  /**
+   * Determine if node comes before key. The infinite nodes come after everything.
+   */
+  boolean before(DNode<K, V> node, K key) {
+    return node.key != null && this.comparator.compare(node.key, key) < 0;
+  } // before(DNode<K, V>, K)
+
+  /**
+   * Determine if node has key.
+   */
+  boolean matches(DNode<K, V> node, K key) {
+    return node.key != null && this.comparator.compare(node.key, key) == 0;
+  } // matches(DNode<K, V>, K)
+
+  /**
+   * Determine if node a's key is less than node b's.
+   */
+  boolean precedes(DNode<K, V> a, DNode<K, V> b) {
+    return a.key != null && (b.key == null || this.comparator.compare(a.key, b.key) < 0);
+  } // precedes(DNode<K, V>, DNode<K, V>)
+
+  /**
+   * Determine if two nodes have the same key, so that a is the last node in b's group.
+   */
+  boolean same(DNode<K, V> a, DNode<K, V> b) {
+    return (a.key == null) ? (b.key == null)
+        : (b.key != null && this.comparator.compare(a.key, b.key) == 0);
+  } // same(DNode<K, V>, DNode<K, V>)
+
+} // class DeterministicSkipList<K, V>
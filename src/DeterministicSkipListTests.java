@@ -0,0 +1,104 @@
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of deterministic skip lists.
+ */
+public class DeterministicSkipListTests {
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Check that every group below the top has two to four nodes, that each node's key is the key
+   * of the last node in its group, and that every level ends in infinity.
+   */
+  static <K, V> void checkShape(DeterministicSkipList<K, V> list) {
+    int levels = 1;
+    for (DNode<K, V> level = list.head; level.down != list.bottom; level = level.down) {
+      levels++;
+      for (DNode<K, V> node = level; node != list.tail; node = node.right) {
+        int count = 1;
+        DNode<K, V> child = node.down;
+        while (!list.same(child, node)) {
+          child = child.right;
+          count++;
+        } // while
+        String where = "group of " + node.key + " has " + count + " nodes";
+        assertTrue(where, count <= 4);
+        assertTrue(where, count >= 2 || level == list.head);
+        if (node.key == null) {
+          assertEquals(list.tail, node.right);
+        } // if
+      } // for
+    } // for
+    assertEquals(levels, list.height);
+    assertTrue("height " + levels + " for " + list.size + " entries",
+        levels <= 2 + 32 - Integer.numberOfLeadingZeros(list.size + 1));
+  } // checkShape(DeterministicSkipList)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Random sets and removes agree with a TreeMap and keep the groups the right size.
+   */
+  @Test
+  public void randomTest() {
+    Random random = new Random(0);
+    DeterministicSkipList<Integer, String> ints =
+        new DeterministicSkipList<Integer, String>((i, j) -> Integer.compare(i, j));
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    assertNull(ints.remove(1));
+    for (int i = 0; i < 20000; i++) {
+      int key = random.nextInt(1000);
+      // Grow for a while, then shrink
+      boolean removing = (i / 5000) % 2 == 1 ? random.nextInt(4) != 0 : random.nextInt(4) == 0;
+      if (removing) {
+        assertEquals(expected.remove(key), ints.remove(key));
+      } else {
+        assertEquals(expected.put(key, "v" + i), ints.set(key, "v" + i));
+      } // if/else
+      assertEquals(expected.get(key), ints.get(key));
+      if (i % 100 == 0) {
+        checkShape(ints);
+      } // if
+    } // for
+    SimpleMapTests.check(expected, ints);
+  } // randomTest()
+
+  /**
+   * Sorted inserts and removes, in both directions, keep the list balanced and empty it fully.
+   */
+  @Test
+  public void sortedTest() {
+    DeterministicSkipList<Integer, Integer> ints =
+        new DeterministicSkipList<Integer, Integer>((i, j) -> Integer.compare(i, j));
+    for (int i = 0; i < 5000; i++) {
+      ints.set(i, i);
+    } // for
+    checkShape(ints);
+    for (int i = 0; i < 2500; i++) {
+      assertEquals(Integer.valueOf(i), ints.remove(i));
+    } // for
+    checkShape(ints);
+    for (int i = 4999; i >= 2500; i--) {
+      assertEquals(Integer.valueOf(i), ints.remove(i));
+      assertFalse(ints.containsKey(i));
+    } // for
+    checkShape(ints);
+    assertEquals(0, ints.size());
+    assertEquals(1, ints.height);
+    assertFalse(ints.keys().hasNext());
+    ints.set(7, 7);
+    assertEquals(Integer.valueOf(7), ints.get(7));
+    checkShape(ints);
+    assertEquals(Integer.valueOf(7), ints.remove(7));
+    checkShape(ints);
+  } // sortedTest()
+
+} // class DeterministicSkipListTests
@@ -0,0 +1,520 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * A skip list that survives crashes. Every set and remove is appended to a write-ahead log and
+ * does not return until the log has been forced to disk. On startup we load the last snapshot,
+ * if any, and replay the log over it.
+ *
+ * Forcing the log is slow, so calls share it (group commit). The first caller to need a force
+ * becomes the leader: it waits up to window nanoseconds for other calls to append their records,
+ * then writes and forces them all at once, while the rest wait for it. A window of 0 still
+ * batches whatever piles up while a force is in progress.
+ *
+ * Each log record holds its length, a CRC-32 of its contents, an operation, and the encoded key
+ * and value. A crash can leave a partial record at the end of the log; replay stops at the first
+ * record that is short or fails its checksum and truncates the log there.
+ *
+ * compact writes the whole list to a new snapshot, renames it over the old one, and empties the
+ * log. Replaying a record that the snapshot already reflects gives the same result, so a crash
+ * between the rename and the truncation is harmless.
+ *
+ * Changes are visible to readers as soon as they are logged, a little before they are durable.
+ * If writing the log ever fails, every later change fails too, with an UncheckedIOException.
+ */
+public class DurableSkipList<K, V> implements SimpleMap<K, V>, AutoCloseable {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The name of the log file.
+   */
+  static final String LOG = "log";
+
+  /**
+   * The name of the snapshot file.
+   */
+  static final String SNAPSHOT = "snapshot";
+
+  /**
+   * Log operations.
+   */
+  static final byte SET = 1;
+  static final byte REMOVE = 2;
+
+  /**
+   * The size of a record's length and checksum.
+   */
+  static final int RECORD_HEADER = 2 * Integer.BYTES;
+
+  /**
+   * The initial size of the buffers that collect records between forces.
+   */
+  static final int BATCH_BYTES = 1 << 16;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The list itself.
+   */
+  final SkipList<K, V> list;
+
+  /**
+   * How we encode keys.
+   */
+  final Codec<K> keys;
+
+  /**
+   * How we encode values.
+   */
+  final Codec<V> values;
+
+  /**
+   * The directory that holds the log and the snapshot.
+   */
+  final Path dir;
+
+  /**
+   * How long, in nanoseconds, a leader waits for others to join its batch.
+   */
+  final long window;
+
+  /**
+   * The log.
+   */
+  FileChannel log;
+
+  /**
+   * Records not yet written to the log.
+   */
+  ByteBuffer pending = ByteBuffer.allocate(BATCH_BYTES);
+
+  /**
+   * An empty buffer to swap in for pending while a leader writes the old one, or null if we have
+   * none to spare.
+   */
+  ByteBuffer spare = ByteBuffer.allocate(BATCH_BYTES);
+
+  /**
+   * The number of records appended so far.
+   */
+  long appended;
+
+  /**
+   * The number of records known to be on disk.
+   */
+  long durable;
+
+  /**
+   * Whether some leader is writing and forcing the log.
+   */
+  boolean syncing;
+
+  /**
+   * The number of times we have forced the log.
+   */
+  long syncs;
+
+  /**
+   * What went wrong writing the log, if anything.
+   */
+  IOException failure;
+
+  /**
+   * For checksums; guarded by this.
+   */
+  final CRC32 crc = new CRC32();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Open the list stored in dir, creating the directory if need be, and replay its log.
+   */
+  public DurableSkipList(Path dir, Comparator<K> comparator, Codec<K> keys, Codec<V> values,
+      long window) throws IOException {
+    this.dir = dir;
+    this.keys = keys;
+    this.values = values;
+    this.window = window;
+    Files.createDirectories(dir);
+    Path snapshot = dir.resolve(SNAPSHOT);
+    if (Files.exists(snapshot)) {
+      try (FileChannel in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+        this.list = SkipList.load(in, comparator, keys, values);
+      } // try
+    } else {
+      this.list = new SkipList<K, V>(comparator);
+    } // if/else
+    this.log = FileChannel.open(dir.resolve(LOG), StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+    long end = replay();
+    this.log.truncate(end);
+    this.log.position(end);
+  } // DurableSkipList(Path, Comparator<K>, Codec<K>, Codec<V>, long)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public V set(K key, V value) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    long seq;
+    V result;
+    synchronized (this) {
+      check();
+      seq = append(SET, key, value);
+      result = this.list.set(key, value);
+    } // synchronized
+    commit(seq);
+    return result;
+  } // set(K, V)
+
+  @Override
+  public synchronized V get(K key) {
+    return this.list.get(key);
+  } // get(K)
+
+  @Override
+  public synchronized int size() {
+    return this.list.size();
+  } // size()
+
+  @Override
+  public synchronized boolean containsKey(K key) {
+    return this.list.containsKey(key);
+  } // containsKey(K)
+
+  @Override
+  public V remove(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    long seq;
+    V result;
+    synchronized (this) {
+      check();
+      if (!this.list.containsKey(key)) {
+        return null;
+      } // if
+      seq = append(REMOVE, key, null);
+      result = this.list.remove(key);
+    } // synchronized
+    commit(seq);
+    return result;
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return this.<K>snapshot(true).iterator();
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    return this.<V>snapshot(false).iterator();
+  } // values()
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    // The action runs outside the lock, so it may call back into the list
+    Object[] pairs = pairs();
+    for (int i = 0; i < pairs.length; i += 2) {
+      action.accept((K) pairs[i], (V) pairs[i + 1]);
+    } // for
+  } // forEach(BiConsumer)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Write the whole list to a new snapshot and empty the log. Changes wait until we finish.
+   */
+  public synchronized void compact() throws IOException {
+    awaitIdle();
+    check();
+    Path temp = this.dir.resolve(SNAPSHOT + ".tmp");
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      this.list.save(out, this.keys, this.values, true);
+      out.force(true);
+    } // try
+    Files.move(temp, this.dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    // The new snapshot's name must reach the disk before the log it replaces is emptied
+    SkipList.forceDirectory(this.dir);
+    // Everything logged so far is now in the snapshot
+    this.pending.clear();
+    this.durable = this.appended;
+    this.log.truncate(0);
+    this.log.force(true);
+    notifyAll();
+  } // compact()
+
+  /**
+   * Wait for every change to reach the log, then close it. The list may not be used afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    long seq;
+    synchronized (this) {
+      seq = this.appended;
+    } // synchronized
+    commit(seq);
+    synchronized (this) {
+      awaitIdle();
+      this.log.close();
+    } // synchronized
+  } // close()
+
+  /**
+   * Get the number of times we have forced the log.
+   */
+  public synchronized long syncs() {
+    return this.syncs;
+  } // syncs()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Add a record to pending and return its sequence number.
+   */
+  long append(byte op, K key, V value) {
+    byte[] k = this.keys.encode(key);
+    byte[] v = (op == REMOVE || value == null) ? null : this.values.encode(value);
+    int length = 1 + Integer.BYTES + k.length + ((op == REMOVE) ? 0
+        : Integer.BYTES + ((v == null) ? 0 : v.length));
+    if (this.pending.remaining() < RECORD_HEADER + length) {
+      ByteBuffer bigger = ByteBuffer.allocate(
+          Math.max(2 * this.pending.capacity(), this.pending.position() + RECORD_HEADER + length));
+      this.pending.flip();
+      bigger.put(this.pending);
+      this.pending = bigger;
+    } // if
+    int start = this.pending.position();
+    this.pending.putInt(length);
+    this.pending.putInt(0);
+    this.pending.put(op);
+    this.pending.putInt(k.length);
+    this.pending.put(k);
+    if (op == SET) {
+      // Values may be null, which we record as length -1
+      this.pending.putInt((v == null) ? -1 : v.length);
+      if (v != null) {
+        this.pending.put(v);
+      } // if
+    } // if
+    this.crc.reset();
+    this.crc.update(this.pending.array(), start + RECORD_HEADER, length);
+    this.pending.putInt(start + Integer.BYTES, (int) this.crc.getValue());
+    return ++this.appended;
+  } // append(byte, K, V)
+
+  /**
+   * Wait until record seq is on disk, leading a group commit if no one else is.
+   */
+  void commit(long seq) {
+    ByteBuffer batch;
+    long upTo;
+    boolean interrupted = false;
+    try {
+      synchronized (this) {
+        while (this.durable < seq) {
+          check();
+          if (!this.syncing) {
+            break;
+          } // if
+          interrupted |= await(0);
+        } // while
+        if (this.durable >= seq) {
+          return;
+        } // if
+        // Lead: let others add to the batch for a while
+        this.syncing = true;
+        long deadline = System.nanoTime() + this.window;
+        for (long left = this.window; left > 0; left = deadline - System.nanoTime()) {
+          interrupted |= await(left);
+        } // for
+        batch = this.pending;
+        upTo = this.appended;
+        this.pending = (this.spare != null) ? this.spare : ByteBuffer.allocate(BATCH_BYTES);
+        this.spare = null;
+      } // synchronized
+
+      IOException failure = null;
+      try {
+        batch.flip();
+        while (batch.hasRemaining()) {
+          this.log.write(batch);
+        } // while
+        this.log.force(false);
+      } catch (IOException e) {
+        failure = e;
+      } // try/catch
+
+      synchronized (this) {
+        batch.clear();
+        this.spare = batch;
+        this.syncing = false;
+        this.syncs++;
+        if (failure != null) {
+          this.failure = failure;
+        } else {
+          this.durable = Math.max(this.durable, upTo);
+        } // if/else
+        notifyAll();
+        check();
+      } // synchronized
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      } // if
+    } // try/finally
+  } // commit(long)
+
+  /**
+   * Wait on this for up to nanos nanoseconds, or until notified if nanos is 0. Return true if we
+   * were interrupted, which we otherwise ignore: the change is already made, and must be logged.
+   */
+  boolean await(long nanos) {
+    try {
+      if (nanos > 0) {
+        TimeUnit.NANOSECONDS.timedWait(this, nanos);
+      } else {
+        wait();
+      } // if/else
+      return false;
+    } catch (InterruptedException e) {
+      return true;
+    } // try/catch
+  } // await(long)
+
+  /**
+   * Wait until no leader is writing the log.
+   */
+  void awaitIdle() {
+    boolean interrupted = false;
+    while (this.syncing) {
+      interrupted |= await(0);
+    } // while
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    } // if
+  } // awaitIdle()
+
+  /**
+   * Complain if writing the log has failed.
+   */
+  void check() {
+    if (this.failure != null) {
+      throw new UncheckedIOException("write-ahead log failed", this.failure);
+    } // if
+  } // check()
+
+  /**
+   * Apply the records in the log to the list, and return where the last whole one ends.
+   */
+  long replay() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(SkipList.IO_BUFFER_BYTES);
+    buffer.flip();
+    long end = 0;
+    long size = this.log.size();
+    try {
+      while (end < size) {
+        SkipList.fill(buffer, this.log, RECORD_HEADER);
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > size - end - RECORD_HEADER) {
+          break;
+        } // if
+        byte[] record = SkipList.getBytes(buffer, this.log, length);
+        this.crc.reset();
+        this.crc.update(record);
+        if ((int) this.crc.getValue() != checksum) {
+          break;
+        } // if
+        apply(ByteBuffer.wrap(record));
+        end += RECORD_HEADER + length;
+      } // while
+    } catch (EOFException e) {
+      // A torn write at the end of the log
+    } // try/catch
+    return end;
+  } // replay()
+
+  /**
+   * Apply one log record to the list.
+   */
+  void apply(ByteBuffer record) throws IOException {
+    byte op = record.get();
+    byte[] k = new byte[record.getInt()];
+    record.get(k);
+    K key = this.keys.decode(k);
+    if (op == REMOVE) {
+      this.list.remove(key);
+    } else if (op == SET) {
+      int length = record.getInt();
+      V value = null;
+      if (length >= 0) {
+        byte[] v = new byte[length];
+        record.get(v);
+        value = this.values.decode(v);
+      } // if
+      this.list.set(key, value);
+    } else {
+      throw new IOException("bad operation in write-ahead log: " + op);
+    } // if/else
+  } // apply(ByteBuffer)
+
+  /**
+   * Copy the keys (or values), in key order.
+   */
+  @SuppressWarnings("unchecked")
+  synchronized <T> ArrayList<T> snapshot(boolean keys) {
+    ArrayList<T> result = new ArrayList<T>(this.list.size);
+    for (SLNode<K, V> node = this.list.head.next[0]; node != null; node = node.next[0]) {
+      result.add((T) (keys ? node.key : node.value));
+    } // for
+    return result;
+  } // snapshot(boolean)
+
+  /**
+   * Copy the keys and values in one pass, in key order: each key is followed by its value.
+   */
+  synchronized Object[] pairs() {
+    Object[] result = new Object[2 * this.list.size];
+    int i = 0;
+    for (SLNode<K, V> node = this.list.head.next[0]; node != null; node = node.next[0]) {
+      result[i++] = node.key;
+      result[i++] = node.value;
+    } // for
+    return result;
+  } // pairs()
+
+} // class DurableSkipList<K, V>
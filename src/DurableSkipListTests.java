@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of skip lists with write-ahead logs.
+ */
+public class DurableSkipListTests {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * How we order keys.
+   */
+  static final Comparator<Integer> ORDER = (i, j) -> Integer.compare(i, j);
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Open a list of ints in a directory.
+   */
+  static DurableSkipList<Integer, String> open(Path dir, long window) throws IOException {
+    return new DurableSkipList<Integer, String>(dir, ORDER, Codec.INTEGER, Codec.STRING, window);
+  } // open(Path, long)
+
+  /**
+   * Fill a list with the keys 0 .. n-1, removing every third one.
+   */
+  static TreeMap<Integer, String> fill(DurableSkipList<Integer, String> ints, int n) {
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    for (int i = 0; i < n; i++) {
+      ints.set(i, "v" + i);
+      expected.put(i, "v" + i);
+    } // for
+    for (int i = 0; i < n; i += 3) {
+      ints.remove(i);
+      expected.remove(i);
+    } // for
+    return expected;
+  } // fill(DurableSkipList, int)
+
+  /**
+   * Delete a directory and everything in it.
+   */
+  static void delete(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      } // for
+    } // try
+    Files.delete(dir);
+  } // delete(Path)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Changes come back after a restart, including null values.
+   */
+  @Test
+  public void replayTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      DurableSkipList<Integer, String> ints = open(dir, 0);
+      TreeMap<Integer, String> expected = fill(ints, 200);
+      ints.set(7, null);
+      expected.put(7, null);
+      assertNull(ints.remove(-1));
+      // Reopen without closing, as after a crash
+      DurableSkipList<Integer, String> copy = open(dir, 0);
+      SimpleMapTests.check(expected, copy);
+      ints.close();
+      copy.set(1000, "new");
+      expected.put(1000, "new");
+      copy.close();
+      SimpleMapTests.check(expected, open(dir, 0));
+    } finally {
+      delete(dir);
+    } // try/finally
+  } // replayTest()
+
+  /**
+   * A partial record at the end of the log is dropped, and the log carries on from there.
+   */
+  @Test
+  public void tornTailTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      DurableSkipList<Integer, String> ints = open(dir, 0);
+      TreeMap<Integer, String> expected = fill(ints, 100);
+      ints.close();
+      Path log = dir.resolve(DurableSkipList.LOG);
+      long size = Files.size(log);
+      try (FileChannel out = FileChannel.open(log, StandardOpenOption.APPEND)) {
+        out.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 1}));
+      } // try
+      ints = open(dir, 0);
+      SimpleMapTests.check(expected, ints);
+      assertEquals(size, Files.size(log));
+      ints.set(500, "after");
+      expected.put(500, "after");
+      ints.close();
+      SimpleMapTests.check(expected, open(dir, 0));
+    } finally {
+      delete(dir);
+    } // try/finally
+  } // tornTailTest()
+
+  /**
+   * Compaction empties the log, and later changes still replay over the snapshot.
+   */
+  @Test
+  public void compactTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      DurableSkipList<Integer, String> ints = open(dir, 0);
+      TreeMap<Integer, String> expected = fill(ints, 300);
+      ints.compact();
+      assertEquals(0, Files.size(dir.resolve(DurableSkipList.LOG)));
+      ints.set(1, "changed");
+      expected.put(1, "changed");
+      ints.remove(2);
+      expected.remove(2);
+      ints.close();
+      ints = open(dir, 0);
+      SimpleMapTests.check(expected, ints);
+      ints.compact();
+      ints.close();
+      SimpleMapTests.check(expected, open(dir, 0));
+    } finally {
+      delete(dir);
+    } // try/finally
+  } // compactTest()
+
+  /**
+   * Every write acknowledged before and after a compaction is there after a crash.
+   */
+  @Test
+  public void compactCrashTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      DurableSkipList<Integer, String> ints = open(dir, 0);
+      TreeMap<Integer, String> expected = fill(ints, 300);
+      ints.compact();
+      assertFalse(Files.exists(dir.resolve(DurableSkipList.SNAPSHOT + ".tmp")));
+      for (int i = 300; i < 400; i++) {
+        ints.set(i, "v" + i);
+        expected.put(i, "v" + i);
+      } // for
+      // Crash: drop the log without closing the list
+      ints.log.close();
+      ints = open(dir, 0);
+      SimpleMapTests.check(expected, ints);
+      ints.close();
+    } finally {
+      delete(dir);
+    } // try/finally
+  } // compactCrashTest()
+
+  /**
+   * Concurrent writers share forces of the log, and all their changes survive.
+   */
+  @Test
+  public void groupCommitTest() throws Exception {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      DurableSkipList<Integer, String> ints = open(dir, 2000000);
+      ArrayList<Thread> threads = new ArrayList<Thread>();
+      for (int t = 0; t < 8; t++) {
+        int base = 100 * t;
+        threads.add(new Thread(() -> {
+          for (int i = 0; i < 25; i++) {
+            ints.set(base + i, "t" + base);
+          } // for
+        }));
+      } // for
+      for (Thread thread : threads) {
+        thread.start();
+      } // for
+      for (Thread thread : threads) {
+        thread.join();
+      } // for
+      assertTrue("syncs: " + ints.syncs(), ints.syncs() < 200);
+      ints.close();
+      DurableSkipList<Integer, String> copy = open(dir, 0);
+      assertEquals(200, copy.size());
+      assertEquals("t700", copy.get(724));
+    } finally {
+      delete(dir);
+    } // try/finally
+  } // groupCommitTest()
+
+  /**
+   * forEach sees each key with its own value, in order, and the action may change the list.
+   */
+  @Test
+  public void forEachTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      DurableSkipList<Integer, String> ints = open(dir, 0);
+      TreeMap<Integer, String> expected = fill(ints, 300);
+      ArrayList<Integer> seen = new ArrayList<Integer>();
+      ints.forEach((key, value) -> {
+        assertEquals(expected.get(key), value);
+        seen.add(key);
+        ints.set(key + 1000, value);
+      });
+      assertEquals(new ArrayList<Integer>(expected.keySet()), seen);
+      assertEquals(2 * expected.size(), ints.size());
+      ints.close();
+    } finally {
+      delete(dir);
+    } // try/finally
+  } // forEachTest()
+
+} // class DurableSkipListTests
@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Measure durable writes per second to a DurableSkipList, for several group-commit windows.
+ *
+ * Usage: java DurableWriteBenchmark [threads] [seconds]
+ */
+public class DurableWriteBenchmark {
+
+  /**
+   * The windows to try, in microseconds.
+   */
+  static final long[] WINDOWS = {0, 100, 1000, 5000};
+
+  public static void main(String[] args) throws Exception {
+    int threads = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+    double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 3;
+    for (long window : WINDOWS) {
+      Path dir = Files.createTempDirectory("skiplist");
+      try {
+        DurableSkipList<Integer, Integer> list = new DurableSkipList<Integer, Integer>(dir,
+            (i, j) -> Integer.compare(i, j), Codec.INTEGER, Codec.INTEGER, window * 1000);
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        long[] counts = new long[threads];
+        ArrayList<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+          int id = t;
+          workers.add(new Thread(() -> {
+            for (int i = 0; System.nanoTime() < deadline; i++) {
+              list.set(i * threads + id, i);
+              counts[id]++;
+            } // for
+          }));
+        } // for
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+          worker.start();
+        } // for
+        for (Thread worker : workers) {
+          worker.join();
+        } // for
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long writes = 0;
+        for (long count : counts) {
+          writes += count;
+        } // for
+        System.out.printf("threads=%d  window=%5d us  %9.0f writes/s  %7.1f writes/sync%n",
+            threads, window, writes / elapsed, (double) writes / list.syncs());
+        list.close();
+      } finally {
+        delete(dir);
+      } // try/finally
+    } // for
+  } // main(String[])
+
+  /**
+   * Delete a directory and everything in it.
+   */
+  static void delete(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      } // for
+    } // try
+    Files.delete(dir);
+  } // delete(Path)
+
+} // class DurableWriteBenchmark
@@ -0,0 +1,64 @@
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Trade search cost against memory by varying prob. For each setting we report how many
+ * comparisons a successful get makes on average, how long it takes, how tall the list is, and
+ * the estimated heap footprint of the nodes.
+ *
+ * Usage: java HeightBenchmark [size] [prob ...]
+ */
+public class HeightBenchmark {
+
+  /**
+   * The number of comparisons made so far.
+   */
+  static long comparisons;
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    double[] probs = {0.5, 1 / Math.E, 0.25, 0.125};
+    if (args.length > 1) {
+      probs = new double[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        probs[i - 1] = Double.parseDouble(args[i]);
+      } // for
+    } // if
+    Integer[] keys = SkipListBenchmark.keys(n, false);
+    for (int round = 0; round < 2; round++) {
+      for (double prob : probs) {
+        SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> {
+          comparisons++;
+          return i - j;
+        }, false, prob);
+        SkipListBenchmark.fill(list, keys);
+
+        comparisons = 0;
+        long start = System.nanoTime();
+        for (Integer key : keys) {
+          SkipListBenchmark.consume(list.get(key));
+        } // for
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("n=%d p=%.3f  height: %2d  compares/get: %5.1f  ns/get: %6.1f  %s%n",
+            n, prob, list.height, (double) comparisons / n, (double) elapsed / n,
+            bytesPerEntry(list));
+      } // for
+    } // for
+  } // main(String[])
+
+  /**
+   * Pull the bytes per entry out of footprint's report.
+   */
+  static String bytesPerEntry(SkipList<Integer, Integer> list) {
+    StringWriter out = new StringWriter();
+    list.footprint(new PrintWriter(out));
+    for (String line : out.toString().split("\n")) {
+      if (line.startsWith("bytes/entry (arrays)")) {
+        return line.replace(" (arrays)", "");
+      } // if
+    } // for
+    return "";
+  } // bytesPerEntry(SkipList<Integer, Integer>)
+
+} // class HeightBenchmark
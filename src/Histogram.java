@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of non-negative values, such as latencies in nanoseconds, in buckets that are each 1/16
+ * of a power of two wide, so every value is recorded to within about 6%. Recording is safe from
+ * several threads at once.
+ */
+class Histogram {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Each power of two is split into 2^SUB_BITS buckets.
+   */
+  static final int SUB_BITS = 4;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The count in each bucket.
+   */
+  final AtomicLongArray counts = new AtomicLongArray(Long.SIZE << SUB_BITS);
+
+  /**
+   * The number of values recorded.
+   */
+  final LongAdder total = new LongAdder();
+
+  /**
+   * The largest value recorded.
+   */
+  final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Record a value. Negative values count as 0.
+   */
+  public void record(long value) {
+    value = Math.max(0, value);
+    this.counts.incrementAndGet(bucket(value));
+    this.total.increment();
+    this.max.accumulate(value);
+  } // record(long)
+
+  /**
+   * Get the number of values recorded.
+   */
+  public long count() {
+    return this.total.sum();
+  } // count()
+
+  /**
+   * Get the largest value recorded.
+   */
+  public long max() {
+    return this.max.get();
+  } // max()
+
+  /**
+   * Get the smallest value in the bucket holding the pth percentile, or 0 if nothing has been
+   * recorded.
+   */
+  public long percentile(double p) {
+    long rank = (long) Math.ceil(p / 100 * count());
+    long seen = 0;
+    for (int i = 0; i < this.counts.length(); i++) {
+      seen += this.counts.get(i);
+      if (seen >= rank && seen > 0) {
+        return lowest(i);
+      } // if
+    } // for
+    return max();
+  } // percentile(double)
+
+  /**
+   * Forget everything recorded.
+   */
+  public void reset() {
+    for (int i = 0; i < this.counts.length(); i++) {
+      this.counts.set(i, 0);
+    } // for
+    this.total.reset();
+    this.max.reset();
+  } // reset()
+
+  /**
+   * Find the bucket for a value.
+   */
+  static int bucket(long value) {
+    if (value < (1 << SUB_BITS)) {
+      return (int) value;
+    } // if
+    int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+    return ((exponent + 1) << SUB_BITS) + (int) ((value >>> exponent) & ((1 << SUB_BITS) - 1));
+  } // bucket(long)
+
+  /**
+   * Find the smallest value in a bucket.
+   */
+  static long lowest(int bucket) {
+    if (bucket < (1 << SUB_BITS)) {
+      return bucket;
+    } // if
+    int exponent = (bucket >>> SUB_BITS) - 1;
+    return ((long) ((1 << SUB_BITS) + (bucket & ((1 << SUB_BITS) - 1)))) << exponent;
+  } // lowest(int)
+
+} // class Histogram
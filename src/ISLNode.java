@@ -0,0 +1,27 @@
+/**
+ * Nodes in an indexed skip list, which also know how far each link reaches.
+ */
+class ISLNode<K, V> extends SLNode<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The number of level-0 steps that each link covers. Links to null have width 0.
+   */
+  int[] width;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key and value.
+   */
+  public ISLNode(K key, V value, int n) {
+    super(key, value, n);
+    this.width = new int[n];
+  } // ISLNode(K, V, int)
+
+} // ISLNode<K,V>
@@ -0,0 +1,53 @@
+/**
+ * A summary of a key as a long whose order agrees with the comparator's order of the keys: if
+ * prefix(a) is less than prefix(b), then a comes before b. Different keys may share a prefix, in
+ * which case the comparator decides.
+ *
+ * A skip list that keeps prefixes stores one in each node, so most steps of a search compare two
+ * longs instead of following a reference to the node's key and calling the comparator.
+ *
+ * The agreement is with the list's comparator, not with some natural order of the keys. STRING,
+ * for instance, suits String.compareTo but not a reversed or case-insensitive comparator. The
+ * list cannot check this, and a prefix that disagrees sends searches the wrong way, so keys that
+ * are in the list are not found.
+ */
+public interface KeyPrefix<K> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The first four chars (eight bytes) of a string, padded with zeros, for the order of
+   * String.compareTo. The sign bit is flipped so that signed comparison of prefixes matches
+   * unsigned comparison of chars.
+   */
+  public static final KeyPrefix<String> STRING = (str) -> {
+    long result = 0;
+    int n = Math.min(4, str.length());
+    for (int i = 0; i < n; i++) {
+      result |= (long) str.charAt(i) << (48 - 16 * i);
+    } // for
+    return result ^ Long.MIN_VALUE;
+  };
+
+  /**
+   * An integer is its own prefix.
+   */
+  public static final KeyPrefix<Integer> INTEGER = (i) -> i;
+
+  /**
+   * So is a long.
+   */
+  public static final KeyPrefix<Long> LONG = (l) -> l;
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Summarize key.
+   */
+  public long prefix(K key);
+
+} // interface KeyPrefix<K>
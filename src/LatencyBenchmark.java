@@ -0,0 +1,71 @@
+import java.util.Random;
+
+/**
+ * Compare the latency distribution of get in SkipList, whose towers are random, and in
+ * DeterministicSkipList, whose shape is fixed by its keys. Each get is timed on its own and
+ * recorded in a histogram; we report p50, p99, p99.9, and the maximum over several lists.
+ *
+ * Usage: java LatencyBenchmark [size] [lists]
+ */
+public class LatencyBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    int lists = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+    Integer[] keys = SkipListBenchmark.keys(n, false);
+    for (int round = 0; round < 2; round++) {
+      Histogram random = new Histogram();
+      Histogram deterministic = new Histogram();
+      for (int i = 0; i < lists; i++) {
+        SkipList<Integer, Integer> list =
+            new SkipList<Integer, Integer>((a, b) -> Integer.compare(a, b));
+        list.seed(i);
+        fill(list, keys);
+        time(list, keys, new Random(i), random);
+        list = null;
+        DeterministicSkipList<Integer, Integer> dlist =
+            new DeterministicSkipList<Integer, Integer>((a, b) -> Integer.compare(a, b));
+        fill(dlist, keys);
+        time(dlist, keys, new Random(i), deterministic);
+      } // for
+      report("SkipList", random);
+      report("DeterministicSkipList", deterministic);
+    } // for
+  } // main(String[])
+
+  /**
+   * Set every key.
+   */
+  static void fill(SimpleMap<Integer, Integer> map, Integer[] keys) {
+    for (Integer key : keys) {
+      map.set(key, key);
+    } // for
+  } // fill(SimpleMap, Integer[])
+
+  /**
+   * Time a get of each key, in random order, recording each time.
+   */
+  static void time(SimpleMap<Integer, Integer> map, Integer[] keys, Random random,
+      Histogram histogram) {
+    long sum = 0;
+    for (int i = 0; i < keys.length; i++) {
+      Integer key = keys[random.nextInt(keys.length)];
+      long start = System.nanoTime();
+      sum += map.get(key);
+      histogram.record(System.nanoTime() - start);
+    } // for
+    if (sum == 42) {
+      System.out.println("unlikely");
+    } // if
+  } // time(SimpleMap, Integer[], Random, Histogram)
+
+  /**
+   * Print the percentiles of a histogram.
+   */
+  static void report(String name, Histogram histogram) {
+    System.out.printf("%-22s gets=%d  p50: %6d ns  p99: %6d ns  p99.9: %7d ns  max: %9d ns%n",
+        name, histogram.count(), histogram.percentile(50), histogram.percentile(99),
+        histogram.percentile(99.9), histogram.max());
+  } // report(String, Histogram)
+
+} // class LatencyBenchmark
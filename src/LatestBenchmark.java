@@ -0,0 +1,68 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measure "latest N" queries over time-ordered keys. Walking back from the tail, or from the
+ * predecessor of a cutoff, costs O(N) or O(log n + N); without back links, we have to scan
+ * forward from the front and keep the last N entries we saw, which grows with the list.
+ *
+ * Usage: java LatestBenchmark [max-size] [count]
+ */
+public class LatestBenchmark {
+
+  public static void main(String[] args) {
+    int maxSize = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    int count = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+    SkipListBenchmark.header();
+    for (int n = 1000; n <= maxSize; n *= 10) {
+      final int size = n;
+      // Keys arrive in time order, like timestamps
+      SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> i - j);
+      SkipListBenchmark.fill(list, SkipListBenchmark.keys(n, true));
+      // Cutoffs anywhere in the list, for "latest N before t"
+      Integer[] cutoffs = new Integer[1024];
+      Random random = new Random(n);
+      for (int i = 0; i < cutoffs.length; i++) {
+        cutoffs[i] = 2 * random.nextInt(n);
+      } // for
+
+      SkipListBenchmark.measure("descendingKeys() n=" + size + " count=" + count,
+          SkipListBenchmark.OPS, () -> (i) -> {
+            Iterator<Integer> it = list.descendingKeys();
+            for (int j = 0; j < count && it.hasNext(); j++) {
+              SkipListBenchmark.consume(it.next());
+            } // for
+          });
+      SkipListBenchmark.measure("descendingRange() n=" + size + " count=" + count,
+          SkipListBenchmark.OPS, () -> (i) -> {
+            Iterator<Map.Entry<Integer, Integer>> it =
+                list.descendingRange(null, cutoffs[i & 1023]);
+            for (int j = 0; j < count && it.hasNext(); j++) {
+              SkipListBenchmark.consume(it.next().getKey());
+            } // for
+          });
+      if (n <= 100000) {
+        Integer[] latest = new Integer[count];
+        SkipListBenchmark.measure("forward keys() n=" + size + " count=" + count,
+            Math.max(10, SkipListBenchmark.OPS / n), () -> (i) -> {
+              // Keep the last count keys in a ring
+              int seen = 0;
+              Iterator<Integer> it = list.keys();
+              while (it.hasNext()) {
+                latest[seen++ % count] = it.next();
+              } // while
+            });
+        SkipListBenchmark.measure("forward range() n=" + size + " count=" + count,
+            Math.max(10, SkipListBenchmark.OPS / n), () -> (i) -> {
+              int seen = 0;
+              Iterator<Map.Entry<Integer, Integer>> it = list.range(null, cutoffs[i & 1023]);
+              while (it.hasNext()) {
+                latest[seen++ % count] = it.next().getKey();
+              } // while
+            });
+      } // if
+    } // for
+  } // main(String[])
+
+} // class LatestBenchmark
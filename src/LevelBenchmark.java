@@ -0,0 +1,55 @@
+import java.util.Random;
+
+/**
+ * Compare ways of picking node heights: the old loop that calls a shared java.util.Random once
+ * per level, and LevelGenerator, which uses one word from ThreadLocalRandom (or from a seeded
+ * SplittableRandom). We time the heights alone and then inserts into a SkipList.
+ *
+ * Usage: java LevelBenchmark [size]
+ */
+public class LevelBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    Integer[] keys = SkipListBenchmark.keys(n, false);
+    for (int round = 0; round < 3; round++) {
+      for (double prob : new double[] {0.5, 0.25}) {
+        Random shared = new Random();
+        LevelGenerator loop = (limit) -> {
+          int result = 1;
+          while (result < limit && shared.nextDouble() < prob) {
+            result = result + 1;
+          } // while
+          return result;
+        };
+        report("shared Random loop", prob, n, keys, loop);
+        report("ThreadLocalRandom word", prob, n, keys, LevelGenerator.random(prob));
+        report("seeded word", prob, n, keys, LevelGenerator.seeded(prob, round));
+      } // for
+    } // for
+  } // main(String[])
+
+  /**
+   * Time n heights from levels, and n inserts into a list that uses it.
+   */
+  static void report(String name, double prob, int n, Integer[] keys, LevelGenerator levels) {
+    long sum = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < n; i++) {
+      sum += levels.height(32);
+    } // for
+    long heights = System.nanoTime() - start;
+
+    SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> i - j, false, prob);
+    list.levels = levels;
+    start = System.nanoTime();
+    for (Integer key : keys) {
+      list.set(key, key);
+    } // for
+    long inserts = System.nanoTime() - start;
+
+    System.out.printf("%-24s p=%.2f  ns/height: %5.1f  ns/insert: %7.1f  (mean height %.3f)%n",
+        name, prob, (double) heights / n, (double) inserts / n, (double) sum / n);
+  } // report(String, double, int, Integer[], LevelGenerator)
+
+} // class LevelBenchmark
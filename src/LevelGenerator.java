@@ -0,0 +1,73 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * A source of random heights for new skip list nodes. A node reaches each level above the first
+ * with probability prob, so heights follow a geometric distribution.
+ *
+ * Each height comes from a single random 64-bit word. When prob is 1/2^k, the height is one more
+ * than the number of trailing zero bits divided by k; otherwise we invert the distribution with a
+ * logarithm. Either way there is one call to the random number generator, not one per level.
+ */
+public interface LevelGenerator {
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Heights drawn from ThreadLocalRandom, so threads never contend for a shared seed.
+   */
+  public static LevelGenerator random(double prob) {
+    return of(prob, () -> ThreadLocalRandom.current().nextLong());
+  } // random(double)
+
+  /**
+   * Heights drawn from a generator with a fixed seed, so the same seed gives the same sequence
+   * of heights. Not safe to share between threads.
+   */
+  public static LevelGenerator seeded(double prob, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    return of(prob, random::nextLong);
+  } // seeded(double, long)
+
+  /**
+   * Turn a source of random words into a source of heights.
+   */
+  static LevelGenerator of(double prob, LongSupplier words) {
+    int k = bitsPerLevel(prob);
+    if (k > 0) {
+      // Each level needs k more zero bits, which happens with probability 1/2^k
+      return (limit) -> Math.min(limit, 1 + Long.numberOfTrailingZeros(words.getAsLong()) / k);
+    } // if
+    double scale = 1 / Math.log(prob);
+    return (limit) -> {
+      // A uniform double in (0, 1]; u <= prob^h with probability prob^h
+      double u = ((words.getAsLong() >>> 11) + 1) * 0x1.0p-53;
+      return (int) Math.min(limit, 1 + Math.log(u) * scale);
+    };
+  } // of(double, LongSupplier)
+
+  /**
+   * Find the k for which prob is 1/2^k, or 0 if there is none.
+   */
+  static int bitsPerLevel(double prob) {
+    for (int k = 1; k < 32; k++) {
+      if (prob == Math.scalb(1.0, -k)) {
+        return k;
+      } // if
+    } // for
+    return 0;
+  } // bitsPerLevel(double)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Pick the height of a new node, between 1 and limit.
+   */
+  public int height(int limit);
+
+} // interface LevelGenerator
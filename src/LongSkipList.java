@@ -0,0 +1,333 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A skip list specialized for long keys. Keys are stored inline in the nodes and compared with
+ * &lt;, so nothing is boxed and no comparator is called. Otherwise it works just like SkipList.
+ * Int keys work too; they are simply widened.
+ */
+public class LongSkipList<V> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The initial height of the skip list.
+   */
+  static final int INITIAL_HEIGHT = 16;
+
+  /**
+   * The tallest a node may be.
+   */
+  static final int MAX_HEIGHT = 32;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The dummy node at the front of the list. Its next pointers are the front of each level.
+   */
+  LSLNode<V> head;
+
+  /**
+   * The predecessors found by the most recent search, one per level.
+   */
+  LSLNode<V>[] update;
+
+  /**
+   * The number of values in the list.
+   */
+  int size;
+
+  /**
+   * The current height of the skiplist.
+   */
+  int height;
+
+  /**
+   * The probability used to determine the height of nodes.
+   */
+  double prob = 0.5;
+
+  /**
+   * Where the heights of new nodes come from.
+   */
+  LevelGenerator levels = LevelGenerator.random(this.prob);
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, skip list.
+   */
+  public LongSkipList() {
+    this.head = new LSLNode<V>(0, null, INITIAL_HEIGHT);
+    this.update = LSLNode.links(INITIAL_HEIGHT);
+    this.size = 0;
+    this.height = INITIAL_HEIGHT;
+  } // LongSkipList()
+
+  // +----------------+----------------------------------------------
+  // | Map operations |
+  // +----------------+
+
+  /**
+   * Set the value associated with key.
+   *
+   * @return the previous value associated with key (or null, if there's no such value)
+   */
+  public V set(long key, V value) {
+    // Find the location for the new element, remembering the predecessors at each level
+    LSLNode<V> current = findPredecessors(key).next[0];
+
+    // Check for node update
+    if (current != null && current.key == key) {
+      V result = current.value;
+      current.value = value;
+      return result;
+    } // if
+
+    // If there is no node to update, make a new one and insert it
+    int newLevel = randomHeight();
+    if (newLevel > this.height) {
+      int oldHeight = this.height;
+      this.head.next = Arrays.copyOf(this.head.next, newLevel);
+      this.update = Arrays.copyOf(this.update, newLevel);
+      this.height = newLevel;
+      for (int i = oldHeight; i < newLevel; i++) {
+        this.update[i] = this.head;
+      } // for
+    } // if
+
+    LSLNode<V> newNode = new LSLNode<V>(key, value, newLevel);
+    for (int i = 0; i < newLevel; i++) {
+      newNode.next[i] = this.update[i].next[i];
+      this.update[i].next[i] = newNode;
+    } // for
+    this.size++;
+    return null;
+  } // set(long, V)
+
+  /**
+   * Get the value associated with key.
+   *
+   * @return the value, or null if the key is not in the map.
+   */
+  public V get(long key) {
+    LSLNode<V> node = find(key);
+    if (node != null) {
+      return node.value;
+    } else {
+      return null;
+    }
+  } // get(long)
+
+  /**
+   * Determine how many values are in the map.
+   */
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Determine if a key appears in the map.
+   */
+  public boolean containsKey(long key) {
+    return find(key) != null;
+  } // containsKey(long)
+
+  /**
+   * Remove the value with the given key.
+   *
+   * @return The associated value (or null, if there is no associated value).
+   */
+  public V remove(long key) {
+    LSLNode<V> current = findPredecessors(key).next[0];
+    if (current == null || current.key != key) {
+      return null;
+    } // if
+
+    // Remove the element and rearrange pointers
+    for (int i = 0; i < current.next.length; i++) {
+      this.update[i].next[i] = current.next[i];
+    } // for
+    this.size--;
+    return current.value;
+  } // remove(long)
+
+  /**
+   * Get an iterator for all of the keys in the map, in increasing order.
+   */
+  public PrimitiveIterator.OfLong keys() {
+    return new PrimitiveIterator.OfLong() {
+      LSLNode<V> next = LongSkipList.this.head.next[0];
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      } // hasNext()
+
+      @Override
+      public long nextLong() {
+        if (this.next == null) {
+          throw new NoSuchElementException();
+        }
+        long key = this.next.key;
+        this.next = this.next.next[0];
+        return key;
+      } // nextLong()
+    };
+  } // keys()
+
+  /**
+   * Get an iterator for all of the values in the map, in key order.
+   */
+  public Iterator<V> values() {
+    return new Iterator<V>() {
+      LSLNode<V> next = LongSkipList.this.head.next[0];
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      } // hasNext()
+
+      @Override
+      public V next() {
+        if (this.next == null) {
+          throw new NoSuchElementException();
+        }
+        V value = this.next.value;
+        this.next = this.next.next[0];
+        return value;
+      } // next()
+    };
+  } // values()
+
+  /**
+   * Apply a function to each key/value pair, in key order.
+   */
+  public void forEach(LongBiConsumer<? super V> action) {
+    for (LSLNode<V> node = this.head.next[0]; node != null; node = node.next[0]) {
+      action.accept(node.key, node.value);
+    } // for
+  } // forEach(LongBiConsumer)
+
+  /**
+   * Make the heights of new nodes repeatable: two lists seeded alike and given the same
+   * operations end up with the same shape.
+   */
+  public void seed(long seed) {
+    this.levels = LevelGenerator.seeded(this.prob, seed);
+  } // seed(long)
+
+  /**
+   * Something that takes a long key and a value.
+   */
+  public interface LongBiConsumer<V> {
+    void accept(long key, V value);
+  } // interface LongBiConsumer<V>
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Pick a random height for a new node.
+   */
+  int randomHeight() {
+    return this.levels.height(MAX_HEIGHT);
+  } // randomHeight()
+
+  /**
+   * Find the node with the given key.
+   *
+   * @return the node, or null if the key is not in the list.
+   */
+  LSLNode<V> find(long key) {
+    LSLNode<V> current = this.head;
+    for (int i = this.height - 1; i >= 0; i--) {
+      while (current.next[i] != null && current.next[i].key < key) {
+        current = current.next[i];
+      } // while
+    } // for
+    current = current.next[0];
+    if (current != null && current.key == key) {
+      return current;
+    } // if
+    return null;
+  } // find(long)
+
+  /**
+   * Find the last node on each level whose key is less than key, storing them in update.
+   *
+   * @return the predecessor on level 0.
+   */
+  LSLNode<V> findPredecessors(long key) {
+    LSLNode<V> current = this.head;
+    for (int i = this.height - 1; i >= 0; i--) {
+      while (current.next[i] != null && current.next[i].key < key) {
+        current = current.next[i];
+      } // while
+      this.update[i] = current;
+    } // for
+    return current;
+  } // findPredecessors(long)
+
+} // class LongSkipList
+
+
+/**
+ * Nodes in a LongSkipList.
+ */
+class LSLNode<V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key.
+   */
+  long key;
+
+  /**
+   * The value.
+   */
+  V value;
+
+  /**
+   * Pointers to the next nodes.
+   */
+  LSLNode<V>[] next;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key and value.
+   */
+  public LSLNode(long key, V value, int n) {
+    this.key = key;
+    this.value = value;
+    this.next = links(n);
+  } // LSLNode(long, V, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Create an array of n null forward pointers.
+   */
+  @SuppressWarnings("unchecked")
+  static <V> LSLNode<V>[] links(int n) {
+    return (LSLNode<V>[]) new LSLNode<?>[n];
+  } // links(int)
+
+} // LSLNode<V>
@@ -0,0 +1,58 @@
+import java.util.Random;
+
+/**
+ * Compare LongSkipList with a SkipList of boxed Long keys, for memory per entry and lookups.
+ *
+ * Usage: java LongSkipListBenchmark [size]
+ */
+public class LongSkipListBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    long[] keys = new long[n];
+    Random random = new Random(n);
+    for (int i = 0; i < n; i++) {
+      keys[i] = random.nextLong();
+    } // for
+    String value = "value";
+
+    // Memory per entry, measured as growth of the heap after a full collection
+    long before = usedHeap();
+    LongSkipList<String> longs = new LongSkipList<String>();
+    for (long key : keys) {
+      longs.set(key, value);
+    } // for
+    long longBytes = usedHeap() - before;
+    before = usedHeap();
+    SkipList<Long, String> boxed = new SkipList<Long, String>((a, b) -> Long.compare(a, b));
+    for (long key : keys) {
+      boxed.set(key, value);
+    } // for
+    long boxedBytes = usedHeap() - before;
+    System.out.printf("bytes/entry: LongSkipList %.1f, SkipList<Long> %.1f%n",
+        (double) longBytes / n, (double) boxedBytes / n);
+
+    // Lookups. The boxed run boxes its key on each call, as a caller holding a long would.
+    SkipListBenchmark.header();
+    SkipListBenchmark.measure("LongSkipList n=" + n + " get-hit", SkipListBenchmark.OPS,
+        () -> (i) -> SkipListBenchmark.consume(longs.get(keys[i % n])));
+    SkipListBenchmark.measure("SkipList<Long> n=" + n + " get-hit", SkipListBenchmark.OPS,
+        () -> (i) -> SkipListBenchmark.consume(boxed.get(keys[i % n])));
+    SkipListBenchmark.measure("LongSkipList n=" + n + " get-miss", SkipListBenchmark.OPS,
+        () -> (i) -> SkipListBenchmark.consume(longs.get(keys[i % n] + 1)));
+    SkipListBenchmark.measure("SkipList<Long> n=" + n + " get-miss", SkipListBenchmark.OPS,
+        () -> (i) -> SkipListBenchmark.consume(boxed.get(keys[i % n] + 1)));
+  } // main(String[])
+
+  /**
+   * Determine how much heap is in use after a full collection.
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    } // for
+    return runtime.totalMemory() - runtime.freeMemory();
+  } // usedHeap()
+
+} // class LongSkipListBenchmark
@@ -0,0 +1,113 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Some tests of skip lists with long keys.
+ */
+public class LongSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A list of longs for tests.
+   */
+  LongSkipList<String> longs;
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Set up everything.
+   */
+  @BeforeEach
+  public void setup() {
+    this.longs = new LongSkipList<String>();
+  } // setup
+
+  /**
+   * Check that the list holds exactly what the oracle holds, in the same order.
+   */
+  void check(TreeMap<Long, String> expected) {
+    assertEquals(expected.size(), longs.size());
+    PrimitiveIterator.OfLong kit = longs.keys();
+    Iterator<String> vit = longs.values();
+    for (Map.Entry<Long, String> entry : expected.entrySet()) {
+      assertEquals((long) entry.getKey(), kit.nextLong());
+      assertEquals(entry.getValue(), vit.next());
+    } // for
+    assertFalse(kit.hasNext());
+    assertFalse(vit.hasNext());
+  } // check(TreeMap<Long, String>)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Keys at the extremes, which would overflow a subtraction-based comparison.
+   */
+  @Test
+  public void extremeKeysTest() {
+    setup();
+    longs.set(Long.MAX_VALUE, "max");
+    longs.set(Long.MIN_VALUE, "min");
+    longs.set(0, "zero");
+    assertEquals("min", longs.get(Long.MIN_VALUE));
+    assertEquals("max", longs.get(Long.MAX_VALUE));
+    assertNull(longs.get(1));
+    assertEquals(Long.MIN_VALUE, longs.keys().nextLong());
+    assertEquals("zero", longs.remove(0));
+    assertFalse(longs.containsKey(0));
+    assertEquals(2, longs.size());
+  } // extremeKeysTest()
+
+  /**
+   * Random sets and removes, checked against a TreeMap.
+   */
+  @Test
+  public void randomTest() {
+    setup();
+    TreeMap<Long, String> expected = new TreeMap<Long, String>();
+    for (int i = 0; i < 5000; i++) {
+      long key = random.nextInt(1000) - 500;
+      if (random.nextBoolean()) {
+        assertEquals(expected.put(key, "v" + i), longs.set(key, "v" + i));
+      } else {
+        assertEquals(expected.remove(key), longs.remove(key));
+      } // if/else
+      assertEquals(expected.containsKey(key), longs.containsKey(key));
+    } // for
+    check(expected);
+  } // randomTest()
+
+  /**
+   * Lists seeded alike pick the same heights, and never pass the limit.
+   */
+  @Test
+  public void seedTest() {
+    LongSkipList<String> a = new LongSkipList<String>();
+    LongSkipList<String> b = new LongSkipList<String>();
+    a.seed(42);
+    b.seed(42);
+    for (int i = 0; i < 10000; i++) {
+      int height = a.randomHeight();
+      assertEquals(height, b.randomHeight());
+      assertTrue(height >= 1 && height <= LongSkipList.MAX_HEIGHT);
+    } // for
+  } // seedTest()
+
+} // class LongSkipListTests
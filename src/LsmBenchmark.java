@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Compare ingesting random keys into an LsmSkipList with a SkipList that stops the world to save
+ * itself whenever it reaches the same threshold. Reports writes per second and the longest
+ * single write, then lookups per second.
+ *
+ * Usage: java LsmBenchmark [size] [threshold]
+ */
+public class LsmBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 2000000;
+    int threshold = (args.length > 1) ? Integer.parseInt(args[1]) : 200000;
+    for (int round = 0; round < 3; round++) {
+      Path dir = Files.createTempDirectory("skiplist");
+      try {
+        // Stop the world: save the whole list each time it grows by threshold
+        Random random = new Random(round);
+        SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> i - j);
+        long worst = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+          long before = System.nanoTime();
+          list.set(random.nextInt(), i);
+          if ((i + 1) % threshold == 0) {
+            try (FileChannel out = FileChannel.open(dir.resolve("snapshot"),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+              list.save(out, Codec.INTEGER, Codec.INTEGER, false);
+              out.force(true);
+            } // try
+          } // if
+          worst = Math.max(worst, System.nanoTime() - before);
+        } // for
+        report("SkipList + save", n, System.nanoTime() - start, worst);
+        Files.delete(dir.resolve("snapshot"));
+
+        random = new Random(round);
+        LsmSkipList<Integer, Integer> lsm = new LsmSkipList<Integer, Integer>(dir,
+            (i, j) -> Integer.compare(i, j), Codec.INTEGER, Codec.INTEGER, threshold);
+        worst = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+          long before = System.nanoTime();
+          lsm.put(random.nextInt(), i);
+          worst = Math.max(worst, System.nanoTime() - before);
+        } // for
+        report("LsmSkipList", n, System.nanoTime() - start, worst);
+        lsm.flush();
+
+        random = new Random(round);
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < n / 10; i++) {
+          found += (lsm.get(random.nextInt()) != null) ? 1 : 0;
+        } // for
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %d segments  %9.0f gets/s (%d found)%n", lsm.segments().size(),
+            n / 10 / elapsed, found);
+        lsm.close();
+      } finally {
+        DurableWriteBenchmark.delete(dir);
+      } // try/finally
+    } // for
+  } // main(String[])
+
+  /**
+   * Print writes per second and the longest write.
+   */
+  static void report(String name, int n, long nanos, long worst) {
+    System.out.printf("%-16s n=%d  %9.0f writes/s  longest write: %8.2f ms%n", name, n,
+        n / (nanos / 1e9), worst / 1e6);
+  } // report(String, int, long, long)
+
+} // class LsmBenchmark
@@ -0,0 +1,675 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * A log-structured map: writes go to an in-memory skip list (the memtable), and full memtables
+ * are written out, in key order, as immutable segment files.
+ *
+ * Once the active memtable holds threshold entries it is frozen and handed to a background
+ * thread to flush, and a fresh one takes new writes, so writers never wait for the disk unless a
+ * second memtable fills before the first is flushed. Lookups consult the active memtable, then
+ * the one being flushed, then the segments from newest to oldest; the first that knows the key
+ * answers. Removal writes a tombstone, which hides older entries until a merge drops it.
+ *
+ * When there are more than MERGE_SEGMENTS segments, the background thread merges them all into
+ * one. Since the merge covers the oldest segment, it can drop tombstones. The merged segment
+ * takes the number of the newest one it replaces and records the oldest, so if we crash before
+ * deleting the old files, opening the directory recognizes and deletes them.
+ *
+ * The memtables are not logged; entries not yet flushed are lost in a crash. (Pair this with a
+ * DurableSkipList's log if they matter.) close flushes everything.
+ */
+public class LsmSkipList<K, V> implements SimpleMap<K, V>, AutoCloseable {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * How many segments we allow before merging them.
+   */
+  static final int MERGE_SEGMENTS = 4;
+
+  /**
+   * Marks an entry as removed.
+   */
+  static final Object TOMBSTONE = new Object();
+
+  /**
+   * What a lookup gives when a memtable or segment does not know the key.
+   */
+  static final Object MISSING = new Object();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The directory that holds the segments.
+   */
+  final Path dir;
+
+  /**
+   * How we order keys.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * How we encode keys.
+   */
+  final Codec<K> keys;
+
+  /**
+   * How we encode values.
+   */
+  final Codec<V> values;
+
+  /**
+   * How many entries a memtable holds before we flush it.
+   */
+  final int threshold;
+
+  /**
+   * The memtable that takes writes. Values are V or TOMBSTONE.
+   */
+  SkipList<K, Object> active;
+
+  /**
+   * The memtable being flushed, or null if none is.
+   */
+  SkipList<K, Object> flushing;
+
+  /**
+   * The segments, newest first. Never changed in place, only replaced.
+   */
+  List<Segment<K, V>> segments;
+
+  /**
+   * The segments the last merge replaced. Their files are gone, but we leave them open for
+   * lookups and iterations already under way, until the next merge or close.
+   */
+  List<Segment<K, V>> retired = Collections.emptyList();
+
+  /**
+   * The number the next segment gets.
+   */
+  long nextNumber;
+
+  /**
+   * What went wrong in the background, if anything.
+   */
+  IOException failure;
+
+  /**
+   * The most recently queued merge, or null if we have never queued one.
+   */
+  Future<?> merging;
+
+  /**
+   * Flushes and merges, one at a time.
+   */
+  final ExecutorService background = Executors.newSingleThreadExecutor((task) -> {
+    Thread thread = new Thread(task, "LsmSkipList");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Open the segments in dir, creating the directory if need be.
+   */
+  public LsmSkipList(Path dir, Comparator<K> comparator, Codec<K> keys, Codec<V> values,
+      int threshold) throws IOException {
+    this.dir = dir;
+    this.comparator = comparator;
+    this.keys = keys;
+    this.values = values;
+    this.threshold = threshold;
+    this.active = new SkipList<K, Object>(comparator);
+    Files.createDirectories(dir);
+    ArrayList<Segment<K, V>> found = new ArrayList<Segment<K, V>>();
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        long number = Segment.number(file);
+        if (Segment.temporary(file)) {
+          // A flush or merge that never finished
+          Files.delete(file);
+        } else if (number >= 0) {
+          found.add(new Segment<K, V>(file, number, comparator, keys, values));
+        } // if
+      } // for
+    } // try
+    found.sort((s, t) -> Long.compare(t.number, s.number));
+    // Drop segments that a merge replaced
+    ArrayList<Segment<K, V>> live = new ArrayList<Segment<K, V>>();
+    long covered = Long.MAX_VALUE;
+    boolean forced = false;
+    for (Segment<K, V> segment : found) {
+      if (segment.number >= covered) {
+        // The merged segment we found may not have reached the disk yet
+        if (!forced) {
+          SkipList.forceDirectory(dir);
+          forced = true;
+        } // if
+        segment.delete();
+      } else {
+        live.add(segment);
+        covered = segment.base;
+      } // if/else
+    } // for
+    this.segments = Collections.unmodifiableList(live);
+    this.nextNumber = live.isEmpty() ? 1 : live.get(0).number + 1;
+  } // LsmSkipList(Path, Comparator<K>, Codec<K>, Codec<V>, int)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value for key and return the old one. Finding the old value may read the segments;
+   * use put to write blindly.
+   */
+  @Override
+  public synchronized V set(K key, V value) {
+    V result = get(key);
+    put(key, value);
+    return result;
+  } // set(K, V)
+
+  @Override
+  public V get(K key) {
+    Object found = lookup(key);
+    return (found == MISSING || found == TOMBSTONE) ? null : cast(found);
+  } // get(K)
+
+  /**
+   * Count the entries. This merges every segment, so it takes time linear in their size.
+   */
+  @Override
+  public int size() {
+    int result = 0;
+    for (Iterator<Map.Entry<K, Object>> it = entries(); it.hasNext(); it.next()) {
+      result++;
+    } // for
+    return result;
+  } // size()
+
+  @Override
+  public boolean containsKey(K key) {
+    Object found = lookup(key);
+    return found != MISSING && found != TOMBSTONE;
+  } // containsKey(K)
+
+  /**
+   * Remove key and return its old value. Finding the old value may read the segments; use
+   * delete to remove blindly.
+   */
+  @Override
+  public synchronized V remove(K key) {
+    V result = get(key);
+    delete(key);
+    return result;
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    Iterator<Map.Entry<K, Object>> entries = entries();
+    return new Iterator<K>() {
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      } // hasNext()
+
+      @Override
+      public K next() {
+        return entries.next().getKey();
+      } // next()
+    };
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    Iterator<Map.Entry<K, Object>> entries = entries();
+    return new Iterator<V>() {
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      } // hasNext()
+
+      @Override
+      public V next() {
+        return cast(entries.next().getValue());
+      } // next()
+    };
+  } // values()
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Iterator<Map.Entry<K, Object>> it = entries(); it.hasNext(); ) {
+      Map.Entry<K, Object> entry = it.next();
+      action.accept(entry.getKey(), cast(entry.getValue()));
+    } // for
+  } // forEach(BiConsumer)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Set the value for key without finding the old one.
+   */
+  public synchronized void put(K key, V value) {
+    write(key, value);
+  } // put(K, V)
+
+  /**
+   * Remove key without finding its old value.
+   */
+  public synchronized void delete(K key) {
+    write(key, TOMBSTONE);
+  } // delete(K)
+
+  /**
+   * Flush the active memtable now, and wait for it and any merge it starts to finish.
+   */
+  public void flush() throws IOException {
+    synchronized (this) {
+      if (this.active.size() > 0) {
+        rotate();
+      } // if
+    } // synchronized
+    try {
+      // The executor runs tasks in order, so this waits for everything before it
+      this.background.submit(() -> { }).get();
+      // A flush we just waited for may have queued a merge behind us
+      Future<?> merge;
+      synchronized (this) {
+        merge = this.merging;
+      } // synchronized
+      if (merge != null) {
+        merge.get();
+      } // if
+    } catch (Exception e) {
+      throw new IOException("flush interrupted", e);
+    } // try/catch
+    synchronized (this) {
+      check();
+    } // synchronized
+  } // flush()
+
+  /**
+   * Flush everything and close the segments. The map may not be used afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+    this.background.shutdown();
+    try {
+      // Let anything still running finish with the segments before we close them
+      this.background.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      throw new IOException("close interrupted", e);
+    } // try/catch
+    synchronized (this) {
+      for (Segment<K, V> segment : this.segments) {
+        segment.channel.close();
+      } // for
+      for (Segment<K, V> segment : this.retired) {
+        segment.channel.close();
+      } // for
+    } // synchronized
+  } // close()
+
+  /**
+   * Get the segments, newest first.
+   */
+  public synchronized List<Segment<K, V>> segments() {
+    return this.segments;
+  } // segments()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Cast a value we stored.
+   */
+  @SuppressWarnings("unchecked")
+  V cast(Object value) {
+    return (V) value;
+  } // cast(Object)
+
+  /**
+   * Write key to the active memtable, starting a flush if it is full.
+   */
+  void write(K key, Object value) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    check();
+    this.active.set(key, value);
+    if (this.active.size() >= this.threshold) {
+      rotate();
+    } // if
+  } // write(K, Object)
+
+  /**
+   * Freeze the active memtable and queue it to be flushed, waiting first for the previous one.
+   */
+  void rotate() {
+    boolean interrupted = false;
+    while (this.flushing != null) {
+      check();
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      } // try/catch
+    } // while
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    } // if
+    this.flushing = this.active;
+    this.active = new SkipList<K, Object>(this.comparator);
+    long number = this.nextNumber++;
+    this.background.execute(() -> flush(number));
+  } // rotate()
+
+  /**
+   * Write the frozen memtable to a new segment. Runs in the background.
+   */
+  void flush(long number) {
+    SkipList<K, Object> memtable;
+    synchronized (this) {
+      memtable = this.flushing;
+    } // synchronized
+    try {
+      Segment<K, V> segment = Segment.write(this.dir, number, number, memtable.nodes(),
+          this.comparator, this.keys, this.values);
+      synchronized (this) {
+        ArrayList<Segment<K, V>> list = new ArrayList<Segment<K, V>>();
+        list.add(segment);
+        list.addAll(this.segments);
+        this.segments = Collections.unmodifiableList(list);
+        this.flushing = null;
+        notifyAll();
+        if (list.size() > MERGE_SEGMENTS) {
+          this.merging = this.background.submit(this::merge);
+        } // if
+      } // synchronized
+    } catch (IOException | RuntimeException e) {
+      fail(e);
+    } // try/catch
+  } // flush(long)
+
+  /**
+   * Merge all the segments into one. Runs in the background.
+   */
+  void merge() {
+    List<Segment<K, V>> inputs;
+    synchronized (this) {
+      inputs = this.segments;
+    } // synchronized
+    if (inputs.size() <= 1) {
+      return;
+    } // if
+    ArrayList<Iterator<? extends Map.Entry<K, Object>>> sources =
+        new ArrayList<Iterator<? extends Map.Entry<K, Object>>>();
+    for (Segment<K, V> segment : inputs) {
+      sources.add(segment.scan());
+    } // for
+    Segment<K, V> newest = inputs.get(0);
+    Segment<K, V> oldest = inputs.get(inputs.size() - 1);
+    try {
+      // The merge covers the oldest segment, so nothing is left for tombstones to hide
+      Segment<K, V> merged = Segment.write(this.dir, newest.number, oldest.base,
+          new Merge<K>(sources, this.comparator, true), this.comparator, this.keys, this.values);
+      synchronized (this) {
+        // Keep any segments flushed while we merged
+        ArrayList<Segment<K, V>> list = new ArrayList<Segment<K, V>>();
+        for (Segment<K, V> segment : this.segments) {
+          if (segment.number > newest.number) {
+            list.add(segment);
+          } // if
+        } // for
+        list.add(merged);
+        this.segments = Collections.unmodifiableList(list);
+        // Close the segments the last merge replaced; these stay open for current readers
+        for (Segment<K, V> segment : this.retired) {
+          segment.channel.close();
+        } // for
+        this.retired = inputs;
+      } // synchronized
+      // The merged segment has already replaced the newest input's file
+      for (Segment<K, V> segment : inputs.subList(1, inputs.size())) {
+        Files.deleteIfExists(segment.file);
+      } // for
+    } catch (IOException | RuntimeException e) {
+      fail(e);
+    } // try/catch
+  } // merge()
+
+  /**
+   * Record a background failure. Writes fail from then on.
+   */
+  synchronized void fail(Exception e) {
+    this.failure = (e instanceof IOException) ? (IOException) e
+        : new IOException("background flush or merge failed", e);
+    notifyAll();
+  } // fail(Exception)
+
+  /**
+   * Complain if the background thread has failed.
+   */
+  void check() {
+    if (this.failure != null) {
+      throw new UncheckedIOException("flush or merge failed", this.failure);
+    } // if
+  } // check()
+
+  /**
+   * Find what we know about key: its value, TOMBSTONE, or MISSING.
+   */
+  Object lookup(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    while (true) {
+      List<Segment<K, V>> segments;
+      synchronized (this) {
+        Object found = lookup(this.active, key);
+        if (found == MISSING && this.flushing != null) {
+          found = lookup(this.flushing, key);
+        } // if
+        if (found != MISSING) {
+          return found;
+        } // if
+        segments = this.segments;
+      } // synchronized
+      try {
+        for (Segment<K, V> segment : segments) {
+          Object found = segment.get(key);
+          if (found != MISSING) {
+            return found;
+          } // if
+        } // for
+        return MISSING;
+      } catch (ClosedChannelException e) {
+        // Two merges replaced a segment under us; try again with the new ones
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } // try/catch
+    } // while
+  } // lookup(K)
+
+  /**
+   * Find what a memtable knows about key.
+   */
+  Object lookup(SkipList<K, Object> memtable, K key) {
+    SLNode<K, Object> node = memtable.find(key);
+    return (node == null) ? MISSING : node.value;
+  } // lookup(SkipList<K, Object>, K)
+
+  /**
+   * Iterate every live entry, in key order. The active memtable is copied; the rest are
+   * immutable.
+   */
+  Iterator<Map.Entry<K, Object>> entries() {
+    ArrayList<Iterator<? extends Map.Entry<K, Object>>> sources =
+        new ArrayList<Iterator<? extends Map.Entry<K, Object>>>();
+    synchronized (this) {
+      ArrayList<Map.Entry<K, Object>> copy = new ArrayList<Map.Entry<K, Object>>();
+      for (SLNode<K, Object> node = this.active.head.next[0]; node != null; node = node.next[0]) {
+        copy.add(new AbstractMap.SimpleImmutableEntry<K, Object>(node.key, node.value));
+      } // for
+      sources.add(copy.iterator());
+      if (this.flushing != null) {
+        sources.add(this.flushing.nodes());
+      } // if
+      for (Segment<K, V> segment : this.segments) {
+        sources.add(segment.scan());
+      } // for
+    } // synchronized
+    return new Merge<K>(sources, this.comparator, true);
+  } // entries()
+
+} // class LsmSkipList<K, V>
+
+/**
+ * A merge of sorted sources of entries. When several sources have the same key, the one that
+ * comes first in the list wins.
+ */
+class Merge<K> implements Iterator<Map.Entry<K, Object>> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The sources.
+   */
+  final List<Iterator<? extends Map.Entry<K, Object>>> sources;
+
+  /**
+   * The next entry from each source that has one, by key and then by source.
+   */
+  final PriorityQueue<Head<K>> heads;
+
+  /**
+   * How we order keys.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * Whether to skip tombstones.
+   */
+  final boolean live;
+
+  /**
+   * The next entry to return, or null if we need to find it.
+   */
+  Map.Entry<K, Object> next;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Merge sources, newest first, keeping tombstones unless live is true.
+   */
+  Merge(List<Iterator<? extends Map.Entry<K, Object>>> sources, Comparator<K> comparator,
+      boolean live) {
+    this.sources = sources;
+    this.comparator = comparator;
+    this.live = live;
+    this.heads = new PriorityQueue<Head<K>>(Math.max(1, sources.size()), (a, b) -> {
+      int order = comparator.compare(a.entry.getKey(), b.entry.getKey());
+      return (order != 0) ? order : Integer.compare(a.source, b.source);
+    });
+    for (int i = 0; i < sources.size(); i++) {
+      advance(i);
+    } // for
+  } // Merge(List, Comparator<K>, boolean)
+
+  // +------------------+--------------------------------------------
+  // | Iterator methods |
+  // +------------------+
+
+  @Override
+  public boolean hasNext() {
+    while (this.next == null && !this.heads.isEmpty()) {
+      Head<K> first = this.heads.poll();
+      advance(first.source);
+      // Older entries for the same key are hidden
+      while (!this.heads.isEmpty() && this.comparator.compare(
+          this.heads.peek().entry.getKey(), first.entry.getKey()) == 0) {
+        advance(this.heads.poll().source);
+      } // while
+      if (!this.live || first.entry.getValue() != LsmSkipList.TOMBSTONE) {
+        this.next = first.entry;
+      } // if
+    } // while
+    return this.next != null;
+  } // hasNext()
+
+  @Override
+  public Map.Entry<K, Object> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    } // if
+    Map.Entry<K, Object> result = this.next;
+    this.next = null;
+    return result;
+  } // next()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Queue the next entry from source i, if it has one.
+   */
+  void advance(int i) {
+    Iterator<? extends Map.Entry<K, Object>> source = this.sources.get(i);
+    if (source.hasNext()) {
+      this.heads.add(new Head<K>(source.next(), i));
+    } // if
+  } // advance(int)
+
+  /**
+   * An entry and the source it came from.
+   */
+  static class Head<K> {
+    final Map.Entry<K, Object> entry;
+    final int source;
+
+    Head(Map.Entry<K, Object> entry, int source) {
+      this.entry = entry;
+      this.source = source;
+    } // Head(Map.Entry, int)
+  } // class Head<K>
+
+} // class Merge<K>
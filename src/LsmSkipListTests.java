@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of log-structured skip lists.
+ */
+public class LsmSkipListTests {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * How we order keys.
+   */
+  static final Comparator<Integer> ORDER = (i, j) -> Integer.compare(i, j);
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Open a map of ints in a directory.
+   */
+  static LsmSkipList<Integer, String> open(Path dir, int threshold) throws IOException {
+    return new LsmSkipList<Integer, String>(dir, ORDER, Codec.INTEGER, Codec.STRING, threshold);
+  } // open(Path, int)
+
+  /**
+   * Make random changes to a map and to the expected entries.
+   */
+  static void change(LsmSkipList<Integer, String> ints, TreeMap<Integer, String> expected,
+      Random random, int n) {
+    for (int i = 0; i < n; i++) {
+      int key = random.nextInt(500);
+      if (random.nextInt(4) == 0) {
+        assertEquals(expected.remove(key), ints.remove(key));
+      } else {
+        String value = (random.nextInt(20) == 0) ? null : "v" + i;
+        assertEquals(expected.put(key, value), ints.set(key, value));
+      } // if/else
+    } // for
+  } // change(LsmSkipList, TreeMap, Random, int)
+
+  /**
+   * Check every key, present or not, and the entries in order.
+   */
+  static void check(TreeMap<Integer, String> expected, LsmSkipList<Integer, String> ints) {
+    for (int key = -1; key <= 500; key++) {
+      assertEquals(expected.containsKey(key), ints.containsKey(key));
+      assertEquals(expected.get(key), ints.get(key));
+    } // for
+    SimpleMapTests.check(expected, ints);
+  } // check(TreeMap, LsmSkipList)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Entries spread over memtables and segments read back correctly, before and after a restart.
+   */
+  @Test
+  public void reopenTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      Random random = new Random(0);
+      TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+      LsmSkipList<Integer, String> ints = open(dir, 64);
+      change(ints, expected, random, 2000);
+      check(expected, ints);
+      ints.close();
+
+      ints = open(dir, 64);
+      check(expected, ints);
+      change(ints, expected, random, 500);
+      check(expected, ints);
+      ints.close();
+    } finally {
+      DurableSkipListTests.delete(dir);
+    } // try/finally
+  } // reopenTest()
+
+  /**
+   * Merges keep the number of segments down, drop tombstones, and delete the old files.
+   */
+  @Test
+  public void mergeTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      LsmSkipList<Integer, String> ints = open(dir, 10);
+      for (int i = 0; i < 400; i++) {
+        ints.put(i, "v" + i);
+      } // for
+      for (int i = 0; i < 400; i += 2) {
+        ints.delete(i);
+      } // for
+      ints.flush();
+      List<Segment<Integer, String>> segments = ints.segments();
+      assertTrue(segments.toString(), segments.size() <= LsmSkipList.MERGE_SEGMENTS);
+      try (Stream<Path> files = Files.list(dir)) {
+        assertEquals(segments.size(), files.count());
+      } // try
+      assertNull(ints.get(10));
+      assertEquals("v11", ints.get(11));
+      assertEquals(200, ints.size());
+      ints.close();
+    } finally {
+      DurableSkipListTests.delete(dir);
+    } // try/finally
+  } // mergeTest()
+
+  /**
+   * Segments left behind by a merge that crashed before deleting them are ignored and deleted,
+   * so entries it dropped do not come back.
+   */
+  @Test
+  public void interruptedMergeTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      ArrayList<Map.Entry<Integer, Object>> old = new ArrayList<Map.Entry<Integer, Object>>();
+      old.add(Map.entry(1, "one"));
+      old.add(Map.entry(2, "two"));
+      Segment.write(dir, 1, 1, old.iterator(), ORDER, Codec.INTEGER, Codec.STRING)
+          .channel.close();
+      // Segment 2 removed key 1; the merge of 1 and 2 replaced it
+      ArrayList<Map.Entry<Integer, Object>> merged = new ArrayList<Map.Entry<Integer, Object>>();
+      merged.add(Map.entry(2, "two"));
+      Segment.write(dir, 2, 1, merged.iterator(), ORDER, Codec.INTEGER, Codec.STRING)
+          .channel.close();
+      LsmSkipList<Integer, String> ints = open(dir, 10);
+      assertNull(ints.get(1));
+      assertEquals("two", ints.get(2));
+      assertEquals(1, ints.segments().size());
+      assertFalse(Files.exists(dir.resolve(Segment.name(1))));
+      ints.close();
+    } finally {
+      DurableSkipListTests.delete(dir);
+    } // try/finally
+  } // interruptedMergeTest()
+
+  /**
+   * flush waits for the merge it starts, so afterwards only the merged segment is left.
+   */
+  @Test
+  public void flushTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      LsmSkipList<Integer, String> ints = open(dir, 1000);
+      for (int i = 0; i <= LsmSkipList.MERGE_SEGMENTS; i++) {
+        ints.put(i, "v" + i);
+        ints.flush();
+      } // for
+      assertEquals(1, ints.segments().size());
+      try (Stream<Path> files = Files.list(dir)) {
+        assertEquals(1, files.count());
+      } // try
+      ints.close();
+    } finally {
+      DurableSkipListTests.delete(dir);
+    } // try/finally
+  } // flushTest()
+
+  /**
+   * Opening a directory deletes segments that were still being written when we stopped.
+   */
+  @Test
+  public void staleTempTest() throws IOException {
+    Path dir = Files.createTempDirectory("skiplist");
+    try {
+      Path temp = dir.resolve(Segment.name(3) + ".tmp");
+      Files.write(temp, new byte[] {1, 2, 3});
+      LsmSkipList<Integer, String> ints = open(dir, 10);
+      assertFalse(Files.exists(temp));
+      assertEquals(0, ints.segments().size());
+      ints.close();
+    } finally {
+      DurableSkipListTests.delete(dir);
+    } // try/finally
+  } // staleTempTest()
+
+} // class LsmSkipListTests
@@ -0,0 +1,386 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * An off-heap skip list kept in a memory-mapped file, so that it survives restarts. Reopening a
+ * cleanly closed file takes constant time; nothing is reloaded through set.
+ *
+ * The file starts with two header slots. Each records the size, height, prob, end of the arena,
+ * and head of the list, plus a sequence number, a clean flag, and a checksum. sync writes the
+ * newer header into the older slot, so a torn header write always leaves the other one intact.
+ * The first change after a sync writes a header with the clean flag off.
+ *
+ * Every node carries a checksum of its level, lengths, key, and value, and nodes are never changed
+ * once written except for their forward pointers: replacing a value builds a new node, later in
+ * the arena. Removing a node stores the complement of its checksum, marking it dead. When a file
+ * that was not closed cleanly is reopened, we don't trust the pointers, since the page holding a
+ * pointer may have reached the disk before the page holding the node it points to. Instead we scan
+ * the records in arena order, which is the order they were written, keep the newest intact record
+ * of each key unless it is dead, and link them up again. A torn record loses only the change that
+ * wrote it; a torn replacement leaves the value it replaced.
+ */
+public class MappedSkipList<K, V> extends OffHeapSkipList<K, V> implements AutoCloseable {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Identifies our files: "SKIPMAPD", unlike the "SKIPLIST" of a saved SkipList.
+   */
+  static final long MAGIC = 0x534b49504d415044L;
+
+  /**
+   * The size of each header slot.
+   */
+  static final int SLOT_BYTES = 64;
+
+  /**
+   * Where the header slots are.
+   */
+  static final long[] SLOTS = {Long.BYTES, Long.BYTES + SLOT_BYTES};
+
+  /**
+   * Where the first record goes.
+   */
+  static final long RECORDS = Long.BYTES + 2 * SLOT_BYTES;
+
+  /**
+   * Where the fields of a header slot are.
+   */
+  static final int H_MAGIC = 0;
+  static final int H_SEQUENCE = 8;
+  static final int H_CHUNK_BITS = 16;
+  static final int H_SIZE = 20;
+  static final int H_HEIGHT = 24;
+  static final int H_CLEAN = 28;
+  static final int H_PROB = 32;
+  static final int H_TOP = 40;
+  static final int H_HEAD = 48;
+  static final int H_CHECKSUM = 56;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The file we map.
+   */
+  FileChannel channel;
+
+  /**
+   * The sequence number of the newest header.
+   */
+  long sequence;
+
+  /**
+   * Whether the newest header says the file is clean.
+   */
+  boolean clean;
+
+  /**
+   * Whether opening the file found damage, or changes that had not been synced, and so had to
+   * rebuild the list.
+   */
+  boolean recovered;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Open the skip list stored in file, or create an empty one if the file is empty or missing.
+   */
+  public MappedSkipList(Path file, Codec<K> keys, Codec<V> values) throws IOException {
+    this(file, keys, values, CHUNK_SIZE);
+  } // MappedSkipList(Path, Codec<K>, Codec<V>)
+
+  /**
+   * Open or create a skip list, using the given chunk size if we create it.
+   */
+  MappedSkipList(Path file, Codec<K> keys, Codec<V> values, int chunkSize) throws IOException {
+    super();
+    this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE);
+    if (this.channel.size() == 0) {
+      init(keys, values, chunkSize);
+      format(RECORDS);
+      this.sequence = 0;
+      sync();
+    } else {
+      open(keys, values);
+    } // if/else
+  } // MappedSkipList(Path, Codec<K>, Codec<V>, int)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public V set(K key, V value) {
+    dirty();
+    return super.set(key, value);
+  } // set(K, V)
+
+  @Override
+  public V remove(K key) {
+    dirty();
+    return super.remove(key);
+  } // remove(K)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Write everything to disk and record a clean header.
+   */
+  public void sync() throws IOException {
+    for (ByteBuffer chunk : this.chunks) {
+      ((MappedByteBuffer) chunk).force();
+    } // for
+    writeHeader(true);
+  } // sync()
+
+  /**
+   * Sync and close the file. The list may not be used afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    sync();
+    this.channel.close();
+    this.chunks.clear();
+  } // close()
+
+  /**
+   * Determine if opening the file had to rebuild the list.
+   */
+  public boolean recovered() {
+    return this.recovered;
+  } // recovered()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  @Override
+  ByteBuffer newChunk(int index) throws IOException {
+    long chunkSize = 1L << this.chunkBits;
+    return this.channel.map(FileChannel.MapMode.READ_WRITE, index * chunkSize, chunkSize);
+  } // newChunk(int)
+
+  @Override
+  void seal(long node) {
+    putInt(node + CHECKSUM, checksum(node));
+  } // seal(long)
+
+  @Override
+  void retire(long node) {
+    putInt(node + CHECKSUM, ~getInt(node + CHECKSUM));
+  } // retire(long)
+
+  @Override
+  boolean overwriteInPlace() {
+    return false;
+  } // overwriteInPlace()
+
+  /**
+   * Note that the file no longer matches its newest header.
+   */
+  void dirty() {
+    if (this.clean) {
+      try {
+        writeHeader(false);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } // try/catch
+    } // if
+  } // dirty()
+
+  /**
+   * Write a new header into the older slot and force it to disk.
+   */
+  void writeHeader(boolean clean) throws IOException {
+    this.sequence++;
+    this.clean = clean;
+    ByteBuffer slot = ByteBuffer.allocate(SLOT_BYTES);
+    slot.putLong(H_MAGIC, MAGIC);
+    slot.putLong(H_SEQUENCE, this.sequence);
+    slot.putInt(H_CHUNK_BITS, this.chunkBits);
+    slot.putInt(H_SIZE, this.size);
+    slot.putInt(H_HEIGHT, this.height);
+    slot.putInt(H_CLEAN, clean ? 1 : 0);
+    slot.putDouble(H_PROB, this.prob);
+    slot.putLong(H_TOP, this.top);
+    slot.putLong(H_HEAD, this.head);
+    slot.putLong(H_CHECKSUM, crc(slot, 0, H_CHECKSUM));
+    this.channel.write(slot, SLOTS[(int) (this.sequence & 1)]);
+    this.channel.force(false);
+  } // writeHeader(boolean)
+
+  /**
+   * Adopt the list in an existing file, recovering it if it was not closed cleanly.
+   */
+  void open(Codec<K> keys, Codec<V> values) throws IOException {
+    // Read the newer of the valid header slots
+    ByteBuffer header = null;
+    for (long position : SLOTS) {
+      ByteBuffer slot = ByteBuffer.allocate(SLOT_BYTES);
+      this.channel.read(slot, position);
+      if (slot.getLong(H_MAGIC) == MAGIC
+          && slot.getLong(H_CHECKSUM) == crc(slot, 0, H_CHECKSUM)
+          && (header == null || slot.getLong(H_SEQUENCE) > header.getLong(H_SEQUENCE))) {
+        header = slot;
+      } // if
+    } // for
+    if (header == null) {
+      throw new IOException("not a skip list file, or both headers are damaged");
+    } // if
+
+    init(keys, values, 1 << header.getInt(H_CHUNK_BITS));
+    this.sequence = header.getLong(H_SEQUENCE);
+    this.clean = header.getInt(H_CLEAN) == 1;
+    this.size = header.getInt(H_SIZE);
+    this.height = header.getInt(H_HEIGHT);
+    this.prob = header.getDouble(H_PROB);
+    this.levels = LevelGenerator.random(this.prob);
+    this.top = header.getLong(H_TOP);
+    this.head = header.getLong(H_HEAD);
+    long chunkSize = 1L << this.chunkBits;
+    long chunkCount = (Math.max(this.channel.size(), this.top) + chunkSize - 1) / chunkSize;
+    for (int i = 0; i < chunkCount; i++) {
+      this.chunks.add(newChunk(i));
+    } // for
+
+    if (!this.clean) {
+      rebuild();
+      this.recovered = true;
+      sync();
+    } // if
+  } // open(Codec<K>, Codec<V>)
+
+  /**
+   * Scan the records in arena order and link up the newest intact record of each key, unless it is
+   * dead. A record whose lengths are damaged can't be stepped over, so we lose the rest of its
+   * chunk.
+   */
+  void rebuild() {
+    // The newest record of each key, or NULL if it is dead, in the order compare uses
+    TreeMap<byte[], Long> newest = new TreeMap<byte[], Long>(Arrays::compareUnsigned);
+    long chunkSize = 1L << this.chunkBits;
+    long node = recordEnd(this.head);
+    long end = node;
+    while (chunkIndex(node) < this.chunks.size()) {
+      if (offset(node) + NEXT > chunkSize || !plausible(node)) {
+        // allocate skipped the rest of this chunk, or nothing more was written; try the next
+        long next = (chunkIndex(node) + 1L) << this.chunkBits;
+        if (offset(node) == 0 || chunkIndex(next) >= this.chunks.size() || !plausible(next)) {
+          break;
+        } // if
+        node = next;
+        continue;
+      } // if
+      int checksum = checksum(node);
+      int stored = getInt(node + CHECKSUM);
+      if (stored == checksum || stored == ~checksum) {
+        byte[] key = getBytes(keyAddress(node), getInt(node + KEY_LENGTH));
+        newest.put(key, (stored == checksum) ? node : NULL);
+      } // if
+      end = recordEnd(node);
+      node = (end + 7) & ~7L;
+    } // while
+
+    long[] last = new long[MAX_HEIGHT];
+    for (int i = 0; i < MAX_HEIGHT; i++) {
+      last[i] = this.head;
+    } // for
+    int count = 0;
+    int tallest = 1;
+    for (Map.Entry<byte[], Long> entry : newest.entrySet()) {
+      node = entry.getValue();
+      if (node == NULL) {
+        continue;
+      } // if
+      int level = getInt(node + LEVEL);
+      for (int i = 0; i < level; i++) {
+        setNext(last[i], i, node);
+        last[i] = node;
+      } // for
+      tallest = Math.max(tallest, level);
+      count++;
+    } // for
+    for (int i = 0; i < MAX_HEIGHT; i++) {
+      setNext(last[i], i, NULL);
+    } // for
+    this.size = count;
+    this.height = tallest;
+    // Round up so that the next record is aligned, as allocate expects
+    this.top = Math.max(this.top, (end + 7) & ~7L);
+  } // rebuild()
+
+  /**
+   * Determine if a node's header describes a record that fits in its chunk.
+   */
+  boolean plausible(long node) {
+    long chunkSize = 1L << this.chunkBits;
+    if (offset(node) + NEXT > chunkSize) {
+      return false;
+    } // if
+    int level = getInt(node + LEVEL);
+    int klen = getInt(node + KEY_LENGTH);
+    int vlen = getInt(node + VALUE_LENGTH);
+    return level >= 1 && level <= MAX_HEIGHT && klen >= 0 && vlen >= -1
+        && offset(node) + NEXT + (long) level * Long.BYTES + klen + Math.max(vlen, 0)
+            <= chunkSize;
+  } // plausible(long)
+
+  /**
+   * Get the address of a node's key bytes.
+   */
+  long keyAddress(long node) {
+    return node + NEXT + getInt(node + LEVEL) * Long.BYTES;
+  } // keyAddress(long)
+
+  /**
+   * Get the address just past a node's record.
+   */
+  long recordEnd(long node) {
+    return keyAddress(node) + (long) getInt(node + KEY_LENGTH)
+        + Math.max(getInt(node + VALUE_LENGTH), 0);
+  } // recordEnd(long)
+
+  /**
+   * Compute the checksum of a node's level, lengths, key, and value.
+   */
+  int checksum(long node) {
+    CRC32 crc = new CRC32();
+    ByteBuffer chunk = chunk(node).duplicate();
+    int offset = offset(node);
+    // Everything before the checksum itself
+    chunk.limit(offset + CHECKSUM).position(offset);
+    crc.update(chunk);
+    int keyOffset = offset(keyAddress(node));
+    chunk.limit(offset + (int) (recordEnd(node) - node)).position(keyOffset);
+    crc.update(chunk);
+    return (int) crc.getValue();
+  } // checksum(long)
+
+  /**
+   * Compute the CRC of part of a buffer.
+   */
+  static long crc(ByteBuffer buffer, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), buffer.arrayOffset() + offset, length);
+    return crc.getValue();
+  } // crc(ByteBuffer, int, int)
+
+} // class MappedSkipList
@@ -0,0 +1,50 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compare the time to reopen a MappedSkipList with the time to rebuild a map by calling set for
+ * every entry, as we do at startup today.
+ *
+ * Usage: java MappedSkipListBenchmark [size]
+ */
+public class MappedSkipListBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    Path file = Files.createTempFile("skiplist", ".map");
+    try {
+      MappedSkipList<Integer, String> ints =
+          new MappedSkipList<Integer, String>(file, Codec.INTEGER, Codec.STRING);
+      for (int i = 0; i < n; i++) {
+        ints.set(i, "value " + i);
+      } // for
+      ints.close();
+      System.out.printf("n=%d, file %d MB%n", n, Files.size(file) >> 20);
+
+      long start = System.nanoTime();
+      ints = new MappedSkipList<Integer, String>(file, Codec.INTEGER, Codec.STRING);
+      long reopen = System.nanoTime() - start;
+      System.out.printf("reopen after close:   %10.1f ms%n", reopen / 1e6);
+
+      // Leave the file dirty, as after a crash, so that reopening must walk and rebuild it
+      ints.dirty();
+      ints.channel.close();
+      start = System.nanoTime();
+      ints = new MappedSkipList<Integer, String>(file, Codec.INTEGER, Codec.STRING);
+      long recover = System.nanoTime() - start;
+      System.out.printf("reopen after crash:   %10.1f ms (size %d)%n", recover / 1e6, ints.size());
+      ints.close();
+
+      start = System.nanoTime();
+      SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+      for (int i = 0; i < n; i++) {
+        list.set(i, "value " + i);
+      } // for
+      long reload = System.nanoTime() - start;
+      System.out.printf("re-insert into SkipList: %7.1f ms%n", reload / 1e6);
+    } finally {
+      Files.delete(file);
+    } // try/finally
+  } // main(String[])
+
+} // class MappedSkipListBenchmark
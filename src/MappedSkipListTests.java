@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of memory-mapped skip lists.
+ */
+public class MappedSkipListTests {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * A small chunk size, so that the tests use several chunks.
+   */
+  static final int CHUNK = 1 << 12;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Open a list of ints in a file.
+   */
+  static MappedSkipList<Integer, String> open(Path file) throws IOException {
+    return new MappedSkipList<Integer, String>(file, Codec.INTEGER, Codec.STRING, CHUNK);
+  } // open(Path)
+
+  /**
+   * Fill a list with the keys 0 .. n-1.
+   */
+  static TreeMap<Integer, String> fill(MappedSkipList<Integer, String> ints, int n) {
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    for (int i = 0; i < n; i++) {
+      ints.set(i, "v" + i);
+      expected.put(i, "v" + i);
+    } // for
+    return expected;
+  } // fill(MappedSkipList, int)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * A cleanly closed list comes back as it was, without recovery.
+   */
+  @Test
+  public void reopenTest() throws IOException {
+    Path file = Files.createTempFile("skiplist", ".map");
+    try {
+      MappedSkipList<Integer, String> ints = open(file);
+      TreeMap<Integer, String> expected = fill(ints, 1000);
+      ints.set(7, "a longer value than before");
+      expected.put(7, "a longer value than before");
+      ints.remove(8);
+      expected.remove(8);
+      ints.close();
+
+      ints = open(file);
+      assertFalse(ints.recovered());
+      SimpleMapTests.check(expected, ints);
+      ints.set(8, "back");
+      assertEquals("back", ints.get(8));
+      ints.close();
+    } finally {
+      Files.delete(file);
+    } // try/finally
+  } // reopenTest()
+
+  /**
+   * Changes made after the last sync survive a crash that leaves the page cache intact.
+   */
+  @Test
+  public void unsyncedTest() throws IOException {
+    Path file = Files.createTempFile("skiplist", ".map");
+    try {
+      MappedSkipList<Integer, String> ints = open(file);
+      TreeMap<Integer, String> expected = fill(ints, 500);
+      ints.sync();
+      for (int i = 500; i < 1000; i++) {
+        ints.set(i, "v" + i);
+        expected.put(i, "v" + i);
+      } // for
+      // Crash: close the file without syncing
+      ints.channel.close();
+
+      ints = open(file);
+      assertTrue(ints.recovered());
+      SimpleMapTests.check(expected, ints);
+      ints.close();
+    } finally {
+      Files.delete(file);
+    } // try/finally
+  } // unsyncedTest()
+
+  /**
+   * A torn record loses only the change that wrote it. Entries after it in the list, which were
+   * synced earlier, survive, a torn replacement leaves the old value, and removals stick.
+   */
+  @Test
+  public void tornWriteTest() throws IOException {
+    Path file = Files.createTempFile("skiplist", ".map");
+    try {
+      MappedSkipList<Integer, String> ints = open(file);
+      TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+      for (int i = 0; i < 2000; i += 2) {
+        ints.set(i, "v" + i);
+        expected.put(i, "v" + i);
+      } // for
+      ints.remove(10);
+      expected.remove(10);
+      ints.sync();
+      // After the sync: a new node in the middle, a replacement, and a removal
+      ints.set(1001, "new");
+      ints.set(600, "replacement");
+      ints.remove(800);
+      expected.remove(800);
+      // As if the pages with the new records never reached the disk, and a synced one rotted
+      tear(ints, 1001);
+      tear(ints, 600);
+      tear(ints, 1200);
+      expected.remove(1200);
+      ints.channel.close();
+
+      ints = open(file);
+      assertTrue(ints.recovered());
+      SimpleMapTests.check(expected, ints);
+      // The rebuilt list works as usual
+      ints.set(2001, "v2001");
+      assertEquals("v2001", ints.get(2001));
+      ints.close();
+      ints = open(file);
+      assertFalse(ints.recovered());
+      assertEquals("v2001", ints.get(2001));
+      assertEquals("v1998", ints.get(1998));
+      ints.close();
+    } finally {
+      Files.delete(file);
+    } // try/finally
+  } // tornWriteTest()
+
+  /**
+   * Damage the value of the node with the given key, so that its checksum fails.
+   */
+  static void tear(MappedSkipList<Integer, String> ints, int key) {
+    long node = ints.find(Codec.INTEGER.encode(key));
+    ints.putBytes(ints.valueAddress(node), new byte[] {'X'});
+  } // tear(MappedSkipList, int)
+
+  /**
+   * A damaged header slot falls back on the other one.
+   */
+  @Test
+  public void tornHeaderTest() throws IOException {
+    Path file = Files.createTempFile("skiplist", ".map");
+    try {
+      MappedSkipList<Integer, String> ints = open(file);
+      TreeMap<Integer, String> expected = fill(ints, 100);
+      ints.close();
+      // Scribble on the newest slot
+      ints = open(file);
+      long newest = MappedSkipList.SLOTS[(int) (ints.sequence & 1)];
+      ints.channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), newest + 20);
+      ints.channel.close();
+
+      ints = open(file);
+      SimpleMapTests.check(expected, ints);
+      ints.close();
+    } finally {
+      Files.delete(file);
+    } // try/finally
+  } // tornHeaderTest()
+
+} // class MappedSkipListTests
@@ -0,0 +1,574 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * A skip list whose nodes live outside the Java heap, in an arena of direct byte buffers. Keys and
+ * values are stored as bytes made by codecs, and keys are ordered by comparing those bytes as
+ * unsigned values, so the key codec must preserve order.
+ *
+ * Each node is a record in the arena:
+ *
+ * <pre>
+ *   int level | int key length | int value length | int checksum |
+ *   long next[level] | key bytes | value bytes
+ * </pre>
+ *
+ * Nodes are named by their address in the arena, and address 0 means null. A value length of -1
+ * stands for a null value. The checksum is only filled in by subclasses that need one, such as
+ * MappedSkipList. The arena only grows: space from removed nodes, and from nodes replaced
+ * because their value changed size, is not reused.
+ */
+public class OffHeapSkipList<K, V> implements SimpleMap<K, V> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The maximum height of a node.
+   */
+  static final int MAX_HEIGHT = 32;
+
+  /**
+   * The default size of each buffer in the arena.
+   */
+  static final int CHUNK_SIZE = 1 << 24;
+
+  /**
+   * Where the fields of a node are, relative to its address.
+   */
+  static final int LEVEL = 0;
+  static final int KEY_LENGTH = 4;
+  static final int VALUE_LENGTH = 8;
+  static final int CHECKSUM = 12;
+  static final int NEXT = 16;
+
+  /**
+   * The null address.
+   */
+  static final long NULL = 0;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The buffers that make up the arena. Records never span buffers.
+   */
+  ArrayList<ByteBuffer> chunks;
+
+  /**
+   * log2 of the size of each buffer.
+   */
+  int chunkBits;
+
+  /**
+   * The address of the next free byte in the arena.
+   */
+  long top;
+
+  /**
+   * How we turn keys into bytes and back.
+   */
+  Codec<K> keys;
+
+  /**
+   * How we turn values into bytes and back.
+   */
+  Codec<V> values;
+
+  /**
+   * The address of the dummy node at the front of the list.
+   */
+  long head;
+
+  /**
+   * The predecessors found by the most recent search, one per level.
+   */
+  long[] update;
+
+  /**
+   * The number of values in the list.
+   */
+  int size;
+
+  /**
+   * The current height of the skiplist.
+   */
+  int height;
+
+  /**
+   * The probability used to determine the height of nodes.
+   */
+  double prob = 0.5;
+
+  /**
+   * Where the heights of new nodes come from.
+   */
+  LevelGenerator levels = LevelGenerator.random(this.prob);
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new skip list that stores keys and values with the given codecs.
+   */
+  public OffHeapSkipList(Codec<K> keys, Codec<V> values) {
+    this(keys, values, CHUNK_SIZE);
+  } // OffHeapSkipList(Codec<K>, Codec<V>)
+
+  /**
+   * Create a new skip list whose arena is made of buffers of the given size (a power of two).
+   */
+  OffHeapSkipList(Codec<K> keys, Codec<V> values, int chunkSize) {
+    init(keys, values, chunkSize);
+    // Skip the first word so that no node lives at NULL
+    format(Long.BYTES);
+  } // OffHeapSkipList(Codec<K>, Codec<V>, int)
+
+  /**
+   * Create a skip list with nothing set up, for subclasses that call init and then either format
+   * a new arena or adopt an old one.
+   */
+  OffHeapSkipList() {
+  } // OffHeapSkipList()
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public V set(K key, V value) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    byte[] kbytes = this.keys.encode(key);
+    byte[] vbytes = (value == null) ? null : this.values.encode(value);
+
+    long current = next(findPredecessors(kbytes), 0);
+    if (current != NULL && compare(kbytes, current) == 0) {
+      V result = value(current);
+      int vlen = getInt(current + VALUE_LENGTH);
+      if (vbytes != null && vlen == vbytes.length && overwriteInPlace()) {
+        // Same size, so overwrite the value in place
+        putBytes(valueAddress(current), vbytes);
+      } else {
+        // Otherwise, build a replacement node of the same height
+        int level = getInt(current + LEVEL);
+        long node = newNode(kbytes, vbytes, level);
+        for (int i = 0; i < level; i++) {
+          setNext(node, i, next(current, i));
+          setNext(this.update[i], i, node);
+        } // for
+      } // if/else
+      return result;
+    } // if
+
+    // If there is no node to update, make a new one and splice it in
+    int newLevel = randomHeight();
+    if (newLevel > this.height) {
+      for (int i = this.height; i < newLevel; i++) {
+        this.update[i] = this.head;
+      } // for
+      this.height = newLevel;
+    } // if
+    long node = newNode(kbytes, vbytes, newLevel);
+    for (int i = 0; i < newLevel; i++) {
+      setNext(node, i, next(this.update[i], i));
+      setNext(this.update[i], i, node);
+    } // for
+    this.size++;
+    return null;
+  } // set(K,V)
+
+  @Override
+  public V get(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    long node = find(this.keys.encode(key));
+    if (node != NULL) {
+      return value(node);
+    } else {
+      return null;
+    }
+  } // get(K)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  @Override
+  public boolean containsKey(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    return find(this.keys.encode(key)) != NULL;
+  } // containsKey(K)
+
+  @Override
+  public V remove(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    byte[] kbytes = this.keys.encode(key);
+    long current = next(findPredecessors(kbytes), 0);
+    if (current == NULL || compare(kbytes, current) != 0) {
+      return null;
+    } // if
+
+    // Remove the element and rearrange pointers
+    int level = getInt(current + LEVEL);
+    for (int i = 0; i < level; i++) {
+      setNext(this.update[i], i, next(current, i));
+    } // for
+    retire(current);
+    this.size--;
+    return value(current);
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return new Iterator<K>() {
+      long next = OffHeapSkipList.this.next(OffHeapSkipList.this.head, 0);
+
+      @Override
+      public boolean hasNext() {
+        return this.next != NULL;
+      } // hasNext()
+
+      @Override
+      public K next() {
+        if (this.next == NULL) {
+          throw new NoSuchElementException();
+        }
+        K key = OffHeapSkipList.this.key(this.next);
+        this.next = OffHeapSkipList.this.next(this.next, 0);
+        return key;
+      } // next()
+    };
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    return new Iterator<V>() {
+      long next = OffHeapSkipList.this.next(OffHeapSkipList.this.head, 0);
+
+      @Override
+      public boolean hasNext() {
+        return this.next != NULL;
+      } // hasNext()
+
+      @Override
+      public V next() {
+        if (this.next == NULL) {
+          throw new NoSuchElementException();
+        }
+        V value = OffHeapSkipList.this.value(this.next);
+        this.next = OffHeapSkipList.this.next(this.next, 0);
+        return value;
+      } // next()
+    };
+  } // values()
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (long node = next(this.head, 0); node != NULL; node = next(node, 0)) {
+      action.accept(key(node), value(node));
+    } // for
+  } // forEach
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Determine how many bytes of the arena are in use, including space that is no longer reachable.
+   */
+  public long arenaBytes() {
+    return this.top;
+  } // arenaBytes()
+
+  /**
+   * Make the heights of new nodes repeatable: two lists seeded alike and given the same
+   * operations end up with the same shape.
+   */
+  public void seed(long seed) {
+    this.levels = LevelGenerator.seeded(this.prob, seed);
+  } // seed(long)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Set up the fields that don't depend on the contents of the arena.
+   */
+  void init(Codec<K> keys, Codec<V> values, int chunkSize) {
+    if (Integer.bitCount(chunkSize) != 1) {
+      throw new IllegalArgumentException("chunk size must be a power of two: " + chunkSize);
+    } // if
+    this.keys = keys;
+    this.values = values;
+    this.chunks = new ArrayList<ByteBuffer>();
+    this.chunkBits = Integer.numberOfTrailingZeros(chunkSize);
+    this.update = new long[MAX_HEIGHT];
+  } // init(Codec<K>, Codec<V>, int)
+
+  /**
+   * Start an empty list whose records begin at the given address.
+   */
+  void format(long start) {
+    this.top = start;
+    this.head = allocate(NEXT + MAX_HEIGHT * Long.BYTES);
+    putInt(this.head + LEVEL, MAX_HEIGHT);
+    for (int i = 0; i < MAX_HEIGHT; i++) {
+      setNext(this.head, i, NULL);
+    } // for
+    this.size = 0;
+    this.height = 1;
+  } // format(long)
+
+  /**
+   * Make the buffer for a new chunk of the arena.
+   */
+  ByteBuffer newChunk(int index) throws IOException {
+    return ByteBuffer.allocateDirect(1 << this.chunkBits);
+  } // newChunk(int)
+
+  /**
+   * Finish off a node once its contents are written. Subclasses may add a checksum.
+   */
+  void seal(long node) {
+  } // seal(long)
+
+  /**
+   * Note that a node has been removed and is no longer reachable. Subclasses may mark it.
+   */
+  void retire(long node) {
+  } // retire(long)
+
+  /**
+   * Determine if set may overwrite a value of the same size in place, rather than building a
+   * replacement node.
+   */
+  boolean overwriteInPlace() {
+    return true;
+  } // overwriteInPlace()
+
+  /**
+   * Pick a random height for a new node.
+   */
+  int randomHeight() {
+    return this.levels.height(MAX_HEIGHT);
+  } // randomHeight()
+
+  /**
+   * Find the node with the given key.
+   *
+   * @return the node's address, or NULL if the key is not in the list.
+   */
+  long find(byte[] key) {
+    long current = this.head;
+    for (int i = this.height - 1; i >= 0; i--) {
+      long next = next(current, i);
+      while (next != NULL && compare(key, next) > 0) {
+        current = next;
+        next = next(current, i);
+      } // while
+    } // for
+    current = next(current, 0);
+    if (current != NULL && compare(key, current) == 0) {
+      return current;
+    } // if
+    return NULL;
+  } // find(byte[])
+
+  /**
+   * Find the last node on each level whose key precedes key, storing them in update.
+   *
+   * @return the predecessor on level 0.
+   */
+  long findPredecessors(byte[] key) {
+    long current = this.head;
+    for (int i = this.height - 1; i >= 0; i--) {
+      long next = next(current, i);
+      while (next != NULL && compare(key, next) > 0) {
+        current = next;
+        next = next(current, i);
+      } // while
+      this.update[i] = current;
+    } // for
+    return current;
+  } // findPredecessors(byte[])
+
+  /**
+   * Compare key with the key of a node, byte by byte as unsigned values, eight bytes at a time
+   * where possible.
+   */
+  int compare(byte[] key, long node) {
+    int klen = getInt(node + KEY_LENGTH);
+    ByteBuffer chunk = chunk(node);
+    int offset = offset(node) + NEXT + getInt(node + LEVEL) * Long.BYTES;
+    int n = Math.min(key.length, klen);
+    int i = 0;
+    for (; i + Long.BYTES <= n; i += Long.BYTES) {
+      long mine = 0;
+      for (int j = 0; j < Long.BYTES; j++) {
+        mine = (mine << 8) | (key[i + j] & 0xFF);
+      } // for
+      long theirs = chunk.getLong(offset + i);
+      if (mine != theirs) {
+        return Long.compareUnsigned(mine, theirs);
+      } // if
+    } // for
+    for (; i < n; i++) {
+      int diff = (key[i] & 0xFF) - (chunk.get(offset + i) & 0xFF);
+      if (diff != 0) {
+        return diff;
+      } // if
+    } // for
+    return key.length - klen;
+  } // compare(byte[], long)
+
+  /**
+   * Make a node in the arena.
+   *
+   * @return its address.
+   */
+  long newNode(byte[] key, byte[] value, int level) {
+    int vlen = (value == null) ? -1 : value.length;
+    int bytes = NEXT + level * Long.BYTES + key.length + Math.max(vlen, 0);
+    long node = allocate(bytes);
+    putInt(node + LEVEL, level);
+    putInt(node + KEY_LENGTH, key.length);
+    putInt(node + VALUE_LENGTH, vlen);
+    for (int i = 0; i < level; i++) {
+      setNext(node, i, NULL);
+    } // for
+    putBytes(node + NEXT + level * Long.BYTES, key);
+    if (value != null) {
+      putBytes(valueAddress(node), value);
+    } // if
+    seal(node);
+    return node;
+  } // newNode(byte[], byte[], int)
+
+  /**
+   * Reserve space in the arena, eight-byte aligned and within a single buffer.
+   *
+   * @return the address of the space.
+   */
+  long allocate(int bytes) {
+    int chunkSize = 1 << this.chunkBits;
+    if (bytes > chunkSize) {
+      throw new IllegalArgumentException("record of " + bytes + " bytes is larger than a chunk");
+    } // if
+    bytes = (bytes + 7) & ~7;
+    if (offset(this.top) + bytes > chunkSize) {
+      // Move on to the start of the next buffer
+      this.top = (chunkIndex(this.top) + 1L) << this.chunkBits;
+    } // if
+    while (this.chunks.size() <= chunkIndex(this.top)) {
+      try {
+        this.chunks.add(newChunk(this.chunks.size()));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } // try/catch
+    } // while
+    long result = this.top;
+    this.top += bytes;
+    return result;
+  } // allocate(int)
+
+  /**
+   * Get the address of the next node on a level.
+   */
+  long next(long node, int level) {
+    return chunk(node).getLong(offset(node) + NEXT + level * Long.BYTES);
+  } // next(long, int)
+
+  /**
+   * Set the address of the next node on a level.
+   */
+  void setNext(long node, int level, long next) {
+    chunk(node).putLong(offset(node) + NEXT + level * Long.BYTES, next);
+  } // setNext(long, int, long)
+
+  /**
+   * Get the address of a node's value bytes.
+   */
+  long valueAddress(long node) {
+    return node + NEXT + getInt(node + LEVEL) * Long.BYTES + getInt(node + KEY_LENGTH);
+  } // valueAddress(long)
+
+  /**
+   * Decode a node's key.
+   */
+  K key(long node) {
+    return this.keys.decode(getBytes(node + NEXT + getInt(node + LEVEL) * Long.BYTES,
+        getInt(node + KEY_LENGTH)));
+  } // key(long)
+
+  /**
+   * Decode a node's value.
+   */
+  V value(long node) {
+    int vlen = getInt(node + VALUE_LENGTH);
+    if (vlen < 0) {
+      return null;
+    } // if
+    return this.values.decode(getBytes(valueAddress(node), vlen));
+  } // value(long)
+
+  /**
+   * Get the buffer that holds an address.
+   */
+  ByteBuffer chunk(long address) {
+    return this.chunks.get(chunkIndex(address));
+  } // chunk(long)
+
+  /**
+   * Get the index of the buffer that holds an address.
+   */
+  int chunkIndex(long address) {
+    return (int) (address >>> this.chunkBits);
+  } // chunkIndex(long)
+
+  /**
+   * Get the position of an address within its buffer.
+   */
+  int offset(long address) {
+    return (int) (address & ((1L << this.chunkBits) - 1));
+  } // offset(long)
+
+  int getInt(long address) {
+    return chunk(address).getInt(offset(address));
+  } // getInt(long)
+
+  void putInt(long address, int value) {
+    chunk(address).putInt(offset(address), value);
+  } // putInt(long, int)
+
+  byte[] getBytes(long address, int length) {
+    byte[] result = new byte[length];
+    chunk(address).get(offset(address), result);
+    return result;
+  } // getBytes(long, int)
+
+  void putBytes(long address, byte[] bytes) {
+    chunk(address).put(offset(address), bytes);
+  } // putBytes(long, byte[])
+
+} // class OffHeapSkipList
@@ -0,0 +1,80 @@
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of off-heap skip lists.
+ */
+public class OffHeapSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Negative and positive integers must come out in numeric order.
+   */
+  @Test
+  public void signedKeysTest() {
+    OffHeapSkipList<Integer, String> ints =
+        new OffHeapSkipList<Integer, String>(Codec.INTEGER, Codec.STRING);
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    for (int i : new int[] {5, -3, Integer.MIN_VALUE, 0, Integer.MAX_VALUE, -1}) {
+      ints.set(i, "v" + i);
+      expected.put(i, "v" + i);
+    } // for
+    SimpleMapTests.check(expected, ints);
+  } // signedKeysTest()
+
+  /**
+   * Replace values with ones of the same and of different lengths, and with null.
+   */
+  @Test
+  public void replaceTest() {
+    OffHeapSkipList<String, String> strings =
+        new OffHeapSkipList<String, String>(Codec.STRING, Codec.STRING);
+    assertNull(strings.set("a", "one"));
+    assertEquals("one", strings.set("a", "two"));
+    assertEquals("two", strings.set("a", "three"));
+    assertEquals("three", strings.set("a", null));
+    assertTrue(strings.containsKey("a"));
+    assertNull(strings.get("a"));
+    assertNull(strings.set("a", "four"));
+    assertEquals("four", strings.get("a"));
+    assertEquals(1, strings.size());
+  } // replaceTest()
+
+  /**
+   * Random sets and removes of strings sharing long prefixes, checked against a TreeMap, in an
+   * arena of small chunks so that records land in many buffers.
+   */
+  @Test
+  public void randomTest() {
+    OffHeapSkipList<String, String> strings =
+        new OffHeapSkipList<String, String>(Codec.STRING, Codec.STRING, 1 << 12);
+    TreeMap<String, String> expected = new TreeMap<String, String>();
+    for (int i = 0; i < 5000; i++) {
+      String key = "key-with-a-shared-prefix-" + random.nextInt(1000);
+      String value = "v".repeat(random.nextInt(20));
+      if (random.nextInt(3) > 0) {
+        assertEquals(expected.put(key, value), strings.set(key, value));
+      } else {
+        assertEquals(expected.remove(key), strings.remove(key));
+      } // if/else
+      assertEquals(expected.containsKey(key), strings.containsKey(key));
+    } // for
+    SimpleMapTests.check(expected, strings);
+    assertTrue(strings.chunks.size() > 1);
+  } // randomTest()
+
+} // class OffHeapSkipListTests
@@ -0,0 +1,27 @@
+/**
+ * Nodes in an indexed skip list that keeps key prefixes.
+ */
+class PISLNode<K, V> extends ISLNode<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The prefix of the key.
+   */
+  final long prefix;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key, value, and prefix of the key.
+   */
+  public PISLNode(K key, V value, int n, long prefix) {
+    super(key, value, n);
+    this.prefix = prefix;
+  } // PISLNode(K, V, int, long)
+
+} // PISLNode<K,V>
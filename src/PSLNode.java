@@ -0,0 +1,27 @@
+/**
+ * Nodes in a skip list that keeps key prefixes.
+ */
+class PSLNode<K, V> extends SLNode<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The prefix of the key.
+   */
+  final long prefix;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key, value, and prefix of the key.
+   */
+  public PSLNode(K key, V value, int n, long prefix) {
+    super(key, value, n);
+    this.prefix = prefix;
+  } // PSLNode(K, V, int, long)
+
+} // PSLNode<K,V>
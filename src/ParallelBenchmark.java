@@ -0,0 +1,38 @@
+import java.util.Map;
+
+/**
+ * Aggregate over a large skip list with forEach, a sequential stream, and a parallel stream,
+ * which splits the list along its express lanes.
+ *
+ * Usage: java ParallelBenchmark [size]
+ */
+public class ParallelBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 10000000;
+    SkipList<Integer, Integer> list = SkipList.fromSorted((i, j) -> i - j,
+        BulkLoadBenchmark.entries(SkipListBenchmark.keys(n, true)));
+    System.out.println("n=" + n + ", cores=" + Runtime.getRuntime().availableProcessors());
+    for (int round = 0; round < 5; round++) {
+      long[] sum = new long[1];
+      long start = System.nanoTime();
+      list.forEach((key, value) -> sum[0] += value);
+      long each = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      long sequential = list.stream().mapToLong(Map.Entry::getValue).sum();
+      long stream = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      long parallel = list.parallelStream().mapToLong(Map.Entry::getValue).sum();
+      long parallelStream = System.nanoTime() - start;
+
+      if (sum[0] != sequential || sum[0] != parallel) {
+        throw new AssertionError("sums differ: " + sum[0] + " " + sequential + " " + parallel);
+      } // if
+      System.out.printf("forEach: %7.1f ms  stream: %7.1f ms  parallelStream: %7.1f ms%n",
+          each / 1e6, stream / 1e6, parallelStream / 1e6);
+    } // for
+  } // main(String[])
+
+} // class ParallelBenchmark
@@ -0,0 +1,58 @@
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Compare lookups in skip lists of String and Integer keys ordered by the old toString comparator,
+ * by a plain comparator, and by a plain comparator with key prefixes kept in the nodes.
+ *
+ * Usage: java PrefixBenchmark [size]
+ */
+public class PrefixBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    Random random = new Random(0);
+    String[] strings = new String[n];
+    for (int i = 0; i < n; i++) {
+      strings[i] = Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+    } // for
+    Integer[] ints = SkipListBenchmark.keys(n, false);
+    Comparator<String> byString = (s, t) -> s.compareTo(t);
+    Comparator<Integer> byInt = (i, j) -> Integer.compare(i, j);
+    for (int round = 0; round < 3; round++) {
+      report("String  toString", strings,
+          new SkipList<String, String>((s, t) -> s.toString().compareTo(t.toString())));
+      report("String  compareTo", strings, new SkipList<String, String>(byString));
+      report("String  prefix", strings,
+          new SkipList<String, String>(byString, KeyPrefix.STRING));
+      report("Integer toString", ints,
+          new SkipList<Integer, Integer>((i, j) -> i.toString().compareTo(j.toString())));
+      report("Integer default", ints, new SkipList<Integer, Integer>());
+      report("Integer compare", ints, new SkipList<Integer, Integer>(byInt));
+      report("Integer prefix", ints, new SkipList<Integer, Integer>(byInt, KeyPrefix.INTEGER));
+    } // for
+  } // main(String[])
+
+  /**
+   * Fill list with keys, then time a get of each.
+   */
+  static <K> void report(String name, K[] keys, SkipList<K, K> list) {
+    for (K key : keys) {
+      list.set(key, key);
+    } // for
+    long start = System.nanoTime();
+    int found = 0;
+    for (K key : keys) {
+      if (list.get(key) != null) {
+        found++;
+      } // if
+    } // for
+    long elapsed = System.nanoTime() - start;
+    if (found != list.size()) {
+      throw new IllegalStateException(name + ": found " + found + " of " + list.size());
+    } // if
+    System.out.printf("%-18s n=%d  ns/get: %7.1f%n", name, keys.length,
+        (double) elapsed / keys.length);
+  } // report(String, K[], SkipList<K, K>)
+
+} // class PrefixBenchmark
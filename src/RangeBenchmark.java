@@ -0,0 +1,53 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measure narrow range scans as the list grows. A scan through range() should cost about the same
+ * at every size, while scanning from the front and filtering grows with the list.
+ *
+ * Usage: java RangeBenchmark [max-size] [width]
+ */
+public class RangeBenchmark {
+
+  public static void main(String[] args) {
+    int maxSize = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    int width = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+    SkipListBenchmark.header();
+    for (int n = 1000; n <= maxSize; n *= 10) {
+      final int size = n;
+      SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> i - j);
+      SkipListBenchmark.fill(list, SkipListBenchmark.keys(n, false));
+      // Keys are the even numbers below 2n, so 2 * width covers width entries
+      Integer[] froms = new Integer[1024];
+      Integer[] tos = new Integer[froms.length];
+      Random random = new Random(n);
+      for (int i = 0; i < froms.length; i++) {
+        froms[i] = 2 * random.nextInt(n);
+        tos[i] = froms[i] + 2 * width;
+      } // for
+
+      SkipListBenchmark.measure("range() n=" + size + " width=" + width, SkipListBenchmark.OPS,
+          () -> (i) -> {
+            Iterator<Map.Entry<Integer, Integer>> it = list.range(froms[i & 1023], tos[i & 1023]);
+            while (it.hasNext()) {
+              SkipListBenchmark.consume(it.next().getKey());
+            } // while
+          });
+      if (n <= 100000) {
+        SkipListBenchmark.measure("filter n=" + size + " width=" + width,
+            Math.max(10, SkipListBenchmark.OPS / n), () -> (i) -> {
+              int to = tos[i & 1023];
+              Iterator<Integer> it = list.keys();
+              while (it.hasNext()) {
+                int key = it.next();
+                if (key >= to) {
+                  break;
+                } // if
+              } // while
+            });
+      } // if
+    } // for
+  } // main(String[])
+
+} // class RangeBenchmark
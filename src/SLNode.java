@@ -0,0 +1,128 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Map;
+
+/**
+ * Nodes in the skip list.
+ */
+class SLNode<K, V> implements Map.Entry<K, V> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Access to the elements of link arrays.
+   */
+  static final VarHandle NEXT = MethodHandles.arrayElementVarHandle(SLNode[].class);
+
+  /**
+   * Access to the link array itself, which the head replaces when the list grows taller.
+   */
+  static final VarHandle LINKS;
+
+  static {
+    try {
+      LINKS = MethodHandles.lookup().findVarHandle(SLNode.class, "next", SLNode[].class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    } // try/catch
+  } // static
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key.
+   */
+  K key;
+
+  /**
+   * The value.
+   */
+  V value;
+
+  /**
+   * Pointers to the next nodes.
+   */
+  SLNode<K, V>[] next;
+
+  /**
+   * The node before this one on level 0: the head for the first node.
+   */
+  SLNode<K, V> prev;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key and value.
+   */
+  public SLNode(K key, V value, int n) {
+    this.key = key;
+    this.value = value;
+    this.next = links(n);
+  } // SLNode(K, V, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  public K getKey() {
+    return this.key;
+  } // getKey()
+
+  @Override
+  public V getValue() {
+    return this.value;
+  } // getValue()
+
+  @Override
+  public V setValue(V value) {
+    V result = this.value;
+    this.value = value;
+    return result;
+  } // setValue(V)
+
+  /**
+   * Create an array of n null forward pointers.
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> SLNode<K, V>[] links(int n) {
+    return (SLNode<K, V>[]) new SLNode<?, ?>[n];
+  } // links(int)
+
+  /**
+   * Set links[i] with a release store, publishing everything written to node beforehand.
+   */
+  static <K, V> void setNext(SLNode<K, V>[] links, int i, SLNode<K, V> node) {
+    NEXT.setRelease(links, i, node);
+  } // setNext(SLNode<K, V>[], int, SLNode<K, V>)
+
+  /**
+   * Get links[i] with an acquire load, for readers that don't hold the writers' lock.
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> SLNode<K, V> getNext(SLNode<K, V>[] links, int i) {
+    return (SLNode<K, V>) NEXT.getAcquire(links, i);
+  } // getNext(SLNode<K, V>[], int)
+
+  /**
+   * Replace node's link array with a release store, publishing the links copied into it.
+   */
+  static <K, V> void setLinks(SLNode<K, V> node, SLNode<K, V>[] links) {
+    LINKS.setRelease(node, links);
+  } // setLinks(SLNode<K, V>, SLNode<K, V>[])
+
+  /**
+   * Get node's link array with an acquire load, for readers that don't hold the writers' lock.
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> SLNode<K, V>[] getLinks(SLNode<K, V> node) {
+    return (SLNode<K, V>[]) LINKS.getAcquire(node);
+  } // getLinks(SLNode<K, V>)
+
+} // SLNode<K,V>
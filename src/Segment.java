@@ -0,0 +1,421 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable file of entries in key order, with a sparse index.
+ *
+ * The file holds a header (magic and version), the entries, the index, and a footer. Each entry
+ * is a key length and key, then a value length and value; a value length of -1 means a null
+ * value and -2 a tombstone. Every INDEX_INTERVAL-th entry's key and offset go in the index, which
+ * we keep in memory, so a lookup reads just one block of entries. The footer gives where the
+ * index starts, the number of entries, and the oldest segment number this one covers.
+ */
+class Segment<K, V> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Identifies segment files.
+   */
+  static final long MAGIC = 0x534b49505345474dL;
+
+  /**
+   * The version of the format.
+   */
+  static final int FORMAT_VERSION = 1;
+
+  /**
+   * The size of the header.
+   */
+  static final int HEADER = Long.BYTES + Integer.BYTES;
+
+  /**
+   * The size of the footer: index offset, count, base, and magic.
+   */
+  static final int FOOTER = 4 * Long.BYTES;
+
+  /**
+   * How many entries lie between index entries.
+   */
+  static final int INDEX_INTERVAL = 64;
+
+  /**
+   * Value lengths that stand for null and for tombstones.
+   */
+  static final int NULL = -1;
+  static final int TOMB = -2;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The file.
+   */
+  final Path file;
+
+  /**
+   * Our number. Newer segments have larger numbers.
+   */
+  final long number;
+
+  /**
+   * The number of the oldest segment we replace; our own number unless we come from a merge.
+   */
+  final long base;
+
+  /**
+   * The open file.
+   */
+  final FileChannel channel;
+
+  /**
+   * How we order keys.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * How we encode keys.
+   */
+  final Codec<K> keys;
+
+  /**
+   * How we encode values.
+   */
+  final Codec<V> values;
+
+  /**
+   * The keys of every INDEX_INTERVAL-th entry.
+   */
+  final ArrayList<K> indexKeys = new ArrayList<K>();
+
+  /**
+   * Where those entries start.
+   */
+  long[] indexOffsets;
+
+  /**
+   * Where the entries end and the index starts.
+   */
+  final long end;
+
+  /**
+   * The number of entries.
+   */
+  final long count;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Open a segment file and read its index.
+   */
+  Segment(Path file, long number, Comparator<K> comparator, Codec<K> keys, Codec<V> values)
+      throws IOException {
+    this.file = file;
+    this.number = number;
+    this.comparator = comparator;
+    this.keys = keys;
+    this.values = values;
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    long size = this.channel.size();
+    ByteBuffer buffer = ByteBuffer.allocate(SkipList.IO_BUFFER_BYTES);
+    buffer.flip();
+    Reader header = new Reader(0);
+    SkipList.fill(buffer, header, HEADER);
+    if (size < HEADER + FOOTER || buffer.getLong() != MAGIC
+        || buffer.getInt() != FORMAT_VERSION) {
+      throw new IOException("not a segment: " + file);
+    } // if
+    buffer.clear().flip();
+    SkipList.fill(buffer, new Reader(size - FOOTER), FOOTER);
+    this.end = buffer.getLong();
+    this.count = buffer.getLong();
+    this.base = buffer.getLong();
+    if (buffer.getLong() != MAGIC) {
+      throw new IOException("segment has no footer: " + file);
+    } // if
+    int entries = (int) ((this.count + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+    this.indexOffsets = new long[entries];
+    buffer.clear().flip();
+    Reader index = new Reader(this.end);
+    for (int i = 0; i < entries; i++) {
+      SkipList.fill(buffer, index, Integer.BYTES);
+      this.indexKeys.add(this.keys.decode(SkipList.getBytes(buffer, index, buffer.getInt())));
+      SkipList.fill(buffer, index, Long.BYTES);
+      this.indexOffsets[i] = buffer.getLong();
+    } // for
+  } // Segment(Path, long, Comparator<K>, Codec<K>, Codec<V>)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Write entries, in key order, to the segment with the given number, and open it.
+   */
+  static <K, V> Segment<K, V> write(Path dir, long number, long base,
+      Iterator<? extends Map.Entry<K, Object>> entries, Comparator<K> comparator, Codec<K> keys,
+      Codec<V> values) throws IOException {
+    Path file = dir.resolve(name(number));
+    Path temp = dir.resolve(name(number) + ".tmp");
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(SkipList.IO_BUFFER_BYTES);
+      buffer.putLong(MAGIC);
+      buffer.putInt(FORMAT_VERSION);
+      long offset = HEADER;
+      long count = 0;
+      ArrayList<byte[]> indexKeys = new ArrayList<byte[]>();
+      ArrayList<Long> indexOffsets = new ArrayList<Long>();
+      while (entries.hasNext()) {
+        Map.Entry<K, Object> entry = entries.next();
+        Object value = entry.getValue();
+        byte[] key = keys.encode(entry.getKey());
+        if (count % INDEX_INTERVAL == 0) {
+          indexKeys.add(key);
+          indexOffsets.add(offset);
+        } // if
+        @SuppressWarnings("unchecked")
+        byte[] bytes = (value == null || value == LsmSkipList.TOMBSTONE) ? null
+            : values.encode((V) value);
+        offset += putEntry(buffer, out, key, bytes,
+            (value == null) ? NULL : (value == LsmSkipList.TOMBSTONE) ? TOMB : 0);
+        count++;
+      } // while
+      for (int i = 0; i < indexKeys.size(); i++) {
+        byte[] key = indexKeys.get(i);
+        if (buffer.remaining() < Integer.BYTES) {
+          SkipList.drain(buffer, out);
+        } // if
+        buffer.putInt(key.length);
+        SkipList.putBytes(buffer, out, key);
+        if (buffer.remaining() < Long.BYTES) {
+          SkipList.drain(buffer, out);
+        } // if
+        buffer.putLong(indexOffsets.get(i));
+      } // for
+      if (buffer.remaining() < FOOTER) {
+        SkipList.drain(buffer, out);
+      } // if
+      buffer.putLong(offset);
+      buffer.putLong(count);
+      buffer.putLong(base);
+      buffer.putLong(MAGIC);
+      SkipList.drain(buffer, out);
+      out.force(true);
+    } // try
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    // The new name must reach the disk before a merge deletes the segments it replaces
+    SkipList.forceDirectory(dir);
+    return new Segment<K, V>(file, number, comparator, keys, values);
+  } // write(Path, long, long, Iterator, Comparator<K>, Codec<K>, Codec<V>)
+
+  /**
+   * Find what we know about key: its value, a tombstone, or MISSING.
+   */
+  Object get(K key) throws IOException {
+    // Find the last indexed key at or before key
+    int lo = 0;
+    int hi = this.indexKeys.size() - 1;
+    int block = -1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (this.comparator.compare(this.indexKeys.get(mid), key) <= 0) {
+        block = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      } // if/else
+    } // while
+    if (block < 0) {
+      return LsmSkipList.MISSING;
+    } // if
+    long start = this.indexOffsets[block];
+    long stop = (block + 1 < this.indexOffsets.length) ? this.indexOffsets[block + 1] : this.end;
+    ByteBuffer buffer = ByteBuffer.allocate((int) (stop - start));
+    while (buffer.hasRemaining()) {
+      if (this.channel.read(buffer, start + buffer.position()) < 0) {
+        throw new IOException("segment ends early: " + this.file);
+      } // if
+    } // while
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      byte[] k = new byte[buffer.getInt()];
+      buffer.get(k);
+      int order = this.comparator.compare(this.keys.decode(k), key);
+      int length = buffer.getInt();
+      if (order == 0) {
+        return value(buffer, length);
+      } else if (order > 0) {
+        break;
+      } // if/else
+      buffer.position(buffer.position() + Math.max(0, length));
+    } // while
+    return LsmSkipList.MISSING;
+  } // get(K)
+
+  /**
+   * Read every entry, in order, including tombstones.
+   */
+  Iterator<Map.Entry<K, Object>> scan() {
+    Reader in = new Reader(HEADER);
+    ByteBuffer buffer = ByteBuffer.allocate(SkipList.IO_BUFFER_BYTES);
+    buffer.flip();
+    return new Iterator<Map.Entry<K, Object>>() {
+      long remaining = Segment.this.count;
+
+      @Override
+      public boolean hasNext() {
+        return this.remaining > 0;
+      } // hasNext()
+
+      @Override
+      public Map.Entry<K, Object> next() {
+        if (this.remaining-- <= 0) {
+          throw new NoSuchElementException();
+        } // if
+        try {
+          SkipList.fill(buffer, in, Integer.BYTES);
+          K key = Segment.this.keys.decode(SkipList.getBytes(buffer, in, buffer.getInt()));
+          SkipList.fill(buffer, in, Integer.BYTES);
+          int length = buffer.getInt();
+          Object value;
+          if (length < 0) {
+            value = value(buffer, length);
+          } else {
+            value = Segment.this.values.decode(SkipList.getBytes(buffer, in, length));
+          } // if/else
+          return new AbstractMap.SimpleImmutableEntry<K, Object>(key, value);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        } // try/catch
+      } // next()
+    };
+  } // scan()
+
+  /**
+   * Close and delete the file.
+   */
+  void delete() throws IOException {
+    this.channel.close();
+    Files.deleteIfExists(this.file);
+  } // delete()
+
+  @Override
+  public String toString() {
+    return this.file.getFileName() + " (" + this.count + " entries)";
+  } // toString()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * The file name for a segment number.
+   */
+  static String name(long number) {
+    return String.format("segment-%016d", number);
+  } // name(long)
+
+  /**
+   * The segment number for a file name, or -1 if it does not name a segment.
+   */
+  static long number(Path file) {
+    String name = file.getFileName().toString();
+    if (!name.matches("segment-[0-9]{16}")) {
+      return -1;
+    } // if
+    return Long.parseLong(name.substring("segment-".length()));
+  } // number(Path)
+
+  /**
+   * Determine whether a file is a segment that was being written when we stopped.
+   */
+  static boolean temporary(Path file) {
+    return file.getFileName().toString().matches("segment-[0-9]{16}\\.tmp");
+  } // temporary(Path)
+
+  /**
+   * Write a key and a value, or a special value length if bytes is null. Return how many bytes
+   * that took.
+   */
+  static int putEntry(ByteBuffer buffer, FileChannel out, byte[] key, byte[] bytes, int special)
+      throws IOException {
+    if (buffer.remaining() < Integer.BYTES) {
+      SkipList.drain(buffer, out);
+    } // if
+    buffer.putInt(key.length);
+    SkipList.putBytes(buffer, out, key);
+    if (buffer.remaining() < Integer.BYTES) {
+      SkipList.drain(buffer, out);
+    } // if
+    buffer.putInt((bytes == null) ? special : bytes.length);
+    if (bytes != null) {
+      SkipList.putBytes(buffer, out, bytes);
+    } // if
+    return 2 * Integer.BYTES + key.length + ((bytes == null) ? 0 : bytes.length);
+  } // putEntry(ByteBuffer, FileChannel, byte[], byte[], int)
+
+  /**
+   * Read a value of the given length from a block.
+   */
+  Object value(ByteBuffer buffer, int length) {
+    if (length == NULL) {
+      return null;
+    } else if (length == TOMB) {
+      return LsmSkipList.TOMBSTONE;
+    } // if/else
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return this.values.decode(bytes);
+  } // value(ByteBuffer, int)
+
+  /**
+   * Reads the file sequentially from some offset, without moving the channel's own position,
+   * so that several readers can share it.
+   */
+  class Reader implements ReadableByteChannel {
+    long position;
+
+    Reader(long position) {
+      this.position = position;
+    } // Reader(long)
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      int n = Segment.this.channel.read(dst, this.position);
+      if (n > 0) {
+        this.position += n;
+      } // if
+      return n;
+    } // read(ByteBuffer)
+
+    @Override
+    public boolean isOpen() {
+      return Segment.this.channel.isOpen();
+    } // isOpen()
+
+    @Override
+    public void close() {
+      // The segment owns the channel
+    } // close()
+  } // class Reader
+
+} // class Segment<K, V>
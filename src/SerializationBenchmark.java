@@ -0,0 +1,49 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Measure how fast a skip list of integers saves to and loads from a file, in MB/s.
+ *
+ * Usage: java SerializationBenchmark [size]
+ */
+public class SerializationBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 10000000;
+    SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> i - j);
+    list.bulkLoad(BulkLoadBenchmark.entries(SkipListBenchmark.keys(n, true)), false);
+    Path file = Files.createTempFile("skiplist", ".bin");
+    try {
+      for (int round = 0; round < 3; round++) {
+        for (boolean heights : new boolean[] {false, true}) {
+          long start = System.nanoTime();
+          try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+            list.save(out, Codec.INTEGER, Codec.INTEGER, heights);
+          } // try
+          long save = System.nanoTime() - start;
+          double mb = Files.size(file) / 1e6;
+
+          start = System.nanoTime();
+          SkipList<Integer, Integer> copy;
+          try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            copy = SkipList.load(in, (i, j) -> i - j, Codec.INTEGER, Codec.INTEGER);
+          } // try
+          long load = System.nanoTime() - start;
+          if (copy.size() != n) {
+            throw new IllegalStateException("loaded " + copy.size() + " of " + n);
+          } // if
+
+          System.out.printf("n=%d  heights=%-5b  %7.1f MB  save: %7.1f MB/s  load: %7.1f MB/s%n",
+              n, heights, mb, mb / (save / 1e9), mb / (load / 1e9));
+        } // for
+      } // for
+    } finally {
+      Files.delete(file);
+    } // try/finally
+  } // main(String[])
+
+} // class SerializationBenchmark
@@ -0,0 +1,30 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that any SimpleMap can share, whatever it is built on.
+ */
+public class SimpleMapTests {
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Check that a map holds exactly what the oracle holds, in the same order.
+   */
+  static <K, V> void check(TreeMap<K, V> expected, SimpleMap<K, V> map) {
+    assertEquals(expected.size(), map.size());
+    Iterator<K> kit = map.keys();
+    Iterator<V> vit = map.values();
+    for (Map.Entry<K, V> entry : expected.entrySet()) {
+      assertEquals(entry.getKey(), kit.next());
+      assertEquals(entry.getValue(), vit.next());
+    } // for
+    assertFalse(kit.hasNext());
+    assertFalse(vit.hasNext());
+  } // check(TreeMap, SimpleMap)
+
+} // class SimpleMapTests
@@ -1,9 +1,24 @@
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Random;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 // import SkipList.SkipNode;
 
 /**
@@ -16,44 +31,141 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
   // +-----------+
 
   /**
-   * The initial height of the skip list.
+   * The number of levels the head has room for at first.
    */
-  static final int INITIAL_HEIGHT = 16;
+  static final int INITIAL_CAPACITY = 16;
 
-  // +---------------+-----------------------------------------------
-  // | Static Fields |
-  // +---------------+
+  /**
+   * How many levels past log_{1/prob}(size) a new node may reach.
+   */
+  static final int HEIGHT_SLACK = 2;
+
+  /**
+   * Identifies saved skip lists.
+   */
+  static final long MAGIC = 0x534b49504c495354L;
+
+  /**
+   * The version of the format that save writes.
+   */
+  static final int FORMAT_VERSION = 1;
+
+  /**
+   * The size of the header that save writes: magic, version, flags, prob, and count.
+   */
+  static final int HEADER_LENGTH = Long.BYTES + Integer.BYTES + 1 + Double.BYTES + Integer.BYTES;
+
+  /**
+   * The most bytes a varint takes.
+   */
+  static final int VARINT_BYTES = 5;
 
-  static Random rand = new Random();
+  /**
+   * The size of the buffer that save and load stream through.
+   */
+  static final int IO_BUFFER_BYTES = 1 << 16;
+
+  /**
+   * The order of lists made without a comparator.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static final Comparator<Object> DEFAULT_ORDER = (k1, k2) -> (k1 instanceof Comparable)
+      ? ((Comparable) k1).compareTo(k2)
+      : k1.toString().compareTo(k2.toString());
+
+  /**
+   * The estimated size of an object header, in bytes (64-bit JVM, compressed oops).
+   */
+  static final int HEADER_BYTES = 12;
+
+  /**
+   * The estimated size of an array header, in bytes.
+   */
+  static final int ARRAY_HEADER_BYTES = 16;
+
+  /**
+   * The estimated size of a reference, in bytes.
+   */
+  static final int REF_BYTES = 4;
 
   // +--------+------------------------------------------------------
   // | Fields |
   // +--------+
 
   /**
-   * Pointers to all the front elements.
+   * The dummy node at the front of the list. Its next pointers are the front of each level.
+   */
+  SLNode<K, V> head;
+
+  /**
+   * The last node on level 0, or the head if the list is empty.
+   */
+  SLNode<K, V> tail;
+
+  /**
+   * The predecessors found by the most recent search, one per level. The skip list is not
+   * thread safe, so a single buffer can be reused by every search instead of allocating one.
+   */
+  SLNode<K, V>[] update;
+
+  /**
+   * The position of each node in update, counting the head as 0 and the first entry as 1. Only
+   * filled in when the list is indexed.
+   */
+  int[] updateRank;
+
+  /**
+   * Whether nodes record the width of each link, for rank and select.
    */
-  ArrayList<SLNode<K, V>> front;
+  boolean indexed;
 
   /**
    * The comparator used to determine the ordering in the list.
    */
   Comparator<K> comparator;
 
+  /**
+   * Summarizes keys as longs stored in each node, so that most steps of a search can be settled
+   * without the comparator; null if we don't.
+   */
+  final KeyPrefix<K> prefixes;
+
   /**
    * The number of values in the list.
    */
   int size;
 
   /**
-   * The current height of the skiplist.
+   * The current height of the skiplist: the number of levels that have at least one node, or 1
+   * if the list is empty. Searches start here rather than at the top of the head.
    */
   int height;
 
+  /**
+   * The number of times nodes have been added or removed, so that cursors can tell when their
+   * saved positions have gone stale.
+   */
+  int modCount;
+
   /**
    * The probability used to determine the height of nodes.
    */
-  double prob = 0.5;
+  final double prob;
+
+  /**
+   * 1 / log(1/prob), for turning a size into a height limit.
+   */
+  final double levelScale;
+
+  /**
+   * Where the heights of new nodes come from.
+   */
+  LevelGenerator levels;
+
+  /**
+   * Where we record what our operations cost, or null if we don't.
+   */
+  SkipListStats stats;
 
   // +--------------+------------------------------------------------
   // | Constructors |
@@ -63,20 +175,68 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
    * Create a new skip list that orders values using the specified comparator.
    */
   public SkipList(Comparator<K> comparator) {
-    this.front = new ArrayList<SLNode<K, V>>(INITIAL_HEIGHT);
-    for (int i = 0; i < INITIAL_HEIGHT; i++) {
-      front.add(null);
-    } // for
+    this(comparator, false);
+  } // SkipList(Comparator<K>)
+
+  /**
+   * Create a new skip list that orders values using the specified comparator. If indexed is
+   * true, the list also keeps track of how many entries each link skips, so that rank, select,
+   * getByIndex and removeByIndex take O(log n) time. That costs an int per link.
+   */
+  public SkipList(Comparator<K> comparator, boolean indexed) {
+    this(comparator, indexed, 0.5);
+  } // SkipList(Comparator<K>, boolean)
+
+  /**
+   * Create a new skip list in which each node reaches the next level up with probability prob.
+   * Smaller values (1/4, say) make shorter towers, so nodes take less memory, at the price of a
+   * few more comparisons per search.
+   *
+   * @throws IllegalArgumentException if prob is not between 0 and 1.
+   */
+  public SkipList(Comparator<K> comparator, boolean indexed, double prob) {
+    this(comparator, indexed, prob, null);
+  } // SkipList(Comparator<K>, boolean, double)
+
+  /**
+   * Create a new skip list that keeps a prefix of each key in its node. Searches compare
+   * prefixes first and call the comparator only when they are equal.
+   */
+  public SkipList(Comparator<K> comparator, KeyPrefix<K> prefixes) {
+    this(comparator, false, 0.5, prefixes);
+  } // SkipList(Comparator<K>, KeyPrefix<K>)
+
+  /**
+   * Create a new skip list with every option: see the other constructors.
+   *
+   * @throws IllegalArgumentException if prob is not between 0 and 1.
+   */
+  public SkipList(Comparator<K> comparator, boolean indexed, double prob,
+      KeyPrefix<K> prefixes) {
+    if (!(prob > 0 && prob < 1)) {
+      throw new IllegalArgumentException("prob must be between 0 and 1: " + prob);
+    } // if
+    this.indexed = indexed;
+    this.prob = prob;
+    this.levelScale = 1 / Math.log(1 / prob);
+    this.levels = LevelGenerator.random(prob);
     this.comparator = comparator;
+    this.prefixes = prefixes;
+    this.head = newNode(null, null, INITIAL_CAPACITY);
+    this.tail = this.head;
+    this.update = SLNode.links(INITIAL_CAPACITY);
+    this.updateRank = new int[INITIAL_CAPACITY];
     this.size = 0;
-    this.height = INITIAL_HEIGHT;
-  } // SkipList(Comparator<K>)
+    this.height = 1;
+  } // SkipList(Comparator<K>, boolean, double, KeyPrefix<K>)
 
   /**
-   * Create a new skip list that orders values using a not-very-clever default comparator.
+   * Create a new skip list that orders keys by their natural order if they are Comparable, and
+   * by their string forms otherwise.
    */
+  @SuppressWarnings("unchecked")
   public SkipList() {
-    this((k1, k2) -> k1.toString().compareTo(k2.toString()));
+    this((Comparator<K>) DEFAULT_ORDER);
   } // SkipList()
 
 
@@ -86,79 +246,36 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
 
 
   public void frontUpdate(int newLevel) {
-    // Store old front array temporarily
-    ArrayList<SLNode<K, V>> oldFront = this.front;
-    // Create new front array
-    this.front = new ArrayList<SLNode<K, V>>(newLevel);
-
-    // Copy old values from smaller original front array
-    for (int i = 0; i < this.height; i++) {
-      this.front.add(oldFront.get(i));
-    } // for
-
-    // Add placeholders for new levels of front array
-    for (int i = this.height; i <= newLevel; i++) {
-      this.front.add(null);
-    } // for
-
-    // Update height
-    this.height = newLevel;
+    // Copy the old front array into a larger one; the new levels start out null. Readers without
+    // the lock must not see the new array before the links copied into it.
+    SLNode.setLinks(this.head, Arrays.copyOf(this.head.next, newLevel));
+    this.update = Arrays.copyOf(this.update, newLevel);
+    this.updateRank = Arrays.copyOf(this.updateRank, newLevel);
+    if (this.indexed) {
+      ISLNode<K, V> head = (ISLNode<K, V>) this.head;
+      head.width = Arrays.copyOf(head.width, newLevel);
+    } // if
+    if (this.stats != null) {
+      this.stats.frontUpdates.increment();
+    } // if
   }
 
   @Override
   public V set(K key, V value) {
-    // Store value for return
-    V result = value;
-    // Generate new level
-    int newLevel = randomHeight();
-
-    // Alter front if front is shorter than new height
-    if (newLevel > this.height) {
-      frontUpdate(newLevel);
-      this.height = newLevel;
-    }
-
-    // Move through list and find the location for the new element to be inserted
-    ArrayList<SLNode<K, V>> update = new ArrayList<SLNode<K, V>>(this.height);
-    SLNode<K, V> current = new SLNode<K, V>(null, null, this.height);
-    for (int i = 0; i < this.height; i++) {
-      update.add(current);
-      current.next.set(i, this.front.get(i));
-    }
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
 
-    for (int i = this.height - 1; i >= 0; i--) {
-      while (current.next.get(i) != null && current.next.get(i).key != null
-          && this.comparator.compare(key, current.next.get(i).key) > 0) {
-        current = current.next.get(i);
-      } // while
-      update.set(i, current);
-    } // for
-    // Check for node update
-    current = current.next.get(0);
-    if (current != null && current.key != null && this.comparator.compare(key, current.key) == 0) {
-      result = current.value;
-      current.value = value;
-      return result;
-    } else {
-      // If there is no node to update, make a new one and insert it
-      SLNode<K, V> newNode = new SLNode<K, V>(key, value, newLevel);
-
-      // Move through each pointer level
-      for (int i = 0; i < newLevel; i++) {
-        // Update each pointer in the new node
-        if (update.get(i).key == null) {
-          newNode.next.set(i, this.front.get(i));
-          this.front.set(i, newNode);
-        } else {
-          newNode.next.set(i, update.get(i).next.get(i));
-          // Update each pointer which should point to the new node
-          update.get(i).next.set(i, newNode);
-        }
-      }
-      // Increment size to reflect added entry
-      this.size++;
-      return result;
-    }
+    SkipListStats stats = this.stats;
+    long start = (stats == null) ? 0 : System.nanoTime();
+    // Find the location for the new element, remembering the predecessors at each level
+    findPredecessors(key);
+    V result = store(key, value);
+    if (stats != null) {
+      stats.sets.record(System.nanoTime() - start);
+    } // if
+    return result;
   } // set(K,V)
 
   @Override
@@ -168,21 +285,15 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       throw new NullPointerException("null key");
     } // if
 
-    // Create node to track iteration down the list
-    SLNode<K, V> current = new SLNode<K, V>(null, null, this.height);
-    for (int i = 0; i < this.height; i++) {
-      current.next.set(i, this.front.get(i));
-    }
-    // Iterate down the skip list
-    for (int i = this.height - 1; i >= 0; i--) {
-      while (current.next.get(i) != null && current.next.get(i).key != null
-          && this.comparator.compare(key, current.next.get(i).key) >= 0) {
-        current = current.next.get(i);
-      } // while
-    } // for
+    SkipListStats stats = this.stats;
+    long start = (stats == null) ? 0 : System.nanoTime();
     // If the key is found, return the value
-    if (current.key != null && this.comparator.compare(key, current.key) == 0) {
-      return current.value;
+    SLNode<K, V> node = find(key);
+    if (stats != null) {
+      stats.gets.record(System.nanoTime() - start);
+    } // if
+    if (node != null) {
+      return node.value;
     } else {
       return null;
     }
@@ -195,7 +306,18 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
 
   @Override
   public boolean containsKey(K key) {
-    return get(key) != null;
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    SkipListStats stats = this.stats;
+    long start = (stats == null) ? 0 : System.nanoTime();
+    SLNode<K, V> node = find(key);
+    if (stats != null) {
+      stats.gets.record(System.nanoTime() - start);
+    } // if
+    return node != null;
   } // containsKey(K)
 
   @Override
@@ -205,42 +327,15 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       throw new NullPointerException("null key");
     } // if
 
-    // Create node and ArrayList to track current position in skip list
-    ArrayList<SLNode<K, V>> update = new ArrayList<SLNode<K, V>>(this.height);
-    SLNode<K, V> current = new SLNode<K, V>(null, null, this.height);
-    for (int i = 0; i < this.height; i++) {
-      update.add(current);
-      current.next.set(i, this.front.get(i));
-    } // for
-
-    // Iterate down the list
-    while (current.next.get(0) != null && current.next.get(0).key != null
-        && this.comparator.compare(key, current.next.get(0).key) > 0) {
-      current = current.next.get(0);
-      for (int i = 0; i < current.next.size(); i++) {
-        update.set(i, current);
-      } // for
-    } // while
-
-    // Check if the element to remove was found
-    if (current != null && current.key != null && this.comparator.compare(key, current.key) == 0) {
-      V result = current.value;
-      // Remove the element and rearrange pointers
-      for (int i = 0; i < this.height; i++) {
-        SLNode<K, V> updateNode = update.get(i);
-        if (updateNode.key == null) {
-          this.front.set(i, current.next.get(i));
-        } // if
-        else {
-          updateNode.next.set(i, current.next.get(i));
-        } // if (updateNode.key == null)
-      } // for
-      return result;
+    SkipListStats stats = this.stats;
+    long start = (stats == null) ? 0 : System.nanoTime();
+    // Find the node, remembering the predecessors at each level
+    findPredecessors(key);
+    V result = unlink(key);
+    if (stats != null) {
+      stats.removes.record(System.nanoTime() - start);
     } // if
-    // Return null if element to be removed is not found
-    else {
-      return null;
-    } // else
+    return result;
   } // remove(K)
 
   @Override
@@ -289,51 +384,87 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
 
   @Override
   public void forEach(BiConsumer<? super K, ? super V> action) {
-    SLNode<K, V> current = this.front.get(0);
-    System.out.println(this.front.get(0).key);
-    // while(current != null) {
-    // action(current.key, current.value);
-    // current = current.next.get(0);
-    // }
-
+    for (SLNode<K, V> current = this.head.next[0]; current != null; current = current.next[0]) {
+      action.accept(current.key, current.value);
+    } // for
   } // forEach
 
-  // +----------------------+----------------------------------------
-  // | Other public methods |
-  // +----------------------+
+  // +--------------------+------------------------------------------
+  // | Navigation methods |
+  // +--------------------+
 
   /**
-   * Dump the tree to some output location.
+   * Get the smallest key in the list.
+   *
+   * @return the key, or null if the list is empty.
    */
-  public void dump(PrintWriter pen) {
-    // Forthcoming
-  } // dump(PrintWriter)
+  public K firstKey() {
+    return keyOf(this.head.next[0]);
+  } // firstKey()
 
-  // +---------+-----------------------------------------------------
-  // | Helpers |
-  // +---------+
+  /**
+   * Get the largest key in the list.
+   *
+   * @return the key, or null if the list is empty.
+   */
+  public K lastKey() {
+    return keyOf(this.tail);
+  } // lastKey()
 
   /**
-   * Pick a random height for a new node.
+   * Get the largest key less than or equal to key, or null if there is none.
+   *
+   * @throws NullPointerException if the key is null.
    */
-  int randomHeight() {
-    int result = 1;
-    while (rand.nextDouble() < prob) {
-      result = result + 1;
-    }
-    return result;
-  } // randomHeight()
+  public K floorKey(K key) {
+    return keyOf(predecessor(key, true));
+  } // floorKey(K)
 
   /**
-   * Get an iterator for all of the nodes. (Useful for implementing the other iterators.)
+   * Get the largest key strictly less than key, or null if there is none.
+   *
+   * @throws NullPointerException if the key is null.
    */
-  Iterator<SLNode<K, V>> nodes() {
-    return new Iterator<SLNode<K, V>>() {
+  public K lowerKey(K key) {
+    return keyOf(predecessor(key, false));
+  } // lowerKey(K)
+
+  /**
+   * Get the smallest key greater than or equal to key, or null if there is none.
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public K ceilingKey(K key) {
+    return keyOf(predecessor(key, false).next[0]);
+  } // ceilingKey(K)
+
+  /**
+   * Get the smallest key strictly greater than key, or null if there is none.
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public K higherKey(K key) {
+    return keyOf(predecessor(key, true).next[0]);
+  } // higherKey(K)
 
+  /**
+   * Get an iterator for the entries whose keys are at least fromKey and less than toKey, in
+   * order. A null bound means that end of the range is open. The iterator finds its first entry
+   * in O(log n) and then follows level 0, so a scan costs O(log n + the number of entries).
+   * Setting the value of an entry updates the list.
+   */
+  public Iterator<Map.Entry<K, V>> range(K fromKey, K toKey) {
+    SLNode<K, V> first;
+    if (fromKey == null) {
+      first = this.head.next[0];
+    } else {
+      first = predecessor(fromKey, false).next[0];
+    } // if/else
+    return new Iterator<Map.Entry<K, V>>() {
       /**
-       * A reference to the next node to return.
+       * A reference to the next node to return, or null at the end of the range.
        */
-      SLNode<K, V> next = SkipList.this.front.get(0);
+      SLNode<K, V> next = inRange(first);
 
       @Override
       public boolean hasNext() {
@@ -341,66 +472,1049 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       } // hasNext()
 
       @Override
-      public SLNode<K, V> next() {
+      public Map.Entry<K, V> next() {
         if (this.next == null) {
-          throw new IllegalStateException();
+          throw new NoSuchElementException();
         }
         SLNode<K, V> temp = this.next;
-        this.next = this.next.next.get(0);
+        this.next = inRange(this.next.next[0]);
         return temp;
-      } // next();
+      } // next()
+
+      /**
+       * Return node if it is below toKey, and null otherwise.
+       */
+      SLNode<K, V> inRange(SLNode<K, V> node) {
+        if (node == null
+            || (toKey != null && SkipList.this.comparator.compare(node.key, toKey) >= 0)) {
+          return null;
+        } // if
+        return node;
+      } // inRange(SLNode<K, V>)
     }; // new Iterator
-  } // nodes()
+  } // range(K, K)
 
-  // +---------+-----------------------------------------------------
-  // | Helpers |
-  // +---------+
+  /**
+   * Get an iterator for the entries whose keys are at least fromKey and less than toKey, in
+   * reverse order. A null bound means that end of the range is open. The iterator finds its first
+   * entry in O(log n), or O(1) if toKey is null, and then follows the back links of level 0.
+   * Setting the value of an entry updates the list.
+   */
+  public Iterator<Map.Entry<K, V>> descendingRange(K fromKey, K toKey) {
+    SLNode<K, V> last = (toKey == null) ? this.tail : predecessor(toKey, false);
+    Iterator<SLNode<K, V>> nit = descendingNodes(last, fromKey);
+    return new Iterator<Map.Entry<K, V>>() {
+      @Override
+      public boolean hasNext() {
+        return nit.hasNext();
+      } // hasNext()
 
-} // class SkipList
+      @Override
+      public Map.Entry<K, V> next() {
+        return nit.next();
+      } // next()
+    }; // new Iterator
+  } // descendingRange(K, K)
 
+  /**
+   * Get an iterator for the keys, largest first.
+   */
+  public Iterator<K> descendingKeys() {
+    Iterator<SLNode<K, V>> nit = descendingNodes(this.tail, null);
+    return new Iterator<K>() {
+      @Override
+      public boolean hasNext() {
+        return nit.hasNext();
+      } // hasNext()
 
-/**
- * Nodes in the skip list.
- */
-class SLNode<K, V> {
+      @Override
+      public K next() {
+        return nit.next().key;
+      } // next()
+    }; // new Iterator
+  } // descendingKeys()
 
-  // +--------+------------------------------------------------------
-  // | Fields |
-  // +--------+
+  /**
+   * Get an iterator for the values, in reverse order of their keys.
+   */
+  public Iterator<V> descendingValues() {
+    Iterator<SLNode<K, V>> nit = descendingNodes(this.tail, null);
+    return new Iterator<V>() {
+      @Override
+      public boolean hasNext() {
+        return nit.hasNext();
+      } // hasNext()
+
+      @Override
+      public V next() {
+        return nit.next().value;
+      } // next()
+    }; // new Iterator
+  } // descendingValues()
+
+  // +------------------+--------------------------------------------
+  // | Batch operations |
+  // +------------------+
+
+  /**
+   * Get the values associated with many keys at once. The keys are visited in sorted order, and
+   * each search picks up from where the previous one ended, so keys that are close together
+   * cost O(log distance) rather than O(log n) each.
+   *
+   * @return the values, in the same order as the keys, with null for missing keys.
+   * @throws NullPointerException if a key is null.
+   */
+  public List<V> getAll(List<? extends K> keys) {
+    ArrayList<V> result = new ArrayList<V>(Collections.nCopies(keys.size(), (V) null));
+    resetFinger();
+    for (int index : sortedOrder(keys)) {
+      K key = keys.get(index);
+      SLNode<K, V> current = fingerSearch(key, this.update, this.updateRank).next[0];
+      if (current != null && this.comparator.compare(key, current.key) == 0) {
+        result.set(index, current.value);
+      } // if
+    } // for
+    return result;
+  } // getAll(List<? extends K>)
+
+  /**
+   * Set the values associated with many keys at once, visiting the keys in sorted order as
+   * getAll does. If a key appears more than once, the last entry for it wins.
+   *
+   * @throws NullPointerException if a key is null.
+   */
+  public void setAll(List<? extends Map.Entry<? extends K, ? extends V>> entries) {
+    ArrayList<K> keys = new ArrayList<K>(entries.size());
+    for (Map.Entry<? extends K, ? extends V> entry : entries) {
+      keys.add(entry.getKey());
+    } // for
+    resetFinger();
+    for (int index : sortedOrder(keys)) {
+      K key = keys.get(index);
+      fingerSearch(key, this.update, this.updateRank);
+      store(key, entries.get(index).getValue());
+    } // for
+  } // setAll(List)
+
+  /**
+   * Remove many keys at once, visiting the keys in sorted order as getAll does.
+   *
+   * @return the number of entries removed.
+   * @throws NullPointerException if a key is null.
+   */
+  public int removeAll(List<? extends K> keys) {
+    int before = this.size;
+    resetFinger();
+    for (int index : sortedOrder(keys)) {
+      K key = keys.get(index);
+      fingerSearch(key, this.update, this.updateRank);
+      unlink(key);
+    } // for
+    return before - this.size;
+  } // removeAll(List<? extends K>)
+
+  // +---------------+-----------------------------------------------
+  // | Index methods |
+  // +---------------+
+
+  /**
+   * Determine how many keys in the list are less than key.
+   *
+   * @throws UnsupportedOperationException if the list is not indexed.
+   * @throws NullPointerException if the key is null.
+   */
+  public int rank(K key) {
+    checkIndexed();
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    int pos = 0;
+    long prefix = prefix(key);
+    SLNode<K, V> current = this.head;
+    for (int i = this.height - 1; i >= 0; i--) {
+      while (current.next[i] != null && compare(key, prefix, current.next[i]) > 0) {
+        pos += ((ISLNode<K, V>) current).width[i];
+        current = current.next[i];
+      } // while
+    } // for
+    return pos;
+  } // rank(K)
 
   /**
-   * The key.
+   * Get the key at the given position in the list, counting from 0.
+   *
+   * @throws UnsupportedOperationException if the list is not indexed.
+   * @throws IndexOutOfBoundsException if there is no such position.
    */
-  K key;
+  public K select(int index) {
+    return nodeAt(index).key;
+  } // select(int)
 
   /**
-   * The value.
+   * Get the value at the given position in the list, counting from 0.
+   *
+   * @throws UnsupportedOperationException if the list is not indexed.
+   * @throws IndexOutOfBoundsException if there is no such position.
    */
-  V value;
+  public V getByIndex(int index) {
+    return nodeAt(index).value;
+  } // getByIndex(int)
 
   /**
-   * Pointers to the next nodes.
+   * Remove the entry at the given position in the list, counting from 0.
+   *
+   * @return the value that was removed.
+   * @throws UnsupportedOperationException if the list is not indexed.
+   * @throws IndexOutOfBoundsException if there is no such position.
    */
-  ArrayList<SLNode<K, V>> next;
+  public V removeByIndex(int index) {
+    return remove(nodeAt(index).key);
+  } // removeByIndex(int)
 
   // +--------------+------------------------------------------------
-  // | Constructors |
+  // | Bulk loading |
   // +--------------+
 
   /**
-   * Create a new node of height n with the specified key and value.
+   * Build a skip list from entries whose keys are in strictly increasing order, in linear time.
+   *
+   * @throws IllegalArgumentException if the keys are out of order.
    */
-  public SLNode(K key, V value, int n) {
-    this.key = key;
-    this.value = value;
-    this.next = new ArrayList<SLNode<K, V>>(n);
-    for (int i = 0; i < n; i++) {
-      this.next.add(null);
-    } // for
-  } // SLNode(K, V, int)
+  public static <K, V> SkipList<K, V> fromSorted(Comparator<K> comparator,
+      Iterator<? extends Map.Entry<K, V>> entries) {
+    SkipList<K, V> result = new SkipList<K, V>(comparator);
+    result.bulkLoad(entries, false);
+    return result;
+  } // fromSorted(Comparator<K>, Iterator)
 
-  // +---------+-----------------------------------------------------
-  // | Methods |
-  // +---------+
+  /**
+   * Fill an empty list from entries whose keys are in strictly increasing order, in a single
+   * pass. Each node is appended to the end of every level it reaches, so nothing is searched.
+   * If deterministic is true, towers are built in a fixed pattern (every (1/prob)th node reaches
+   * level 2, and so on) rather than at random.
+   *
+   * @throws IllegalStateException if the list is not empty.
+   * @throws IllegalArgumentException if the keys are out of order. The entries before the bad
+   *         one stay in the list.
+   * @throws NullPointerException if a key is null.
+   */
+  public void bulkLoad(Iterator<? extends Map.Entry<K, V>> entries, boolean deterministic) {
+    if (this.size != 0) {
+      throw new IllegalStateException("bulkLoad needs an empty list");
+    } // if
+    int base = (int) Math.round(1 / this.prob);
+    // update holds the last node on each level, and updateRank its position
+    resetFinger();
+    while (entries.hasNext()) {
+      Map.Entry<K, V> entry = entries.next();
+      int newLevel = deterministic ? patternHeight(this.size + 1, base) : randomHeight();
+      append(entry.getKey(), entry.getValue(), newLevel);
+    } // while
+    this.modCount++;
+  } // bulkLoad(Iterator, boolean)
+
+  // +---------------+-----------------------------------------------
+  // | Serialization |
+  // +---------------+
+
+  /**
+   * Write the list to a channel in a compact binary form: a header, then for each entry its
+   * height (if heights is true), then its key and value, each as a length and the bytes the codec
+   * makes. Lengths are varints. Entries stream through a single buffer, so nothing but the
+   * encoded bytes of one key or value is materialized at a time.
+   */
+  public void save(WritableByteChannel out, Codec<K> keys, Codec<V> values, boolean heights)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+    buffer.putLong(MAGIC);
+    buffer.putInt(FORMAT_VERSION);
+    buffer.put((byte) (heights ? 1 : 0));
+    buffer.putDouble(this.prob);
+    buffer.putInt(this.size);
+    for (SLNode<K, V> node = this.head.next[0]; node != null; node = node.next[0]) {
+      if (buffer.remaining() < 1 + 2 * VARINT_BYTES) {
+        drain(buffer, out);
+      } // if
+      if (heights) {
+        buffer.put((byte) node.next.length);
+      } // if
+      byte[] key = keys.encode(node.key);
+      putVarint(buffer, key.length);
+      putBytes(buffer, out, key);
+      // Values may be null, so their lengths are off by one
+      byte[] value = (node.value == null) ? null : values.encode(node.value);
+      if (buffer.remaining() < VARINT_BYTES) {
+        drain(buffer, out);
+      } // if
+      putVarint(buffer, (value == null) ? 0 : value.length + 1);
+      if (value != null) {
+        putBytes(buffer, out, value);
+      } // if
+    } // for
+    drain(buffer, out);
+  } // save(WritableByteChannel, Codec<K>, Codec<V>, boolean)
 
-} // SLNode<K,V>
+  /**
+   * Read a list written by save, in linear time: the entries arrive in order, so each node is
+   * simply appended to every level it reaches. If the heights were saved, the towers come back
+   * exactly as they were; otherwise they are chosen afresh.
+   *
+   * @throws IOException if the channel fails, or does not hold a saved list.
+   * @throws EOFException if the channel ends early.
+   */
+  public static <K, V> SkipList<K, V> load(ReadableByteChannel in, Comparator<K> comparator,
+      Codec<K> keys, Codec<V> values) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+    buffer.flip();
+    fill(buffer, in, HEADER_LENGTH);
+    if (buffer.getLong() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+      throw new IOException("not a saved skip list");
+    } // if
+    boolean heights = buffer.get() != 0;
+    double prob = buffer.getDouble();
+    // Checked here, so that a damaged file is an IOException rather than the constructor's
+    // IllegalArgumentException
+    if (!(prob > 0 && prob < 1)) {
+      throw new IOException("bad prob in saved skip list: " + prob);
+    } // if
+    SkipList<K, V> result = new SkipList<K, V>(comparator, false, prob);
+    int count = buffer.getInt();
+    result.resetFinger();
+    for (int i = 0; i < count; i++) {
+      int newLevel;
+      if (heights) {
+        fill(buffer, in, 1);
+        newLevel = buffer.get();
+        if (newLevel < 1) {
+          throw new IOException("bad height in saved skip list");
+        } // if
+      } else {
+        newLevel = result.randomHeight();
+      } // if/else
+      K key = keys.decode(getBytes(buffer, in, getVarint(buffer, in)));
+      int length = getVarint(buffer, in);
+      V value = (length == 0) ? null : values.decode(getBytes(buffer, in, length - 1));
+      result.append(key, value, newLevel);
+    } // for
+    result.modCount++;
+    return result;
+  } // load(ReadableByteChannel, Comparator<K>, Codec<K>, Codec<V>)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Get a cursor positioned at the first entry.
+   */
+  public SkipListCursor<K, V> cursor() {
+    return new SkipListCursor<K, V>(this);
+  } // cursor()
+
+  /**
+   * Get a spliterator over the entries, in key order. It splits along the express lanes, so
+   * parallel streams get balanced halves. Changing the list while it is in use throws
+   * ConcurrentModificationException.
+   */
+  public Spliterator<Map.Entry<K, V>> spliterator() {
+    return new SkipListSpliterator<K, V>(this);
+  } // spliterator()
+
+  /**
+   * Get a sequential stream of the entries, in key order.
+   */
+  public Stream<Map.Entry<K, V>> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  } // stream()
+
+  /**
+   * Get a parallel stream of the entries. The list must not change while the stream runs.
+   */
+  public Stream<Map.Entry<K, V>> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  } // parallelStream()
+
+  /**
+   * Start recording statistics about our operations, if we aren't already. Until this is
+   * called, we keep none, at the cost of a null check per operation.
+   *
+   * @return the statistics, which can also be registered with JMX.
+   */
+  public SkipListStats enableStats() {
+    if (this.stats == null) {
+      this.stats = new SkipListStats(this);
+    } // if
+    return this.stats;
+  } // enableStats()
+
+  /**
+   * Stop recording statistics. Those recorded so far stay readable through the object that
+   * enableStats returned.
+   */
+  public void disableStats() {
+    this.stats = null;
+  } // disableStats()
+
+  /**
+   * Get the statistics we are recording, or null if we aren't.
+   */
+  public SkipListStats stats() {
+    return this.stats;
+  } // stats()
+
+  /**
+   * Make the heights of new nodes repeatable: two lists seeded alike and given the same
+   * operations end up with the same shape.
+   */
+  public void seed(long seed) {
+    this.levels = LevelGenerator.seeded(this.prob, seed);
+  } // seed(long)
+
+  /**
+   * Dump the tree to some output location, one entry per line, each preceded by a bar for every
+   * level its tower reaches.
+   */
+  public void dump(PrintWriter pen) {
+    for (SLNode<K, V> node = this.head.next[0]; node != null; node = node.next[0]) {
+      pen.print("|".repeat(node.next.length));
+      pen.print(" ".repeat(Math.max(1, this.height + 1 - node.next.length)));
+      pen.println(node.key + ": " + node.value);
+    } // for
+    pen.flush();
+  } // dump(PrintWriter)
+
+  /**
+   * Report the estimated heap footprint per entry, along with what the same towers would cost if
+   * each node kept its forward pointers in an ArrayList.
+   */
+  public void footprint(PrintWriter pen) {
+    long arrayBytes = 0;
+    long listBytes = 0;
+    long levels = 0;
+    Iterator<SLNode<K, V>> nit = this.nodes();
+    while (nit.hasNext()) {
+      int n = nit.next().next.length;
+      levels += n;
+      arrayBytes += nodeBytes(n);
+      // An ArrayList adds its own header, a size field, and a modCount field
+      listBytes += nodeBytes(n) + align(HEADER_BYTES + REF_BYTES + 4 + 4);
+    } // while
+    pen.println("entries: " + this.size);
+    if (this.size > 0) {
+      pen.println("average height: " + (double) levels / this.size);
+      pen.println("bytes/entry (arrays): " + (double) arrayBytes / this.size);
+      pen.println("bytes/entry (ArrayList): " + (double) listBytes / this.size);
+    } // if
+    pen.flush();
+  } // footprint(PrintWriter)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Pick a random height for a new node, no taller than about log_{1/prob}(size), since taller
+   * towers would only add levels that searches pass straight through.
+   */
+  int randomHeight() {
+    int limit = 1 + HEIGHT_SLACK + (int) (Math.log(this.size + 1) * this.levelScale);
+    return this.levels.height(limit);
+  } // randomHeight()
+
+  /**
+   * Append a node of height newLevel after the last node on each level, given that update holds
+   * those nodes and updateRank their positions.
+   *
+   * @throws IllegalArgumentException if key does not follow the last key.
+   * @throws NullPointerException if the key is null.
+   */
+  void append(K key, V value, int newLevel) {
+    // Check for valid key, in order
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    SLNode<K, V> last = this.update[0];
+    if (last != this.head && this.comparator.compare(last.key, key) >= 0) {
+      throw new IllegalArgumentException("keys out of order: " + key + " after " + last.key);
+    } // if
+
+    int pos = this.size + 1;
+    if (newLevel > this.height) {
+      raise(newLevel);
+    } // if
+    if (this.stats != null) {
+      this.stats.height(newLevel);
+    } // if
+    SLNode<K, V> newNode = newNode(key, value, newLevel);
+    newNode.prev = last;
+    this.tail = newNode;
+    for (int i = 0; i < newLevel; i++) {
+      this.update[i].next[i] = newNode;
+      if (this.indexed) {
+        ((ISLNode<K, V>) this.update[i]).width[i] = pos - this.updateRank[i];
+      } // if
+      this.update[i] = newNode;
+      this.updateRank[i] = pos;
+    } // for
+    this.size++;
+  } // append(K, V, int)
+
+  /**
+   * Write out a buffer's contents and clear it.
+   */
+  static void drain(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    } // while
+    buffer.clear();
+  } // drain(ByteBuffer, WritableByteChannel)
+
+  /**
+   * Make sure a buffer that is being read holds at least n bytes, reading more if need be.
+   *
+   * @throws EOFException if the channel ends first.
+   */
+  static void fill(ByteBuffer buffer, ReadableByteChannel in, int n) throws IOException {
+    if (buffer.remaining() >= n) {
+      return;
+    } // if
+    buffer.compact();
+    while (buffer.position() < n) {
+      if (in.read(buffer) < 0) {
+        throw new EOFException("saved skip list ends early");
+      } // if
+    } // while
+    buffer.flip();
+  } // fill(ByteBuffer, ReadableByteChannel, int)
+
+  /**
+   * Write bytes, draining the buffer as often as it fills.
+   */
+  static void putBytes(ByteBuffer buffer, WritableByteChannel out, byte[] bytes)
+      throws IOException {
+    int offset = 0;
+    while (offset < bytes.length) {
+      if (!buffer.hasRemaining()) {
+        drain(buffer, out);
+      } // if
+      int n = Math.min(buffer.remaining(), bytes.length - offset);
+      buffer.put(bytes, offset, n);
+      offset += n;
+    } // while
+  } // putBytes(ByteBuffer, WritableByteChannel, byte[])
+
+  /**
+   * Read n bytes, refilling the buffer as often as it empties.
+   */
+  static byte[] getBytes(ByteBuffer buffer, ReadableByteChannel in, int n) throws IOException {
+    byte[] bytes = new byte[n];
+    int offset = 0;
+    while (offset < n) {
+      fill(buffer, in, 1);
+      int chunk = Math.min(buffer.remaining(), n - offset);
+      buffer.get(bytes, offset, chunk);
+      offset += chunk;
+    } // while
+    return bytes;
+  } // getBytes(ByteBuffer, ReadableByteChannel, int)
+
+  /**
+   * Write a non-negative int in seven-bit groups, low group first; all but the last byte have
+   * their high bit set.
+   */
+  static void putVarint(ByteBuffer buffer, int n) {
+    while ((n & ~0x7F) != 0) {
+      buffer.put((byte) ((n & 0x7F) | 0x80));
+      n >>>= 7;
+    } // while
+    buffer.put((byte) n);
+  } // putVarint(ByteBuffer, int)
+
+  /**
+   * Read an int written by putVarint.
+   *
+   * @throws IOException if it is malformed.
+   */
+  static int getVarint(ByteBuffer buffer, ReadableByteChannel in) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      fill(buffer, in, 1);
+      byte b = buffer.get();
+      result |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        if (result < 0) {
+          break;
+        } // if
+        return result;
+      } // if
+    } // for
+    throw new IOException("bad length in saved skip list");
+  } // getVarint(ByteBuffer, ReadableByteChannel)
+
+  /**
+   * Force a directory's entries to disk, so that files just renamed into it, or removed from it,
+   * stay that way after a crash.
+   */
+  static void forceDirectory(Path dir) throws IOException {
+    try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    } // try
+  } // forceDirectory(Path)
+
+  /**
+   * Raise the height of the list to newLevel, making room in the head if need be. The new levels
+   * are empty, so the head is their predecessor in update.
+   */
+  void raise(int newLevel) {
+    if (newLevel > this.head.next.length) {
+      frontUpdate(Math.max(newLevel, 2 * this.head.next.length));
+    } // if
+    for (int i = this.height; i < newLevel; i++) {
+      this.update[i] = this.head;
+      this.updateRank[i] = 0;
+    } // for
+    this.height = newLevel;
+  } // raise(int)
+
+  /**
+   * Pick the height for the node at position pos (counting from 1) when towers follow a fixed
+   * pattern: one more level for each time base divides pos.
+   */
+  static int patternHeight(int pos, int base) {
+    int result = 1;
+    while (base > 1 && pos % base == 0) {
+      pos /= base;
+      result = result + 1;
+    } // while
+    return result;
+  } // patternHeight(int, int)
+
+  /**
+   * Find the node with the given key.
+   *
+   * @return the node, or null if the key is not in the list.
+   */
+  SLNode<K, V> find(K key) {
+    long prefix = prefix(key);
+    SLNode<K, V> current = this.head;
+    int hops = 0;
+    int stops = 0;
+    // Iterate down the skip list
+    for (int i = this.height - 1; i >= 0; i--) {
+      while (current.next[i] != null && compare(key, prefix, current.next[i]) > 0) {
+        current = current.next[i];
+        hops++;
+      } // while
+      if (current.next[i] != null) {
+        stops++;
+      } // if
+    } // for
+    // Every hop and every stop short of the end of a level took a comparison
+    if (this.stats != null) {
+      this.stats.search(hops + stops, hops);
+    } // if
+    current = current.next[0];
+    if (current != null && compare(key, prefix, current) == 0) {
+      return current;
+    } // if
+    return null;
+  } // find(K)
+
+  /**
+   * Set the value associated with key, given that update holds the predecessors of key. The
+   * nodes in update stay valid predecessors for any key at least as large.
+   *
+   * @return the previous value associated with key (or null, if there's no such value)
+   */
+  V store(K key, V value) {
+    SLNode<K, V> current = this.update[0].next[0];
+
+    // Check for node update
+    if (current != null && this.comparator.compare(key, current.key) == 0) {
+      V result = current.value;
+      current.value = value;
+      return result;
+    } // if
+
+    // If there is no node to update, make a new one and insert it
+    int newLevel = randomHeight();
+    if (this.stats != null) {
+      this.stats.height(newLevel);
+    } // if
+
+    // Open up new levels if the node is taller than the list
+    if (newLevel > this.height) {
+      raise(newLevel);
+    } // if
+
+    SLNode<K, V> newNode = newNode(key, value, newLevel);
+    // Move through each pointer level, splicing the new node in after its predecessor. The
+    // splice is a release store, so a reader on another thread that sees the node sees it whole.
+    for (int i = 0; i < newLevel; i++) {
+      newNode.next[i] = this.update[i].next[i];
+      SLNode.setNext(this.update[i].next, i, newNode);
+    } // for
+    newNode.prev = this.update[0];
+    linkBack(newNode);
+    if (this.indexed) {
+      insertWidths((ISLNode<K, V>) newNode);
+    } // if
+
+    // Increment size to reflect added entry
+    this.size++;
+    this.modCount++;
+    return null;
+  } // store(K, V)
+
+  /**
+   * Remove the value with the given key, given that update holds the predecessors of key.
+   *
+   * @return The associated value (or null, if there is no associated value).
+   */
+  V unlink(K key) {
+    SLNode<K, V> current = this.update[0].next[0];
+
+    // Return null if element to be removed is not found
+    if (current == null || this.comparator.compare(key, current.key) != 0) {
+      return null;
+    } // if
+
+    // Remove the element and rearrange pointers
+    if (this.indexed) {
+      removeWidths((ISLNode<K, V>) current);
+    } // if
+    for (int i = 0; i < current.next.length; i++) {
+      SLNode.setNext(this.update[i].next, i, current.next[i]);
+    } // for
+    linkBack(this.update[0]);
+    // Drop any levels that are now empty, so searches don't start above the tallest node
+    while (this.height > 1 && this.head.next[this.height - 1] == null) {
+      this.height--;
+    } // while
+    this.size--;
+    this.modCount++;
+    return current.value;
+  } // unlink(K)
+
+  /**
+   * Point the node after node back at it, or make node the tail if it is last.
+   */
+  void linkBack(SLNode<K, V> node) {
+    if (node.next[0] == null) {
+      this.tail = node;
+    } else {
+      node.next[0].prev = node;
+    } // if/else
+  } // linkBack(SLNode<K, V>)
+
+  /**
+   * Make a node, with room for link widths if the list is indexed and for the key's prefix if
+   * we keep them.
+   */
+  SLNode<K, V> newNode(K key, V value, int n) {
+    if (this.prefixes == null) {
+      return this.indexed ? new ISLNode<K, V>(key, value, n) : new SLNode<K, V>(key, value, n);
+    } // if
+    // The head has no key, and is never compared
+    long prefix = (key == null) ? 0 : this.prefixes.prefix(key);
+    return this.indexed ? new PISLNode<K, V>(key, value, n, prefix)
+        : new PSLNode<K, V>(key, value, n, prefix);
+  } // newNode(K, V, int)
+
+  /**
+   * Complain unless the list is indexed.
+   */
+  void checkIndexed() {
+    if (!this.indexed) {
+      throw new UnsupportedOperationException("skip list is not indexed");
+    } // if
+  } // checkIndexed()
+
+  /**
+   * Find the node at a position, counting from 0, by following link widths.
+   */
+  SLNode<K, V> nodeAt(int index) {
+    checkIndexed();
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("index " + index + ", size " + this.size);
+    } // if
+    // The head is at position 0, so the node we want is at index + 1
+    int target = index + 1;
+    int pos = 0;
+    SLNode<K, V> current = this.head;
+    for (int i = this.height - 1; i >= 0; i--) {
+      while (current.next[i] != null && pos + ((ISLNode<K, V>) current).width[i] <= target) {
+        pos += ((ISLNode<K, V>) current).width[i];
+        current = current.next[i];
+      } // while
+    } // for
+    return current;
+  } // nodeAt(int)
+
+  /**
+   * Fix the link widths around a node that set just spliced in after the nodes in update.
+   */
+  void insertWidths(ISLNode<K, V> node) {
+    int pos = this.updateRank[0] + 1;
+    for (int i = 0; i < this.height; i++) {
+      ISLNode<K, V> pred = (ISLNode<K, V>) this.update[i];
+      if (i < node.next.length) {
+        // The node splits its predecessor's link in two
+        int before = pos - this.updateRank[i];
+        node.width[i] = (node.next[i] == null) ? 0 : pred.width[i] - before + 1;
+        pred.width[i] = before;
+      } else if (pred.next[i] != null) {
+        // The node lies under this link, which now skips one more entry
+        pred.width[i]++;
+      } // if/else
+    } // for
+  } // insertWidths(ISLNode<K, V>)
+
+  /**
+   * Fix the link widths around a node that remove is about to unlink from the nodes in update.
+   */
+  void removeWidths(ISLNode<K, V> node) {
+    for (int i = 0; i < this.height; i++) {
+      ISLNode<K, V> pred = (ISLNode<K, V>) this.update[i];
+      if (i < node.next.length) {
+        // The predecessor's link absorbs the node's link
+        pred.width[i] = (node.next[i] == null) ? 0 : pred.width[i] + node.width[i] - 1;
+      } else if (pred.next[i] != null) {
+        pred.width[i]--;
+      } // if/else
+    } // for
+  } // removeWidths(ISLNode<K, V>)
+
+  /**
+   * Find the last node whose key is less than key (or, if inclusive, less than or equal to key),
+   * without touching update.
+   *
+   * @return that node, or the head if there is none.
+   */
+  SLNode<K, V> predecessor(K key, boolean inclusive) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    int limit = inclusive ? 0 : 1;
+    long prefix = prefix(key);
+    SLNode<K, V> current = this.head;
+    for (int i = this.height - 1; i >= 0; i--) {
+      while (current.next[i] != null && compare(key, prefix, current.next[i]) >= limit) {
+        current = current.next[i];
+      } // while
+    } // for
+    return current;
+  } // predecessor(K, boolean)
+
+  /**
+   * Get the key of a node, treating the head and null as "no key".
+   */
+  K keyOf(SLNode<K, V> node) {
+    return (node == null) ? null : node.key;
+  } // keyOf(SLNode<K, V>)
+
+  /**
+   * Get the positions of keys in sorted order, so that we can visit them in order but report
+   * results in the caller's order. Sorting is stable, so equal keys stay in the caller's order.
+   *
+   * @throws NullPointerException if a key is null.
+   */
+  Integer[] sortedOrder(List<? extends K> keys) {
+    Integer[] order = new Integer[keys.size()];
+    for (int i = 0; i < order.length; i++) {
+      // Check for valid key
+      if (keys.get(i) == null) {
+        throw new NullPointerException("null key");
+      } // if
+      order[i] = i;
+    } // for
+    Arrays.sort(order, (i, j) -> this.comparator.compare(keys.get(i), keys.get(j)));
+    return order;
+  } // sortedOrder(List<? extends K>)
+
+  /**
+   * Point update at the head on every level, so that a finger search starts from scratch.
+   */
+  void resetFinger() {
+    for (int i = 0; i < this.height; i++) {
+      this.update[i] = this.head;
+      this.updateRank[i] = 0;
+    } // for
+  } // resetFinger()
+
+  /**
+   * Find the predecessors of key on each level, storing them in preds (and their positions in
+   * ranks), given that preds already holds valid predecessors for some key no larger than key.
+   * We climb only as high as we need to get past the nodes between the two keys, and search down
+   * from there, so the cost is O(log d) where d is how far apart the keys are.
+   *
+   * @return the predecessor on level 0.
+   */
+  SLNode<K, V> fingerSearch(K key, SLNode<K, V>[] preds, int[] ranks) {
+    // Climb while the next node on the level above still precedes key
+    long prefix = prefix(key);
+    int top = 0;
+    while (top + 1 < this.height && preds[top + 1].next[top + 1] != null
+        && compare(key, prefix, preds[top + 1].next[top + 1]) > 0) {
+      top++;
+    } // while
+    // Levels above top keep their predecessors; search down from top
+    SLNode<K, V> current = preds[top];
+    int pos = ranks[top];
+    for (int i = top; i >= 0; i--) {
+      while (current.next[i] != null && compare(key, prefix, current.next[i]) > 0) {
+        if (this.indexed) {
+          pos += ((ISLNode<K, V>) current).width[i];
+        } // if
+        current = current.next[i];
+      } // while
+      preds[i] = current;
+      ranks[i] = pos;
+    } // for
+    return current;
+  } // fingerSearch(K, SLNode[], int[])
+
+  /**
+   * Find the last node on each level whose key precedes key, storing them in update. If the list
+   * is indexed, also store their positions in updateRank.
+   *
+   * @return the predecessor on level 0.
+   */
+  SLNode<K, V> findPredecessors(K key) {
+    long prefix = prefix(key);
+    SLNode<K, V> current = this.head;
+    int pos = 0;
+    int hops = 0;
+    int stops = 0;
+    for (int i = this.height - 1; i >= 0; i--) {
+      while (current.next[i] != null && compare(key, prefix, current.next[i]) > 0) {
+        if (this.indexed) {
+          pos += ((ISLNode<K, V>) current).width[i];
+        } // if
+        current = current.next[i];
+        hops++;
+      } // while
+      if (current.next[i] != null) {
+        stops++;
+      } // if
+      this.update[i] = current;
+      this.updateRank[i] = pos;
+    } // for
+    if (this.stats != null) {
+      this.stats.search(hops + stops, hops);
+    } // if
+    return current;
+  } // findPredecessors(K)
+
+  /**
+   * Get the prefix of key, or 0 if we don't keep prefixes.
+   */
+  long prefix(K key) {
+    return (this.prefixes == null) ? 0 : this.prefixes.prefix(key);
+  } // prefix(K)
+
+  /**
+   * Compare key, whose prefix is prefix, with the key of node. Unequal prefixes settle it
+   * without looking at the node's key.
+   */
+  int compare(K key, long prefix, SLNode<K, V> node) {
+    if (this.prefixes != null) {
+      long other = this.indexed ? ((PISLNode<K, V>) node).prefix : ((PSLNode<K, V>) node).prefix;
+      if (prefix != other) {
+        return (prefix < other) ? -1 : 1;
+      } // if
+    } // if
+    return this.comparator.compare(key, node.key);
+  } // compare(K, long, SLNode<K, V>)
+
+  /**
+   * Estimate the bytes used by a node of height n, not counting its key and value.
+   */
+  static long nodeBytes(int n) {
+    return align(HEADER_BYTES + 4 * REF_BYTES)
+        + align(ARRAY_HEADER_BYTES + n * REF_BYTES);
+  } // nodeBytes(int)
+
+  /**
+   * Round a size up to the JVM's eight-byte object alignment.
+   */
+  static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  } // align(long)
+
+  /**
+   * Get an iterator for all of the nodes. (Useful for implementing the other iterators.)
+   */
+  Iterator<SLNode<K, V>> nodes() {
+    return new Iterator<SLNode<K, V>>() {
+
+      /**
+       * A reference to the next node to return.
+       */
+      SLNode<K, V> next = SkipList.this.head.next[0];
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      } // hasNext()
+
+      @Override
+      public SLNode<K, V> next() {
+        if (this.next == null) {
+          throw new IllegalStateException();
+        }
+        SLNode<K, V> temp = this.next;
+        this.next = this.next.next[0];
+        return temp;
+      } // next();
+    }; // new Iterator
+  } // nodes()
+
+  /**
+   * Get an iterator that walks back along level 0 from last (which may be the head), stopping
+   * before the head or before the first key less than fromKey, if fromKey is not null.
+   */
+  Iterator<SLNode<K, V>> descendingNodes(SLNode<K, V> last, K fromKey) {
+    return new Iterator<SLNode<K, V>>() {
+
+      /**
+       * A reference to the next node to return, or null at the end.
+       */
+      SLNode<K, V> next = inRange(last);
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      } // hasNext()
+
+      @Override
+      public SLNode<K, V> next() {
+        if (this.next == null) {
+          throw new NoSuchElementException();
+        } // if
+        SLNode<K, V> temp = this.next;
+        this.next = inRange(this.next.prev);
+        return temp;
+      } // next()
+
+      /**
+       * Return node if it is an entry at or above fromKey, and null otherwise.
+       */
+      SLNode<K, V> inRange(SLNode<K, V> node) {
+        if (node == SkipList.this.head
+            || (fromKey != null && SkipList.this.comparator.compare(node.key, fromKey) < 0)) {
+          return null;
+        } // if
+        return node;
+      } // inRange(SLNode<K, V>)
+    }; // new Iterator
+  } // descendingNodes(SLNode<K, V>, K)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+} // class SkipList
@@ -0,0 +1,305 @@
+import com.sun.management.ThreadMXBean;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks of skip list operations, with java.util.TreeMap and ConcurrentSkipListMap as
+ * baselines.
+ *
+ * For each map, size, and key order we report throughput, latency percentiles, and the bytes
+ * allocated per operation. Each measurement is preceded by an untimed warmup run of the same
+ * operations, so that the JIT has settled.
+ *
+ * Usage: java SkipListBenchmark [max-size] [prob ...]
+ */
+public class SkipListBenchmark {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of operations in each measured run.
+   */
+  static final int OPS = 200000;
+
+  /**
+   * The percentiles we report.
+   */
+  static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  // +---------------+-----------------------------------------------
+  // | Static Fields |
+  // +---------------+
+
+  /**
+   * Where we report results.
+   */
+  static PrintWriter pen = new PrintWriter(System.out, true);
+
+  /**
+   * How we count allocated bytes.
+   */
+  static ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /**
+   * Where measured operations put their results, so the JIT can't drop the work that made them.
+   */
+  static long sink;
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    int maxSize = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    double[] probs = {0.5};
+    if (args.length > 1) {
+      probs = new double[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        probs[i - 1] = Double.parseDouble(args[i]);
+      } // for
+    } // if
+
+    header();
+    for (int size = 1000; size <= maxSize; size *= 10) {
+      for (boolean sequential : new boolean[] {true, false}) {
+        Integer[] keys = keys(size, sequential);
+        for (double prob : probs) {
+          final double p = prob;
+          suite("SkipList p=" + prob, keys, sequential,
+              () -> new SkipList<Integer, Integer>((i, j) -> i - j, false, p));
+        } // for
+        suite("TreeMap", keys, sequential,
+            () -> new MapAdapter<Integer, Integer>(new TreeMap<Integer, Integer>()));
+        suite("ConcurrentSkipListMap", keys, sequential,
+            () -> new MapAdapter<Integer, Integer>(new ConcurrentSkipListMap<Integer, Integer>()));
+      } // for
+    } // for
+  } // main(String[])
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Run every workload against one kind of map.
+   */
+  static void suite(String name, Integer[] keys, boolean sequential,
+      Supplier<SimpleMap<Integer, Integer>> maker) {
+    int n = keys.length;
+    String label = name + " n=" + n + (sequential ? " seq" : " rand");
+    // Keys that are never in the map: the odd numbers
+    Integer[] misses = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      misses[i] = keys[i] + 1;
+    } // for
+
+    measure(label + " set", OPS, () -> {
+      SimpleMap<Integer, Integer> map = maker.get();
+      return (i) -> consume(map.set(keys[i % n], keys[i % n]));
+    });
+    SimpleMap<Integer, Integer> full = fill(maker.get(), keys);
+    measure(label + " get-hit", OPS, () -> (i) -> consume(full.get(keys[i % n])));
+    measure(label + " get-miss", OPS, () -> (i) -> consume(full.get(misses[i % n])));
+    measure(label + " remove", n, () -> {
+      SimpleMap<Integer, Integer> map = fill(maker.get(), keys);
+      return (i) -> consume(map.remove(keys[i]));
+    });
+    measure(label + " keys()", Math.max(1, OPS / n), () -> (i) -> {
+      Iterator<Integer> it = full.keys();
+      while (it.hasNext()) {
+        consume(it.next());
+      } // while
+    });
+    measure(label + " mixed", OPS, () -> {
+      SimpleMap<Integer, Integer> map = fill(maker.get(), keys);
+      Random random = new Random(n);
+      return (i) -> {
+        Integer key = keys[random.nextInt(n)];
+        int op = random.nextInt(10);
+        if (op < 8) {
+          consume(map.get(key));
+        } else if (op == 8) {
+          consume(map.set(key, key));
+        } else {
+          consume(map.remove(key));
+        } // if/else
+      };
+    });
+  } // suite(String, Integer[], boolean, Supplier)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Something to measure, called with the index of the operation.
+   */
+  interface Op {
+    void run(int i);
+  } // interface Op
+
+  /**
+   * Print the column headings.
+   */
+  static void header() {
+    pen.printf("%-48s %12s", "benchmark", "ops/s");
+    for (double p : PERCENTILES) {
+      pen.printf(" %9s", "p" + p);
+    } // for
+    pen.printf(" %10s%n", "bytes/op");
+  } // header()
+
+  /**
+   * Warm up and then measure ops operations made by a fresh setup, reporting one row. Setup
+   * happens outside the timed region, so an Op may close over a freshly built map.
+   */
+  static void measure(String label, int ops, Supplier<Op> setup) {
+    // Warm up
+    Op op = setup.get();
+    for (int i = 0; i < ops; i++) {
+      op.run(i);
+    } // for
+
+    // Time each operation for the percentiles, and the whole run for throughput
+    op = setup.get();
+    long[] latencies = new long[ops];
+    long tid = Thread.currentThread().getId();
+    long allocated = bean.getThreadAllocatedBytes(tid);
+    long start = System.nanoTime();
+    for (int i = 0; i < ops; i++) {
+      long before = System.nanoTime();
+      op.run(i);
+      latencies[i] = System.nanoTime() - before;
+    } // for
+    long elapsed = System.nanoTime() - start;
+    allocated = bean.getThreadAllocatedBytes(tid) - allocated;
+    report(label, ops, elapsed, latencies, allocated);
+    if (sink == 42) {
+      pen.println("unlikely");
+    } // if
+  } // measure(String, int, Supplier)
+
+  /**
+   * Use the result of an operation.
+   */
+  static void consume(Object result) {
+    if (result != null) {
+      sink += result.hashCode();
+    } // if
+  } // consume(Object)
+
+  /**
+   * Report one row of results. Latencies are in nanoseconds, and get sorted.
+   */
+  static void report(String label, int ops, long elapsed, long[] latencies, long allocated) {
+    Arrays.sort(latencies);
+    pen.printf("%-48s %12.0f", label, ops / (elapsed / 1e9));
+    for (double p : PERCENTILES) {
+      int index = (int) Math.min(latencies.length - 1, latencies.length * p / 100);
+      pen.printf(" %9d", latencies[index]);
+    } // for
+    pen.printf(" %10.1f%n", (double) allocated / ops);
+  } // report(String, int, long, long[], long)
+
+  /**
+   * Make n distinct even keys, either in increasing order or shuffled.
+   */
+  static Integer[] keys(int n, boolean sequential) {
+    Integer[] keys = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = 2 * i;
+    } // for
+    if (!sequential) {
+      Random random = new Random(n);
+      for (int i = n - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        Integer tmp = keys[i];
+        keys[i] = keys[j];
+        keys[j] = tmp;
+      } // for
+    } // if
+    return keys;
+  } // keys(int, boolean)
+
+  /**
+   * Add every key to a map.
+   */
+  static SimpleMap<Integer, Integer> fill(SimpleMap<Integer, Integer> map, Integer[] keys) {
+    for (int i = 0; i < keys.length; i++) {
+      map.set(keys[i], i);
+    } // for
+    return map;
+  } // fill(SimpleMap, Integer[])
+
+  // +-------------+-------------------------------------------------
+  // | Inner class |
+  // +-------------+
+
+  /**
+   * A java.util.Map dressed up as a SimpleMap, so that the baselines run the same code.
+   */
+  static class MapAdapter<K, V> implements SimpleMap<K, V> {
+    /**
+     * The underlying map.
+     */
+    final Map<K, V> map;
+
+    /**
+     * Adapt a map.
+     */
+    MapAdapter(Map<K, V> map) {
+      this.map = map;
+    } // MapAdapter(Map<K, V>)
+
+    @Override
+    public V set(K key, V value) {
+      return map.put(key, value);
+    } // set(K, V)
+
+    @Override
+    public V get(K key) {
+      return map.get(key);
+    } // get(K)
+
+    @Override
+    public int size() {
+      return map.size();
+    } // size()
+
+    @Override
+    public boolean containsKey(K key) {
+      return map.containsKey(key);
+    } // containsKey(K)
+
+    @Override
+    public V remove(K key) {
+      return map.remove(key);
+    } // remove(K)
+
+    @Override
+    public Iterator<K> keys() {
+      return map.keySet().iterator();
+    } // keys()
+
+    @Override
+    public Iterator<V> values() {
+      return map.values().iterator();
+    } // values()
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+      map.forEach(action);
+    } // forEach(BiConsumer)
+  } // class MapAdapter<K, V>
+
+} // class SkipListBenchmark
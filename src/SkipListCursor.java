@@ -0,0 +1,200 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A position in a skip list that remembers how it got there. The cursor keeps the predecessors
+ * of its entry on every level, so stepping to the next entry costs O(1) amortized, and seeking
+ * forward to a key d entries away costs O(log d) instead of a fresh O(log n) descent. Seeking
+ * backward starts over from the head.
+ *
+ * The cursor can change or remove its entry in place. If the list gains or loses nodes by any
+ * other route, the cursor notices and its next seek starts from the head; until then, its
+ * current entry may be stale.
+ */
+public class SkipListCursor<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The list we move through.
+   */
+  final SkipList<K, V> list;
+
+  /**
+   * The last node on each level whose key precedes the current entry.
+   */
+  SLNode<K, V>[] preds;
+
+  /**
+   * The positions of the nodes in preds, for indexed lists.
+   */
+  int[] ranks;
+
+  /**
+   * The node at the cursor, or null if the cursor has run off the end.
+   */
+  SLNode<K, V> current;
+
+  /**
+   * The list's modCount when preds was last known to be good.
+   */
+  int expectedModCount;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a cursor positioned at the first entry of list.
+   */
+  SkipListCursor(SkipList<K, V> list) {
+    this.list = list;
+    this.preds = SLNode.links(list.height);
+    this.ranks = new int[list.height];
+    first();
+  } // SkipListCursor(SkipList<K, V>)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Move to the first entry.
+   *
+   * @return true if there is one.
+   */
+  public boolean first() {
+    reset();
+    this.current = this.list.head.next[0];
+    return this.current != null;
+  } // first()
+
+  /**
+   * Move to the first entry whose key is at least key.
+   *
+   * @return true if that entry's key equals key.
+   * @throws NullPointerException if the key is null.
+   */
+  public boolean seek(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    // We can only pick up where we left off if we're going forward through an unchanged list
+    if (this.expectedModCount != this.list.modCount || this.current == null
+        || this.list.comparator.compare(key, this.current.key) < 0) {
+      reset();
+    } // if
+    this.current = this.list.fingerSearch(key, this.preds, this.ranks).next[0];
+    return this.current != null && this.list.comparator.compare(key, this.current.key) == 0;
+  } // seek(K)
+
+  /**
+   * Move to the next entry.
+   *
+   * @return true if there is one.
+   * @throws NoSuchElementException if the cursor has already run off the end.
+   */
+  public boolean next() {
+    check();
+    // The current node precedes everything after it, on every level it reaches. (If the list has
+    // changed, preds is stale anyway, and the next seek starts over.)
+    if (this.expectedModCount == this.list.modCount) {
+      int rank = this.ranks[0] + 1;
+      for (int i = 0; i < this.current.next.length; i++) {
+        this.preds[i] = this.current;
+        this.ranks[i] = rank;
+      } // for
+    } // if
+    this.current = this.current.next[0];
+    return this.current != null;
+  } // next()
+
+  /**
+   * Determine if the cursor is at an entry, rather than past the end.
+   */
+  public boolean valid() {
+    return this.current != null;
+  } // valid()
+
+  /**
+   * Get the key at the cursor.
+   *
+   * @throws NoSuchElementException if the cursor is past the end.
+   */
+  public K key() {
+    check();
+    return this.current.key;
+  } // key()
+
+  /**
+   * Get the value at the cursor.
+   *
+   * @throws NoSuchElementException if the cursor is past the end.
+   */
+  public V value() {
+    check();
+    return this.current.value;
+  } // value()
+
+  /**
+   * Change the value at the cursor.
+   *
+   * @return the old value.
+   * @throws NoSuchElementException if the cursor is past the end.
+   */
+  public V setValue(V value) {
+    check();
+    return this.current.setValue(value);
+  } // setValue(V)
+
+  /**
+   * Remove the entry at the cursor and move to the one after it.
+   *
+   * @return the value that was removed.
+   * @throws NoSuchElementException if the cursor is past the end.
+   * @throws IllegalStateException if the list has changed since the cursor last moved.
+   */
+  public V remove() {
+    check();
+    if (this.expectedModCount != this.list.modCount) {
+      throw new IllegalStateException("skip list changed under the cursor");
+    } // if
+    // Hand our predecessors to the list, which knows how to unlink a node
+    System.arraycopy(this.preds, 0, this.list.update, 0, this.preds.length);
+    System.arraycopy(this.ranks, 0, this.list.updateRank, 0, this.ranks.length);
+    V result = this.list.unlink(this.current.key);
+    this.expectedModCount = this.list.modCount;
+    this.current = this.preds[0].next[0];
+    return result;
+  } // remove()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Point every predecessor back at the head.
+   */
+  void reset() {
+    if (this.preds.length != this.list.height) {
+      this.preds = Arrays.copyOf(this.preds, this.list.height);
+      this.ranks = Arrays.copyOf(this.ranks, this.list.height);
+    } // if
+    Arrays.fill(this.preds, this.list.head);
+    Arrays.fill(this.ranks, 0);
+    this.expectedModCount = this.list.modCount;
+  } // reset()
+
+  /**
+   * Complain if the cursor is past the end.
+   */
+  void check() {
+    if (this.current == null) {
+      throw new NoSuchElementException("cursor is past the end");
+    } // if
+  } // check()
+
+} // class SkipListCursor<K, V>
@@ -0,0 +1,204 @@
+import java.util.ConcurrentModificationException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the entries of a skip list, in key order. It covers the nodes from current
+ * up to, but not including, fence.
+ *
+ * Splitting uses the express lanes. Starting at the highest level we may use, we walk each lane
+ * across our range; the first level with at least SPLIT_NODES nodes in the range gives us a
+ * split point, the middle one of those nodes. Each lane node at level i stands for about
+ * (1/prob)^i entries, so the halves come out roughly even, and a split costs O(log n).
+ */
+class SkipListSpliterator<K, V> implements Spliterator<Map.Entry<K, V>> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * How many lane nodes we want in the range before we pick the middle one. Lane nodes are
+   * spaced at random, so the middle of k of them misses the true middle by about 1/sqrt(k/2);
+   * with two or three the halves can be badly lopsided.
+   */
+  static final int SPLIT_NODES = 64;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The list we traverse.
+   */
+  final SkipList<K, V> list;
+
+  /**
+   * The next node to visit, or fence if there are none left.
+   */
+  SLNode<K, V> current;
+
+  /**
+   * The node just past our range, or null if we run to the end of the list.
+   */
+  final SLNode<K, V> fence;
+
+  /**
+   * A node on levels 0 through level that is either current or comes just before it (the head,
+   * for the first spliterator). We search the lanes from here. Null once traversal has begun,
+   * after which we no longer split.
+   */
+  SLNode<K, V> lane;
+
+  /**
+   * The highest level we may split on.
+   */
+  int level;
+
+  /**
+   * The number of entries in our range: exact for the first spliterator, estimated after a split.
+   */
+  long est;
+
+  /**
+   * Whether est is exact.
+   */
+  boolean sized;
+
+  /**
+   * The list's modCount when we were made.
+   */
+  final int expectedModCount;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a spliterator over a whole list.
+   */
+  SkipListSpliterator(SkipList<K, V> list) {
+    this(list, list.head.next[0], null, list.head, list.height - 1, list.size, true);
+  } // SkipListSpliterator(SkipList<K, V>)
+
+  /**
+   * Create a spliterator over part of a list.
+   */
+  SkipListSpliterator(SkipList<K, V> list, SLNode<K, V> current, SLNode<K, V> fence,
+      SLNode<K, V> lane, int level, long est, boolean sized) {
+    this.list = list;
+    this.current = current;
+    this.fence = fence;
+    this.lane = lane;
+    this.level = level;
+    this.est = est;
+    this.sized = sized;
+    this.expectedModCount = list.modCount;
+  } // SkipListSpliterator(SkipList, SLNode, SLNode, SLNode, int, long, boolean)
+
+  // +---------------------+-----------------------------------------
+  // | Spliterator methods |
+  // +---------------------+
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Map.Entry<K, V>> action) {
+    if (this.current == this.fence) {
+      return false;
+    } // if
+    SLNode<K, V> node = this.current;
+    this.current = node.next[0];
+    this.lane = null;
+    this.est--;
+    action.accept(node);
+    check();
+    return true;
+  } // tryAdvance(Consumer)
+
+  @Override
+  public void forEachRemaining(Consumer<? super Map.Entry<K, V>> action) {
+    SLNode<K, V> fence = this.fence;
+    for (SLNode<K, V> node = this.current; node != fence; node = node.next[0]) {
+      action.accept(node);
+    } // for
+    this.current = fence;
+    this.lane = null;
+    this.est = 0;
+    check();
+  } // forEachRemaining(Consumer)
+
+  @Override
+  public Spliterator<Map.Entry<K, V>> trySplit() {
+    if (this.lane == null) {
+      return null;
+    } // if
+    for (int i = this.level; i >= 0; i--) {
+      // Count the nodes on this lane that lie strictly inside our range
+      int count = 0;
+      for (SLNode<K, V> node = this.lane.next[i]; node != this.fence && node != null
+          && (this.fence == null || precedes(node, this.fence)); node = node.next[i]) {
+        if (node != this.current) {
+          count++;
+        } // if
+      } // for
+      if (count >= SPLIT_NODES || (i == 0 && count >= 1)) {
+        // Walk to the middle one and hand off everything before it
+        SLNode<K, V> mid = this.lane.next[i];
+        if (mid == this.current) {
+          mid = mid.next[i];
+        } // if
+        for (int j = 0; j < count / 2; j++) {
+          mid = mid.next[i];
+        } // for
+        long prefixEst = this.est * (count / 2 + 1) / (count + 1);
+        SkipListSpliterator<K, V> prefix = new SkipListSpliterator<K, V>(this.list, this.current,
+            mid, this.lane, i, prefixEst, false);
+        this.current = mid;
+        this.lane = mid;
+        this.level = i;
+        this.est -= prefixEst;
+        this.sized = false;
+        return prefix;
+      } // if
+    } // for
+    return null;
+  } // trySplit()
+
+  @Override
+  public long estimateSize() {
+    return this.est;
+  } // estimateSize()
+
+  @Override
+  public int characteristics() {
+    return Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+        | (this.sized ? Spliterator.SIZED : 0);
+  } // characteristics()
+
+  @Override
+  public Comparator<? super Map.Entry<K, V>> getComparator() {
+    return Map.Entry.comparingByKey(this.list.comparator);
+  } // getComparator()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Determine if node a comes before node b.
+   */
+  boolean precedes(SLNode<K, V> a, SLNode<K, V> b) {
+    return this.list.comparator.compare(a.key, b.key) < 0;
+  } // precedes(SLNode<K, V>, SLNode<K, V>)
+
+  /**
+   * Complain if the list has gained or lost nodes since we were made.
+   */
+  void check() {
+    if (this.expectedModCount != this.list.modCount) {
+      throw new ConcurrentModificationException();
+    } // if
+  } // check()
+
+} // class SkipListSpliterator<K, V>
@@ -0,0 +1,292 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for a skip list: how long each get, set, and remove takes, how
+ * many comparisons and pointer hops each search makes, how tall new nodes are, and how often the
+ * head grows. A list only keeps statistics once enableStats is called; until then, each
+ * operation pays for one null check.
+ *
+ * Everything is safe to read and record from several threads, so a list behind a lock that lets
+ * readers in concurrently (like StampedSkipList) can share one. Level occupancy and the memory
+ * estimate are worked out on demand by walking the list, so they are approximate if it is
+ * changing at the time.
+ */
+public class SkipListStats implements SkipListStatsMBean {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The list we describe.
+   */
+  final SkipList<?, ?> list;
+
+  /**
+   * Latencies of gets (including containsKey), sets, and removes, in nanoseconds.
+   */
+  final Histogram gets = new Histogram();
+
+  final Histogram sets = new Histogram();
+
+  final Histogram removes = new Histogram();
+
+  /**
+   * The number of searches from the head, and the comparisons and hops they made.
+   */
+  final LongAdder searches = new LongAdder();
+
+  final LongAdder comparisons = new LongAdder();
+
+  final LongAdder hops = new LongAdder();
+
+  /**
+   * The number of times the head grew.
+   */
+  final LongAdder frontUpdates = new LongAdder();
+
+  /**
+   * The number of new nodes of each height; heights[h] counts height h + 1.
+   */
+  final AtomicLongArray heights = new AtomicLongArray(Long.SIZE);
+
+  /**
+   * The name we are registered under with JMX, or null.
+   */
+  ObjectName name;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create statistics for list, all zero.
+   */
+  SkipListStats(SkipList<?, ?> list) {
+    this.list = list;
+  } // SkipListStats(SkipList<?, ?>)
+
+  // +-----------+---------------------------------------------------
+  // | Recording |
+  // +-----------+
+
+  /**
+   * Note a search from the head.
+   */
+  void search(int comparisons, int hops) {
+    this.searches.increment();
+    this.comparisons.add(comparisons);
+    this.hops.add(hops);
+  } // search(int, int)
+
+  /**
+   * Note a new node of height n.
+   */
+  void height(int n) {
+    this.heights.incrementAndGet(Math.min(n, Long.SIZE) - 1);
+  } // height(int)
+
+  // +-------------+-------------------------------------------------
+  // | Other stats |
+  // +-------------+
+
+  /**
+   * Get the latency histogram for one kind of operation. (The MBean reports its percentiles.)
+   */
+  public Histogram latencies(Op op) {
+    switch (op) {
+      case GET:
+        return this.gets;
+      case SET:
+        return this.sets;
+      default:
+        return this.removes;
+    } // switch
+  } // latencies(Op)
+
+  /**
+   * Register with the platform MBean server as SkipList:type=SkipListStats,name=name.
+   *
+   * @throws JMException if the name is taken or malformed.
+   */
+  public ObjectName register(String name) throws JMException {
+    ObjectName objectName =
+        new ObjectName("SkipList:type=SkipListStats,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    this.name = objectName;
+    return objectName;
+  } // register(String)
+
+  /**
+   * Unregister from the platform MBean server, if we are registered.
+   *
+   * @throws JMException if the server no longer knows us.
+   */
+  public void unregister() throws JMException {
+    if (this.name != null) {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+      this.name = null;
+    } // if
+  } // unregister()
+
+  @Override
+  public String toString() {
+    return String.format("size=%d gets=%d sets=%d removes=%d comparisons/search=%.1f "
+        + "hops/search=%.1f frontUpdates=%d get p50/p99/p99.9=%d/%d/%d ns", getSize(), getGets(),
+        getSets(), getRemoves(), getComparisonsPerSearch(), getHopsPerSearch(),
+        getFrontUpdates(), getGetP50Nanos(), getGetP99Nanos(), getGetP999Nanos());
+  } // toString()
+
+  // +----------------------------+----------------------------------
+  // | SkipListStatsMBean methods |
+  // +----------------------------+
+
+  @Override
+  public int getSize() {
+    return this.list.size;
+  } // getSize()
+
+  @Override
+  public long getGets() {
+    return this.gets.count();
+  } // getGets()
+
+  @Override
+  public long getSets() {
+    return this.sets.count();
+  } // getSets()
+
+  @Override
+  public long getRemoves() {
+    return this.removes.count();
+  } // getRemoves()
+
+  @Override
+  public long getSearches() {
+    return this.searches.sum();
+  } // getSearches()
+
+  @Override
+  public double getComparisonsPerSearch() {
+    return (double) this.comparisons.sum() / Math.max(1, this.searches.sum());
+  } // getComparisonsPerSearch()
+
+  @Override
+  public double getHopsPerSearch() {
+    return (double) this.hops.sum() / Math.max(1, this.searches.sum());
+  } // getHopsPerSearch()
+
+  @Override
+  public long getFrontUpdates() {
+    return this.frontUpdates.sum();
+  } // getFrontUpdates()
+
+  @Override
+  public long[] getHeightCounts() {
+    // Leave off the heights no node has
+    int n = this.heights.length();
+    while (n > 0 && this.heights.get(n - 1) == 0) {
+      n--;
+    } // while
+    long[] result = new long[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = this.heights.get(i);
+    } // for
+    return result;
+  } // getHeightCounts()
+
+  @Override
+  public long[] getLevelOccupancy() {
+    long[] result = new long[this.list.height];
+    for (SLNode<?, ?> node = this.list.head.next[0]; node != null; node = node.next[0]) {
+      for (int i = 0; i < node.next.length && i < result.length; i++) {
+        result[i]++;
+      } // for
+    } // for
+    return result;
+  } // getLevelOccupancy()
+
+  @Override
+  public long getEstimatedBytes() {
+    long result = SkipList.nodeBytes(this.list.head.next.length);
+    for (SLNode<?, ?> node = this.list.head.next[0]; node != null; node = node.next[0]) {
+      result += SkipList.nodeBytes(node.next.length);
+    } // for
+    return result;
+  } // getEstimatedBytes()
+
+  @Override
+  public long getGetP50Nanos() {
+    return this.gets.percentile(50);
+  } // getGetP50Nanos()
+
+  @Override
+  public long getGetP99Nanos() {
+    return this.gets.percentile(99);
+  } // getGetP99Nanos()
+
+  @Override
+  public long getGetP999Nanos() {
+    return this.gets.percentile(99.9);
+  } // getGetP999Nanos()
+
+  @Override
+  public long getSetP50Nanos() {
+    return this.sets.percentile(50);
+  } // getSetP50Nanos()
+
+  @Override
+  public long getSetP99Nanos() {
+    return this.sets.percentile(99);
+  } // getSetP99Nanos()
+
+  @Override
+  public long getSetP999Nanos() {
+    return this.sets.percentile(99.9);
+  } // getSetP999Nanos()
+
+  @Override
+  public long getRemoveP50Nanos() {
+    return this.removes.percentile(50);
+  } // getRemoveP50Nanos()
+
+  @Override
+  public long getRemoveP99Nanos() {
+    return this.removes.percentile(99);
+  } // getRemoveP99Nanos()
+
+  @Override
+  public long getRemoveP999Nanos() {
+    return this.removes.percentile(99.9);
+  } // getRemoveP999Nanos()
+
+  @Override
+  public void reset() {
+    this.gets.reset();
+    this.sets.reset();
+    this.removes.reset();
+    this.searches.reset();
+    this.comparisons.reset();
+    this.hops.reset();
+    this.frontUpdates.reset();
+    for (int i = 0; i < this.heights.length(); i++) {
+      this.heights.set(i, 0);
+    } // for
+  } // reset()
+
+  // +-------------+-------------------------------------------------
+  // | Inner class |
+  // +-------------+
+
+  /**
+   * The operations we time.
+   */
+  public enum Op {
+    GET, SET, REMOVE
+  } // enum Op
+
+} // class SkipListStats
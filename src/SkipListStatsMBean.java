@@ -0,0 +1,76 @@
+/**
+ * The statistics of an instrumented skip list, as seen through JMX. See SkipListStats.
+ */
+public interface SkipListStatsMBean {
+
+  /**
+   * The number of entries in the list.
+   */
+  public int getSize();
+
+  /**
+   * The number of gets (including containsKey), sets, and removes.
+   */
+  public long getGets();
+
+  public long getSets();
+
+  public long getRemoves();
+
+  /**
+   * The number of searches from the head, and their average cost.
+   */
+  public long getSearches();
+
+  public double getComparisonsPerSearch();
+
+  public double getHopsPerSearch();
+
+  /**
+   * The number of times the head had to grow.
+   */
+  public long getFrontUpdates();
+
+  /**
+   * The number of new nodes of each height, starting with height 1.
+   */
+  public long[] getHeightCounts();
+
+  /**
+   * The number of nodes on each level, starting with level 0. Walks the whole list.
+   */
+  public long[] getLevelOccupancy();
+
+  /**
+   * The estimated heap footprint of the nodes, not counting keys and values. Walks the whole
+   * list.
+   */
+  public long getEstimatedBytes();
+
+  /**
+   * Latency percentiles, in nanoseconds.
+   */
+  public long getGetP50Nanos();
+
+  public long getGetP99Nanos();
+
+  public long getGetP999Nanos();
+
+  public long getSetP50Nanos();
+
+  public long getSetP99Nanos();
+
+  public long getSetP999Nanos();
+
+  public long getRemoveP50Nanos();
+
+  public long getRemoveP99Nanos();
+
+  public long getRemoveP999Nanos();
+
+  /**
+   * Start counting again from zero.
+   */
+  public void reset();
+
+} // interface SkipListStatsMBean
@@ -1,7 +1,26 @@
+import com.sun.management.ThreadMXBean;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import static org.junit.Assert.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.Test;
@@ -70,6 +89,7 @@ public class SkipListTests {
     this.ints = new SkipList<Integer, String>((i, j) -> i - j);
     this.strings = new SkipList<String, String>((s, t) -> s.compareTo(t));
     this.operations = new ArrayList<String>();
+    seed(random.nextLong());
     System.err.println("SETUP");
   } // setup
 
@@ -145,6 +165,15 @@ public class SkipListTests {
   // | Logging operations |
   // +--------------------+
 
+  /**
+   * Seed both lists, so that a failing test can be replayed with the same node heights.
+   */
+  void seed(long seed) {
+    operations.add("seed(" + seed + "L);");
+    ints.seed(seed);
+    strings.seed(seed);
+  } // seed(long)
+
   /**
    * Set an entry in the ints list.
    */
@@ -191,6 +220,7 @@ public class SkipListTests {
   void printTest() {
     System.err.println("@Test");
     System.err.println("  public void test" + random.nextInt(1000) + "() {");
+    System.err.println("    setup();");
     for (String op : operations) {
       System.err.println("    " + op);
     } // for
@@ -360,6 +390,772 @@ public class SkipListTests {
     }
   } // sortedStringTest()
 
+  // +------------------+------------------------------------------------
+  // | Navigation Tests |
+  // +------------------+
+
+  /**
+   * Navigation on an empty list finds nothing.
+   */
+  @Test
+  public void emptyNavigationTest() {
+    setup();
+    assertNull(ints.firstKey());
+    assertNull(ints.lastKey());
+    assertNull(ints.floorKey(5));
+    assertNull(ints.ceilingKey(5));
+    assertFalse(ints.range(null, null).hasNext());
+  } // emptyNavigationTest()
+
+  /**
+   * Compare floor/ceiling/higher/lower and ranges with a TreeMap on random even keys.
+   */
+  @Test
+  public void navigationTest() {
+    setup();
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    for (int i = 0; i < 200; i++) {
+      int key = 2 * random.nextInt(500);
+      set(key);
+      expected.put(key, value(key));
+    } // for
+    assertEquals(expected.firstKey(), ints.firstKey());
+    assertEquals(expected.lastKey(), ints.lastKey());
+    for (int key = -1; key < 1002; key++) {
+      assertEquals("floorKey(" + key + ")", expected.floorKey(key), ints.floorKey(key));
+      assertEquals("lowerKey(" + key + ")", expected.lowerKey(key), ints.lowerKey(key));
+      assertEquals("ceilingKey(" + key + ")", expected.ceilingKey(key), ints.ceilingKey(key));
+      assertEquals("higherKey(" + key + ")", expected.higherKey(key), ints.higherKey(key));
+    } // for
+    for (int i = 0; i < 100; i++) {
+      int from = random.nextInt(1000);
+      int to = from + random.nextInt(100);
+      Iterator<Map.Entry<Integer, String>> it = ints.range(from, to);
+      for (Map.Entry<Integer, String> entry : expected.subMap(from, to).entrySet()) {
+        assertEquals(entry, it.next());
+      } // for
+      assertFalse(it.hasNext());
+    } // for
+  } // navigationTest()
+
+  /**
+   * The back links stay right through sets, removes, cursor removes, and bulk loads, so the
+   * descending views match a TreeMap's.
+   */
+  @Test
+  public void descendingTest() {
+    setup();
+    assertFalse(ints.descendingKeys().hasNext());
+    assertFalse(ints.descendingRange(null, 5).hasNext());
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    for (int step = 0; step < 2000; step++) {
+      int key = random.nextInt(200);
+      if (random.nextInt(3) > 0) {
+        set(key);
+        expected.put(key, value(key));
+      } else {
+        remove(key);
+        expected.remove(key);
+      } // if/else
+      assertEquals(expected.isEmpty() ? null : expected.lastKey(), ints.lastKey());
+    } // for
+    SkipListCursor<Integer, String> cursor = ints.cursor();
+    while (cursor.valid()) {
+      if (cursor.key() % 3 == 0) {
+        expected.remove(cursor.key());
+        cursor.remove();
+      } else {
+        cursor.next();
+      } // if/else
+    } // while
+    checkDescending(expected, ints);
+    checkDescending(expected, SkipList.fromSorted((i, j) -> i - j,
+        expected.entrySet().iterator()));
+    for (int i = 0; i < 100; i++) {
+      int from = random.nextInt(200);
+      int to = from + random.nextInt(50);
+      Iterator<Map.Entry<Integer, String>> it = ints.descendingRange(from, to);
+      for (Map.Entry<Integer, String> entry : expected.subMap(from, true, to, false)
+          .descendingMap().entrySet()) {
+        assertEquals(entry, it.next());
+      } // for
+      assertFalse(it.hasNext());
+    } // for
+  } // descendingTest()
+
+  /**
+   * Check the descending keys and values of a list against a TreeMap.
+   */
+  static void checkDescending(TreeMap<Integer, String> expected, SkipList<Integer, String> list) {
+    assertEquals(new ArrayList<Integer>(expected.descendingMap().keySet()),
+        toList(list.descendingKeys()));
+    assertEquals(new ArrayList<String>(expected.descendingMap().values()),
+        toList(list.descendingValues()));
+    assertEquals(expected.lastKey(), list.lastKey());
+  } // checkDescending(TreeMap, SkipList)
+
+  /**
+   * Collect what an iterator returns.
+   */
+  static <T> List<T> toList(Iterator<T> it) {
+    ArrayList<T> result = new ArrayList<T>();
+    it.forEachRemaining(result::add);
+    return result;
+  } // toList(Iterator<T>)
+
+  // +-------------+-----------------------------------------------------
+  // | Index Tests |
+  // +-------------+
+
+  /**
+   * Random sets and removes on an indexed list, checking rank and select against a sorted
+   * ArrayList after every step.
+   */
+  @Test
+  public void indexTest() {
+    setup();
+    ints = new SkipList<Integer, String>((i, j) -> i - j, true);
+    ArrayList<Integer> sorted = new ArrayList<Integer>();
+    for (int step = 0; step < 2000; step++) {
+      int key = random.nextInt(300);
+      int pos = Collections.binarySearch(sorted, key);
+      if (random.nextInt(3) > 0) {
+        set(key);
+        if (pos < 0) {
+          sorted.add(-pos - 1, key);
+        } // if
+      } else if (pos >= 0 && random.nextBoolean()) {
+        operations.add("removeByIndex(" + pos + ");");
+        assertEquals(value(key), ints.removeByIndex(pos));
+        sorted.remove(pos);
+      } else {
+        remove(key);
+        if (pos >= 0) {
+          sorted.remove(pos);
+        } // if
+      } // if/else
+      assertEquals(sorted.size(), ints.size());
+      for (int i = 0; i < sorted.size(); i++) {
+        if (!sorted.get(i).equals(ints.select(i))) {
+          printTest();
+          fail("select(" + i + ") returned " + ints.select(i) + " not " + sorted.get(i));
+        } // if
+      } // for
+      if (!sorted.isEmpty()) {
+        int i = random.nextInt(sorted.size());
+        assertEquals(value(sorted.get(i)), ints.getByIndex(i));
+      } // if
+      int probe = random.nextInt(310) - 5;
+      int expected = Collections.binarySearch(sorted, probe);
+      assertEquals("rank(" + probe + ")", (expected < 0) ? -expected - 1 : expected,
+          ints.rank(probe));
+    } // for
+    assertThrows(IndexOutOfBoundsException.class, () -> ints.select(ints.size()));
+    assertThrows(UnsupportedOperationException.class, () -> strings.select(0));
+  } // indexTest()
+
+  // +--------------------+------------------------------------------
+  // | Bulk Loading Tests |
+  // +--------------------+
+
+  /**
+   * Bulk loading sorted entries gives the same list as setting them one at a time.
+   */
+  @Test
+  public void bulkLoadTest() {
+    setup();
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    for (int i = 0; i < 500; i++) {
+      int key = random.nextInt(2000);
+      expected.put(key, value(key));
+    } // for
+    for (boolean deterministic : new boolean[] {false, true}) {
+      ints = new SkipList<Integer, String>((i, j) -> i - j, true);
+      ints.bulkLoad(expected.entrySet().iterator(), deterministic);
+      assertEquals(expected.size(), ints.size());
+      Iterator<Integer> it = ints.keys();
+      int index = 0;
+      for (Integer key : expected.keySet()) {
+        assertEquals(key, it.next());
+        assertTrue(ints.containsKey(key));
+        assertEquals(key, ints.select(index++));
+      } // for
+      assertFalse(it.hasNext());
+      // The result is an ordinary list afterwards
+      set(1);
+      set(5000);
+      assertEquals(value(5000), ints.get(5000));
+      assertEquals(value(1), ints.get(1));
+    } // for
+  } // bulkLoadTest()
+
+  /**
+   * Keys out of order are rejected.
+   */
+  @Test
+  public void bulkLoadOrderTest() {
+    setup();
+    ArrayList<Map.Entry<String, String>> entries = new ArrayList<Map.Entry<String, String>>();
+    entries.add(Map.entry("b", "B"));
+    entries.add(Map.entry("a", "A"));
+    assertThrows(IllegalArgumentException.class,
+        () -> SkipList.fromSorted((String s, String t) -> s.compareTo(t), entries.iterator()));
+    set("x");
+    assertThrows(IllegalStateException.class,
+        () -> strings.bulkLoad(entries.iterator(), false));
+  } // bulkLoadOrderTest()
+
+  // +---------------------+-----------------------------------------
+  // | Serialization Tests |
+  // +---------------------+
+
+  /**
+   * Saving and loading gives back the same entries, and the same towers if we keep them.
+   */
+  @Test
+  public void saveLoadTest() throws IOException {
+    setup();
+    for (int i = 0; i < 300; i++) {
+      set("k" + random.nextInt(1000));
+    } // for
+    strings.set("empty", "");
+    strings.set("none", null);
+    for (boolean heights : new boolean[] {false, true}) {
+      SkipList<String, String> copy = roundTrip(strings, heights);
+      assertEquals(strings.size(), copy.size());
+      SLNode<String, String> node = strings.head.next[0];
+      SLNode<String, String> other = copy.head.next[0];
+      while (node != null) {
+        assertEquals(node.key, other.key);
+        assertEquals(node.value, other.value);
+        if (heights) {
+          assertEquals(node.next.length, other.next.length);
+        } // if
+        node = node.next[0];
+        other = other.next[0];
+      } // while
+      assertNull(other);
+      assertTrue(copy.containsKey("none"));
+      assertNull(copy.get("none"));
+      // The copy is an ordinary list
+      copy.set("zzz", "Z");
+      assertEquals("Z", copy.get("zzz"));
+    } // for
+    assertEquals(0, roundTrip(new SkipList<String, String>(), true).size());
+  } // saveLoadTest()
+
+  /**
+   * Loading rejects input that is cut short or was never a saved list.
+   */
+  @Test
+  public void loadErrorTest() throws IOException {
+    setup();
+    for (int i = 0; i < 100; i++) {
+      set("k" + i);
+    } // for
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    strings.save(Channels.newChannel(bytes), Codec.STRING, Codec.STRING, true);
+    byte[] saved = bytes.toByteArray();
+    byte[] truncated = Arrays.copyOf(saved, saved.length - 3);
+    assertThrows(EOFException.class, () -> load(truncated));
+    byte[] corrupt = saved.clone();
+    corrupt[0]++;
+    assertThrows(IOException.class, () -> load(corrupt));
+    // A damaged prob is an IOException too, not the constructor's IllegalArgumentException
+    for (double prob : new double[] {0, 1, 2, Double.NaN}) {
+      byte[] badProb = saved.clone();
+      ByteBuffer.wrap(badProb).putDouble(Long.BYTES + Integer.BYTES + 1, prob);
+      assertThrows(IOException.class, () -> load(badProb));
+    } // for
+  } // loadErrorTest()
+
+  /**
+   * Save a list of strings and load it back.
+   */
+  static SkipList<String, String> roundTrip(SkipList<String, String> list, boolean heights)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    list.save(Channels.newChannel(bytes), Codec.STRING, Codec.STRING, heights);
+    return load(bytes.toByteArray());
+  } // roundTrip(SkipList<String, String>, boolean)
+
+  /**
+   * Load a list of strings from bytes.
+   */
+  static SkipList<String, String> load(byte[] bytes) throws IOException {
+    return SkipList.load(Channels.newChannel(new ByteArrayInputStream(bytes)),
+        (String s, String t) -> s.compareTo(t), Codec.STRING, Codec.STRING);
+  } // load(byte[])
+
+  // +-------------+-----------------------------------------------------
+  // | Batch Tests |
+  // +-------------+
+
+  /**
+   * Random batches of gets, sets, and removes, checked against a TreeMap, on an indexed list so
+   * that the link widths get checked too.
+   */
+  @Test
+  public void batchTest() {
+    setup();
+    ints = new SkipList<Integer, String>((i, j) -> i - j, true);
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    for (int round = 0; round < 50; round++) {
+      int n = random.nextInt(100);
+      ArrayList<Integer> keys = new ArrayList<Integer>();
+      ArrayList<Map.Entry<Integer, String>> entries = new ArrayList<Map.Entry<Integer, String>>();
+      for (int i = 0; i < n; i++) {
+        int key = random.nextInt(1000);
+        keys.add(key);
+        entries.add(Map.entry(key, "r" + round + "." + i));
+      } // for
+      switch (random.nextInt(3)) {
+        case 0:
+          ints.setAll(entries);
+          for (Map.Entry<Integer, String> entry : entries) {
+            expected.put(entry.getKey(), entry.getValue());
+          } // for
+          break;
+        case 1:
+          int removed = 0;
+          for (Integer key : keys) {
+            if (expected.remove(key) != null) {
+              removed++;
+            } // if
+          } // for
+          assertEquals(removed, ints.removeAll(keys));
+          break;
+        default:
+          List<String> values = ints.getAll(keys);
+          for (int i = 0; i < n; i++) {
+            assertEquals(expected.get(keys.get(i)), values.get(i));
+          } // for
+      } // switch
+      assertEquals(expected.size(), ints.size());
+      int index = 0;
+      for (Integer key : expected.keySet()) {
+        assertEquals(key, ints.select(index++));
+      } // for
+    } // for
+  } // batchTest()
+
+  // +--------------+----------------------------------------------------
+  // | Cursor Tests |
+  // +--------------+
+
+  /**
+   * Walk, seek, update, and remove through a cursor, on an indexed list so that the link widths
+   * get checked too.
+   */
+  @Test
+  public void cursorTest() {
+    setup();
+    ints = new SkipList<Integer, String>((i, j) -> i - j, true);
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    for (int i = 0; i < 300; i++) {
+      int key = random.nextInt(1000);
+      set(key);
+      expected.put(key, value(key));
+    } // for
+    SkipListCursor<Integer, String> cursor = ints.cursor();
+
+    // Step through everything
+    for (Integer key : expected.keySet()) {
+      assertTrue(cursor.valid());
+      assertEquals(key, cursor.key());
+      cursor.next();
+    } // for
+    assertFalse(cursor.valid());
+
+    // Seek forward (and sometimes back), changing and removing as we go
+    int key = 0;
+    for (int i = 0; i < 200; i++) {
+      key = random.nextBoolean() ? key + random.nextInt(20) : random.nextInt(1000);
+      Integer ceiling = expected.ceilingKey(key);
+      assertEquals(expected.containsKey(key), cursor.seek(key));
+      if (ceiling == null) {
+        assertFalse(cursor.valid());
+        continue;
+      } // if
+      assertEquals(ceiling, cursor.key());
+      if (random.nextBoolean()) {
+        assertEquals(expected.put(ceiling, "changed"), cursor.setValue("changed"));
+      } else {
+        assertEquals(expected.remove(ceiling), cursor.remove());
+        assertEquals(expected.higherKey(ceiling), cursor.valid() ? cursor.key() : null);
+      } // if/else
+    } // for
+    assertEquals(expected.size(), ints.size());
+    int index = 0;
+    for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+      assertEquals(entry.getKey(), ints.select(index));
+      assertEquals(entry.getValue(), ints.getByIndex(index++));
+    } // for
+
+    // Changes that don't go through the cursor make it start over
+    cursor.first();
+    ints.remove(expected.firstKey());
+    set(1000);
+    assertTrue(cursor.seek(1000));
+    assertEquals(expected.higherKey(expected.firstKey()), cursor.first() ? cursor.key() : null);
+  } // cursorTest()
+
+  // +--------------+----------------------------------------------------
+  // | Stream Tests |
+  // +--------------+
+
+  /**
+   * forEach visits every entry in order.
+   */
+  @Test
+  public void forEachTest() {
+    setup();
+    StringBuilder seen = new StringBuilder();
+    ints.forEach((key, value) -> seen.append(key));
+    assertEquals("", seen.toString());
+    for (int i = 9; i >= 0; i--) {
+      set(i);
+    } // for
+    ints.forEach((key, value) -> {
+      assertEquals(value(key), value);
+      seen.append(key);
+    });
+    assertEquals("0123456789", seen.toString());
+  } // forEachTest()
+
+  /**
+   * Splitting the spliterator over and over still covers every entry exactly once, in order,
+   * and streams agree with the keys.
+   */
+  @Test
+  public void spliteratorTest() {
+    setup();
+    ArrayList<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < 5000; i++) {
+      set(3 * i);
+      expected.add(3 * i);
+    } // for
+    Spliterator<Map.Entry<Integer, String>> whole = ints.spliterator();
+    assertEquals(5000, whole.getExactSizeIfKnown());
+    assertTrue(whole.hasCharacteristics(Spliterator.SORTED | Spliterator.ORDERED));
+
+    ArrayList<Integer> seen = new ArrayList<Integer>();
+    split(whole, 0, seen);
+    assertEquals(expected, seen);
+
+    assertEquals(5000, ints.stream().count());
+    assertEquals(expected, ints.parallelStream().map(Map.Entry::getKey)
+        .collect(Collectors.toList()));
+    assertEquals(3L * 4999 * 5000 / 2,
+        ints.parallelStream().mapToLong(Map.Entry::getKey).sum());
+
+    // The first split should not be badly lopsided
+    Spliterator<Map.Entry<Integer, String>> suffix = ints.spliterator();
+    Spliterator<Map.Entry<Integer, String>> prefix = suffix.trySplit();
+    assertNotNull(prefix);
+    long[] count = new long[1];
+    prefix.forEachRemaining((entry) -> count[0]++);
+    assertTrue("prefix of " + count[0], count[0] > 250 && count[0] < 4750);
+
+    assertThrows(ConcurrentModificationException.class,
+        () -> ints.stream().forEach((entry) -> ints.remove(entry.getKey())));
+  } // spliteratorTest()
+
+  /**
+   * Split a spliterator as far as depth 12, collecting the keys of the pieces in order.
+   */
+  static void split(Spliterator<Map.Entry<Integer, String>> spliterator, int depth,
+      List<Integer> keys) {
+    Spliterator<Map.Entry<Integer, String>> prefix =
+        (depth < 12) ? spliterator.trySplit() : null;
+    if (prefix != null) {
+      split(prefix, depth + 1, keys);
+      split(spliterator, depth + 1, keys);
+    } else if (depth % 2 == 0) {
+      spliterator.forEachRemaining((entry) -> keys.add(entry.getKey()));
+    } else {
+      while (spliterator.tryAdvance((entry) -> keys.add(entry.getKey()))) {
+        // Keep going
+      } // while
+    } // if/else
+  } // split(Spliterator, int, List<Integer>)
+
+  // +--------------+----------------------------------------------------
+  // | Height Tests |
+  // +--------------+
+
+  /**
+   * The height follows the tallest node up and back down, and stays near log_{1/prob}(size).
+   */
+  @Test
+  public void heightTest() {
+    setup();
+    for (double prob : new double[] {0.5, 0.25}) {
+      ints = new SkipList<Integer, String>((i, j) -> i - j, true, prob);
+      assertEquals(1, ints.height);
+      for (int i = 0; i < 1000; i++) {
+        set(i);
+        assertTrue(ints.height <= ints.levelScale * Math.log(ints.size()) + 1
+            + SkipList.HEIGHT_SLACK);
+      } // for
+      for (int i = 0; i < 1000; i++) {
+        int tallest = 1;
+        for (SLNode<Integer, String> node = ints.head.next[0]; node != null;
+            node = node.next[0]) {
+          tallest = Math.max(tallest, node.next.length);
+        } // for
+        assertEquals(tallest, ints.height);
+        assertEquals(0, ints.rank(i));
+        assertEquals(Integer.valueOf(999), ints.select(ints.size() - 1));
+        remove(i);
+      } // for
+      assertEquals(1, ints.height);
+      assertEquals(0, ints.size());
+    } // for
+    assertThrows(IllegalArgumentException.class,
+        () -> new SkipList<Integer, String>((i, j) -> i - j, false, 1.0));
+  } // heightTest()
+
+  /**
+   * Seeded lists get the same shape, and heights follow the geometric distribution whether or
+   * not prob is a power of 1/2.
+   */
+  @Test
+  public void levelTest() {
+    SkipList<Integer, String> a = new SkipList<Integer, String>((i, j) -> i - j);
+    SkipList<Integer, String> b = new SkipList<Integer, String>((i, j) -> i - j);
+    a.seed(42);
+    b.seed(42);
+    for (int i = 0; i < 1000; i++) {
+      a.set(i, value(i));
+      b.set(i, value(i));
+    } // for
+    Iterator<SLNode<Integer, String>> ait = a.nodes();
+    Iterator<SLNode<Integer, String>> bit = b.nodes();
+    while (ait.hasNext()) {
+      assertEquals(ait.next().next.length, bit.next().next.length);
+    } // while
+
+    for (double prob : new double[] {0.5, 0.25, 0.3}) {
+      LevelGenerator levels = LevelGenerator.seeded(prob, 1);
+      int n = 100000;
+      int[] counts = new int[5];
+      for (int i = 0; i < n; i++) {
+        int height = levels.height(counts.length);
+        for (int h = 1; h <= height; h++) {
+          counts[h - 1]++;
+        } // for
+      } // for
+      // About n * prob^(h-1) nodes reach level h
+      for (int h = 1; h <= counts.length; h++) {
+        double expected = n * Math.pow(prob, h - 1);
+        assertTrue("prob " + prob + " level " + h + ": " + counts[h - 1],
+            Math.abs(counts[h - 1] - expected) < 5 * Math.sqrt(expected));
+      } // for
+    } // for
+  } // levelTest()
+
+  // +--------------+----------------------------------------------------
+  // | Prefix Tests |
+  // +--------------+
+
+  /**
+   * Lists that keep key prefixes behave like lists that don't, even when many keys share a
+   * prefix or use chars with the high bit set.
+   */
+  @Test
+  public void prefixTest() {
+    setup();
+    SkipList<String, String> list =
+        new SkipList<String, String>((s, t) -> s.compareTo(t), KeyPrefix.STRING);
+    TreeMap<String, String> expected = new TreeMap<String, String>();
+    char[] alphabet = {'a', 'b', '\0', '\u00e9', '\uffff'};
+    for (int i = 0; i < 2000; i++) {
+      StringBuilder key = new StringBuilder();
+      for (int j = random.nextInt(7); j > 0; j--) {
+        key.append(alphabet[random.nextInt(alphabet.length)]);
+      } // for
+      String str = key.toString();
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(str), list.remove(str));
+      } else {
+        assertEquals(expected.put(str, "v" + i), list.set(str, "v" + i));
+      } // if/else
+    } // for
+    SimpleMapTests.check(expected, list);
+    for (String key : new String[] {"", "a", "ab\u00e9", "\uffff\uffff\uffff\uffff\uffff"}) {
+      assertEquals(expected.get(key), list.get(key));
+      assertEquals(expected.floorKey(key), list.floorKey(key));
+      assertEquals(expected.higherKey(key), list.higherKey(key));
+    } // for
+
+    SkipList<Integer, String> numbers =
+        new SkipList<Integer, String>((i, j) -> Integer.compare(i, j), KeyPrefix.INTEGER);
+    for (int i : new int[] {5, Integer.MIN_VALUE, -1, Integer.MAX_VALUE, 0}) {
+      numbers.set(i, "v" + i);
+    } // for
+    Iterator<Integer> keys = numbers.keys();
+    for (int i : new int[] {Integer.MIN_VALUE, -1, 0, 5, Integer.MAX_VALUE}) {
+      assertEquals(Integer.valueOf(i), keys.next());
+    } // for
+    assertEquals("v-1", numbers.get(-1));
+
+    // Indexed lists keep prefixes too
+    SkipList<Integer, String> ranked =
+        new SkipList<Integer, String>((i, j) -> Integer.compare(i, j), true, 0.5,
+            KeyPrefix.INTEGER);
+    for (int i = 0; i < 100; i++) {
+      ranked.set(99 - i, "v" + i);
+    } // for
+    ranked.remove(50);
+    assertEquals(49, ranked.rank(49));
+    assertEquals(50, ranked.rank(51));
+    assertEquals(Integer.valueOf(51), ranked.select(50));
+  } // prefixTest()
+
+  /**
+   * Lists made without a comparator use natural order when the keys are Comparable.
+   */
+  @Test
+  public void defaultOrderTest() {
+    setup();
+    SkipList<Integer, String> numbers = new SkipList<Integer, String>();
+    numbers.set(10, "ten");
+    numbers.set(9, "nine");
+    numbers.set(-3, "minus three");
+    assertEquals(Integer.valueOf(-3), numbers.firstKey());
+    assertEquals(Integer.valueOf(10), numbers.lastKey());
+    // Other keys still go by their string forms
+    SkipList<Optional<String>, String> options = new SkipList<Optional<String>, String>();
+    options.set(Optional.of("b"), "B");
+    options.set(Optional.of("a"), "A");
+    assertEquals(Optional.of("a"), options.firstKey());
+  } // defaultOrderTest()
+
+  // +-------------+-----------------------------------------------------
+  // | Stats Tests |
+  // +-------------+
+
+  /**
+   * An instrumented list counts its operations, the heights of its nodes, and the cost of its
+   * searches, and shows them through JMX. Lists that aren't instrumented record nothing.
+   */
+  @Test
+  public void statsTest() throws Exception {
+    setup();
+    assertNull(ints.stats());
+    SkipListStats stats = ints.enableStats();
+    assertSame(stats, ints.enableStats());
+    for (int i = 0; i < 1000; i++) {
+      set(random.nextInt(2000));
+    } // for
+    for (int i = 0; i < 500; i++) {
+      ints.get(i);
+      ints.containsKey(i);
+      remove(2 * i);
+    } // for
+    assertEquals(1000, stats.getSets());
+    assertEquals(1000, stats.getGets());
+    assertEquals(500, stats.getRemoves());
+    assertEquals(2500, stats.getSearches());
+    assertTrue(stats.getHopsPerSearch() > 0);
+    assertTrue(stats.getComparisonsPerSearch() >= stats.getHopsPerSearch());
+    assertTrue(stats.getFrontUpdates() <= 1);
+    assertTrue(stats.getGetP50Nanos() <= stats.getGetP99Nanos());
+    assertTrue(stats.getGetP99Nanos() <= stats.getGetP999Nanos());
+    assertTrue(stats.getGetP999Nanos() <= stats.latencies(SkipListStats.Op.GET).max());
+    assertEquals(1000, stats.latencies(SkipListStats.Op.SET).count());
+    assertEquals(500, stats.latencies(SkipListStats.Op.REMOVE).count());
+
+    // Every node that was made has a height, and the levels hold what's left of them
+    long made = 0;
+    for (long count : stats.getHeightCounts()) {
+      made += count;
+    } // for
+    long[] levels = stats.getLevelOccupancy();
+    assertEquals(ints.size(), levels[0]);
+    assertTrue(made >= ints.size());
+    for (int i = 1; i < levels.length; i++) {
+      assertTrue(levels[i] <= levels[i - 1]);
+    } // for
+    assertTrue(stats.getEstimatedBytes() >= ints.size() * SkipList.nodeBytes(1));
+
+    // JMX sees the same numbers
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = stats.register("statsTest");
+    try {
+      assertEquals(1000L, server.getAttribute(name, "Gets"));
+      assertEquals(ints.size(), server.getAttribute(name, "Size"));
+      server.invoke(name, "reset", null, null);
+      assertEquals(0L, server.getAttribute(name, "Gets"));
+    } finally {
+      stats.unregister();
+    } // try/finally
+    assertFalse(server.isRegistered(name));
+
+    ints.disableStats();
+    ints.get(1);
+    assertEquals(0, stats.getGets());
+    assertNull(ints.stats());
+  } // statsTest()
+
+  /**
+   * Histogram buckets are within 1/16 of the values in them, and percentiles come out in order.
+   */
+  @Test
+  public void histogramTest() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.percentile(50));
+    for (long value = 0; value < 1000000; value = value * 5 / 4 + 1) {
+      long low = Histogram.lowest(Histogram.bucket(value));
+      assertTrue(low <= value);
+      assertTrue(value - low <= low / 16);
+    } // for
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    } // for
+    assertEquals(1000, histogram.count());
+    assertEquals(1000, histogram.max());
+    assertTrue(Math.abs(histogram.percentile(50) - 500) <= 500 / 16);
+    assertTrue(Math.abs(histogram.percentile(99) - 990) <= 990 / 16);
+  } // histogramTest()
+
+  // +------------------+------------------------------------------------
+  // | Allocation Tests |
+  // +------------------+
+
+  /**
+   * Verify that get() and containsKey() allocate nothing once the list is built.
+   */
+  @Test
+  public void getAllocationTest() {
+    setup();
+    ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // Box the keys ahead of time so that autoboxing doesn't count against get()
+    Integer[] keys = new Integer[1000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i;
+      set(2 * i);
+    } // for
+    // Warm up, then measure
+    for (int round = 0; round < 3; round++) {
+      long tid = Thread.currentThread().getId();
+      long before = bean.getThreadAllocatedBytes(tid);
+      for (int rep = 0; rep < 100; rep++) {
+        for (Integer key : keys) {
+          ints.get(key);
+          ints.containsKey(key);
+        } // for
+      } // for
+      long after = bean.getThreadAllocatedBytes(tid);
+      if (round == 2) {
+        // 200,000 calls; the measurement itself allocates a little, but far less than a byte each
+        long total = after - before;
+        assertTrue("bytes allocated by 200000 calls: " + total, total < 4096);
+      } // if
+    } // for
+  } // getAllocationTest()
+
   // +-----------------+-------------------------------------------------
   // | RandomizedTests |
   // +-----------------+
@@ -0,0 +1,195 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A thread-safe skip list that wraps a SkipList in a StampedLock. Writers take the lock
+ * exclusively. Readers first search without locking and then check that no writer got in
+ * meanwhile; only if one did do they retry under the read lock. Uncontended reads therefore
+ * write nothing to shared memory.
+ *
+ * Optimistic reads are safe because SkipList's searches only read: every link points to a node
+ * with a larger key, so even a search that sees a half-finished write ends, and any answer or
+ * exception it produces is thrown away unless validation succeeds.
+ *
+ * keys(), values(), and forEach work on a snapshot taken under the read lock, so they never see
+ * a write in progress and never block writers while the caller works through them.
+ */
+public class StampedSkipList<K, V> implements SimpleMap<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The list we guard.
+   */
+  final SkipList<K, V> list;
+
+  /**
+   * The lock that guards it.
+   */
+  final StampedLock lock = new StampedLock();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, skip list that orders values using the specified comparator.
+   */
+  public StampedSkipList(Comparator<K> comparator) {
+    this.list = new SkipList<K, V>(comparator);
+  } // StampedSkipList(Comparator<K>)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public V set(K key, V value) {
+    long stamp = this.lock.writeLock();
+    try {
+      return this.list.set(key, value);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try/finally
+  } // set(K, V)
+
+  @Override
+  public V get(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    long stamp = this.lock.tryOptimisticRead();
+    if (stamp != 0) {
+      V result = null;
+      try {
+        result = this.list.get(key);
+      } catch (RuntimeException e) {
+        // We may have seen a write half done; fall through unless nothing changed
+        if (this.lock.validate(stamp)) {
+          throw e;
+        } // if
+      } // try/catch
+      if (this.lock.validate(stamp)) {
+        return result;
+      } // if
+    } // if
+    stamp = this.lock.readLock();
+    try {
+      return this.list.get(key);
+    } finally {
+      this.lock.unlockRead(stamp);
+    } // try/finally
+  } // get(K)
+
+  @Override
+  public int size() {
+    long stamp = this.lock.tryOptimisticRead();
+    int result = this.list.size;
+    if (!this.lock.validate(stamp)) {
+      stamp = this.lock.readLock();
+      try {
+        result = this.list.size;
+      } finally {
+        this.lock.unlockRead(stamp);
+      } // try/finally
+    } // if
+    return result;
+  } // size()
+
+  @Override
+  public boolean containsKey(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    long stamp = this.lock.tryOptimisticRead();
+    if (stamp != 0) {
+      boolean result = false;
+      try {
+        result = this.list.containsKey(key);
+      } catch (RuntimeException e) {
+        if (this.lock.validate(stamp)) {
+          throw e;
+        } // if
+      } // try/catch
+      if (this.lock.validate(stamp)) {
+        return result;
+      } // if
+    } // if
+    stamp = this.lock.readLock();
+    try {
+      return this.list.containsKey(key);
+    } finally {
+      this.lock.unlockRead(stamp);
+    } // try/finally
+  } // containsKey(K)
+
+  @Override
+  public V remove(K key) {
+    long stamp = this.lock.writeLock();
+    try {
+      return this.list.remove(key);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try/finally
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return this.<K>snapshot(true).iterator();
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    return this.<V>snapshot(false).iterator();
+  } // values()
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    ArrayList<Object> entries = new ArrayList<Object>();
+    long stamp = this.lock.readLock();
+    try {
+      for (SLNode<K, V> node = this.list.head.next[0]; node != null; node = node.next[0]) {
+        entries.add(node.key);
+        entries.add(node.value);
+      } // for
+    } finally {
+      this.lock.unlockRead(stamp);
+    } // try/finally
+    for (int i = 0; i < entries.size(); i += 2) {
+      @SuppressWarnings("unchecked")
+      K key = (K) entries.get(i);
+      @SuppressWarnings("unchecked")
+      V value = (V) entries.get(i + 1);
+      action.accept(key, value);
+    } // for
+  } // forEach(BiConsumer)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Copy the keys (or values), in key order, under the read lock.
+   */
+  @SuppressWarnings("unchecked")
+  <T> ArrayList<T> snapshot(boolean keys) {
+    long stamp = this.lock.readLock();
+    try {
+      ArrayList<T> result = new ArrayList<T>(this.list.size);
+      for (SLNode<K, V> node = this.list.head.next[0]; node != null; node = node.next[0]) {
+        result.add((T) (keys ? node.key : node.value));
+      } // for
+      return result;
+    } finally {
+      this.lock.unlockRead(stamp);
+    } // try/finally
+  } // snapshot(boolean)
+
+} // class StampedSkipList<K, V>
@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Some tests of skip lists guarded by a StampedLock.
+ */
+public class StampedSkipListTests {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of reader threads used by the stress tests.
+   */
+  static final int READERS = 4;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A sorted list of integers for tests.
+   */
+  StampedSkipList<Integer, String> ints;
+
+  /**
+   * For reporting errors: what went wrong, in any thread.
+   */
+  ArrayList<String> errors;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Set up everything.
+   */
+  @BeforeEach
+  public void setup() {
+    this.ints = new StampedSkipList<Integer, String>((i, j) -> i - j);
+    this.errors = new ArrayList<String>();
+  } // setup
+
+  /**
+   * Log a failure from any thread.
+   */
+  void log(String str) {
+    synchronized (this.errors) {
+      System.err.println(str);
+      this.errors.add(str);
+    } // synchronized
+  } // log
+
+  // +-------------+-----------------------------------------------------
+  // | Basic Tests |
+  // +-------------+
+
+  /**
+   * Add, replace, and remove a single element, and look at the snapshots.
+   */
+  @Test
+  public void simpleTest() {
+    setup();
+    assertNull(ints.set(1, "one"));
+    assertTrue(ints.containsKey(1));
+    assertEquals("one", ints.set(1, "uno"));
+    assertEquals("uno", ints.get(1));
+    assertNull(ints.set(2, "two"));
+    assertEquals(2, ints.size());
+
+    Iterator<Integer> keys = ints.keys();
+    Iterator<String> values = ints.values();
+    // The snapshots don't see later changes
+    assertEquals("uno", ints.remove(1));
+    assertEquals(Integer.valueOf(1), keys.next());
+    assertEquals(Integer.valueOf(2), keys.next());
+    assertFalse(keys.hasNext());
+    assertEquals("uno", values.next());
+    assertEquals("two", values.next());
+
+    StringBuilder seen = new StringBuilder();
+    ints.forEach((key, value) -> seen.append(key).append(value));
+    assertEquals("2two", seen.toString());
+    assertFalse(ints.containsKey(1));
+    assertNull(ints.remove(1));
+    assertEquals(1, ints.size());
+  } // simpleTest()
+
+  // +--------------+----------------------------------------------------
+  // | Stress Tests |
+  // +--------------+
+
+  /**
+   * One thread keeps adding and removing the odd keys while readers check that the even keys,
+   * which never change, are always found with the right values, and that snapshots are sorted.
+   */
+  @Test
+  public void readersDuringWritesTest() throws InterruptedException {
+    setup();
+    for (int i = 0; i < 2000; i += 2) {
+      ints.set(i, "v" + i);
+    } // for
+    AtomicBoolean done = new AtomicBoolean(false);
+    Thread writer = new Thread(() -> {
+      Random random = new Random();
+      for (int i = 0; i < 200000; i++) {
+        int key = 2 * random.nextInt(1000) + 1;
+        if (random.nextBoolean()) {
+          ints.set(key, "v" + key);
+        } else {
+          ints.remove(key);
+        } // if/else
+      } // for
+      done.set(true);
+    });
+    writer.start();
+    ConcurrentSkipListTests.runThreads(READERS, (id) -> {
+      Random random = new Random();
+      while (!done.get() && errors.isEmpty()) {
+        int key = 2 * random.nextInt(1000);
+        if (!("v" + key).equals(ints.get(key))) {
+          log("get(" + key + ") returned " + ints.get(key));
+        } // if
+        int odd = key + 1;
+        String value = ints.get(odd);
+        if (value != null && !value.equals("v" + odd)) {
+          log("get(" + odd + ") returned " + value);
+        } // if
+        if (random.nextInt(1000) == 0 && !ConcurrentSkipListTests.strictlyInOrder(ints.keys())) {
+          log("keys() out of order");
+        } // if
+      } // while
+    });
+    writer.join();
+    if (!errors.isEmpty()) {
+      fail(errors.get(0));
+    } // if
+    int count = 0;
+    Iterator<Integer> it = ints.keys();
+    while (it.hasNext()) {
+      it.next();
+      count++;
+    } // while
+    assertEquals(count, ints.size());
+  } // readersDuringWritesTest()
+
+} // class StampedSkipListTests
@@ -0,0 +1,50 @@
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Measure what instrumentation costs: gets and sets with statistics off and on. Then print what
+ * the statistics saw.
+ *
+ * Usage: java StatsBenchmark [size]
+ */
+public class StatsBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    Integer[] keys = SkipListBenchmark.keys(n, false);
+    SkipListBenchmark.header();
+    SkipListStats[] stats = new SkipListStats[1];
+    for (int round = 0; round < 2; round++) {
+      for (boolean enabled : new boolean[] {false, true}) {
+        String label = enabled ? "stats on" : "stats off";
+        SkipListBenchmark.measure("set " + label + " n=" + n, n, () -> {
+          SkipList<Integer, Integer> list = list(enabled, stats);
+          return (i) -> SkipListBenchmark.consume(list.set(keys[i], i));
+        });
+        SkipList<Integer, Integer> list = list(enabled, stats);
+        SkipListBenchmark.fill(list, keys);
+        SkipListBenchmark.measure("get " + label + " n=" + n, SkipListBenchmark.OPS,
+            () -> (i) -> SkipListBenchmark.consume(list.get(keys[i % n])));
+      } // for
+    } // for
+
+    PrintWriter pen = SkipListBenchmark.pen;
+    pen.println(stats[0]);
+    pen.println("height counts: " + Arrays.toString(stats[0].getHeightCounts()));
+    pen.println("level occupancy: " + Arrays.toString(stats[0].getLevelOccupancy()));
+    pen.printf("estimated bytes: %d (%.1f/entry)%n", stats[0].getEstimatedBytes(),
+        (double) stats[0].getEstimatedBytes() / stats[0].getSize());
+  } // main(String[])
+
+  /**
+   * Make an empty list, instrumented if enabled, in which case its stats go in stats[0].
+   */
+  static SkipList<Integer, Integer> list(boolean enabled, SkipListStats[] stats) {
+    SkipList<Integer, Integer> list = new SkipList<Integer, Integer>((i, j) -> i - j);
+    if (enabled) {
+      stats[0] = list.enableStats();
+    } // if
+    return list;
+  } // list(boolean, SkipListStats[])
+
+} // class StatsBenchmark
@@ -0,0 +1,173 @@
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Compare the throughput of thread-safe maps as the number of threads grows.
+ *
+ * By default we run a read-heavy mix (95% reads) and a write-heavy one (50% reads).
+ *
+ * Usage: java ThroughputBenchmark [keys] [seconds] [percent-reads]
+ */
+public class ThroughputBenchmark {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The thread counts we try.
+   */
+  static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws InterruptedException {
+    int keys = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+    double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 2;
+    int[] mixes = {95, 50};
+    if (args.length > 2) {
+      mixes = new int[] {Integer.parseInt(args[2])};
+    } // if
+    PrintWriter pen = new PrintWriter(System.out, true);
+
+    for (int reads : mixes) {
+      pen.println("keys=" + keys + ", reads=" + reads + "%, ops/second:");
+      pen.printf("%-8s %16s %16s %16s %20s%n", "threads", "locked SkipList", "StampedSkipList",
+          "sync TreeMap", "ConcurrentSkipList");
+      for (int threads : THREADS) {
+        double locked = run(() -> new Locked<Integer, Integer>(
+            new SkipList<Integer, Integer>((i, j) -> i - j)), keys, threads, seconds, reads);
+        double stamped = run(() -> new StampedSkipList<Integer, Integer>((i, j) -> i - j),
+            keys, threads, seconds, reads);
+        double tree = run(() -> new SkipListBenchmark.MapAdapter<Integer, Integer>(
+            Collections.synchronizedMap(new TreeMap<Integer, Integer>())),
+            keys, threads, seconds, reads);
+        double lockFree = run(() -> new ConcurrentSkipList<Integer, Integer>((i, j) -> i - j),
+            keys, threads, seconds, reads);
+        pen.printf("%-8d %16.0f %16.0f %16.0f %20.0f%n", threads, locked, stamped, tree,
+            lockFree);
+      } // for
+    } // for
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Fill a new map with half of the keys, then have threads hammer it with a mix of get, set and
+   * remove for the given time.
+   *
+   * @return operations per second over all threads.
+   */
+  static double run(Supplier<SimpleMap<Integer, Integer>> maker, int keys, int threads,
+      double seconds, int reads) throws InterruptedException {
+    SimpleMap<Integer, Integer> map = maker.get();
+    Random random = new Random(keys);
+    for (int i = 0; i < keys / 2; i++) {
+      map.set(random.nextInt(keys), i);
+    } // for
+
+    LongAdder ops = new LongAdder();
+    long stop = System.nanoTime() + (long) (seconds * 1e9);
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final long seed = t;
+      workers[t] = new Thread(() -> {
+        Random r = new Random(seed);
+        long count = 0;
+        // Count hits locally; sharing the benchmark's sink would make the threads contend for it
+        long hits = 0;
+        while ((count & 0xFF) != 0 || System.nanoTime() < stop) {
+          Integer key = r.nextInt(keys);
+          int op = r.nextInt(100);
+          if (op < reads) {
+            hits += (map.get(key) != null) ? 1 : 0;
+          } else if ((op & 1) == 0) {
+            map.set(key, key);
+          } else {
+            map.remove(key);
+          } // if/else
+          count++;
+        } // while
+        ops.add(count);
+        SkipListBenchmark.consume(hits);
+      });
+      workers[t].start();
+    } // for
+    for (Thread worker : workers) {
+      worker.join();
+    } // for
+    return ops.sum() / seconds;
+  } // run(Supplier, int, int, double, int)
+
+  // +-------------+-------------------------------------------------
+  // | Inner class |
+  // +-------------+
+
+  /**
+   * A map that serializes every call on a single lock.
+   */
+  static class Locked<K, V> implements SimpleMap<K, V> {
+    /**
+     * The map we guard.
+     */
+    final SimpleMap<K, V> map;
+
+    /**
+     * Guard a map.
+     */
+    Locked(SimpleMap<K, V> map) {
+      this.map = map;
+    } // Locked(SimpleMap<K, V>)
+
+    @Override
+    public synchronized V set(K key, V value) {
+      return map.set(key, value);
+    } // set(K, V)
+
+    @Override
+    public synchronized V get(K key) {
+      return map.get(key);
+    } // get(K)
+
+    @Override
+    public synchronized int size() {
+      return map.size();
+    } // size()
+
+    @Override
+    public synchronized boolean containsKey(K key) {
+      return map.containsKey(key);
+    } // containsKey(K)
+
+    @Override
+    public synchronized V remove(K key) {
+      return map.remove(key);
+    } // remove(K)
+
+    @Override
+    public Iterator<K> keys() {
+      throw new UnsupportedOperationException();
+    } // keys()
+
+    @Override
+    public Iterator<V> values() {
+      throw new UnsupportedOperationException();
+    } // values()
+
+    @Override
+    public synchronized void forEach(BiConsumer<? super K, ? super V> action) {
+      map.forEach(action);
+    } // forEach(BiConsumer)
+  } // class Locked<K, V>
+
+} // class ThroughputBenchmark
@@ -0,0 +1,68 @@
+import java.util.function.Supplier;
+
+/**
+ * Compare SkipList with UnrolledSkipList at several block sizes: heap bytes per entry (not
+ * counting the keys and values, which all the lists share), point lookups, and full iteration.
+ *
+ * Usage: java UnrolledBenchmark [size]
+ */
+public class UnrolledBenchmark {
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    Integer[] keys = SkipListBenchmark.keys(n, false);
+    for (int round = 0; round < 3; round++) {
+      report("SkipList", keys,
+          () -> new SkipList<Integer, Integer>((i, j) -> Integer.compare(i, j)));
+      for (int blockSize : new int[] {32, 64, 128}) {
+        report("Unrolled " + blockSize, keys, () -> new UnrolledSkipList<Integer, Integer>(
+            (i, j) -> Integer.compare(i, j), blockSize));
+      } // for
+    } // for
+  } // main(String[])
+
+  /**
+   * Fill a new map with keys, measuring the heap it takes, then time lookups and iteration.
+   */
+  static void report(String name, Integer[] keys, Supplier<SimpleMap<Integer, Integer>> maker) {
+    long before = usedHeap();
+    SimpleMap<Integer, Integer> map = maker.get();
+    for (Integer key : keys) {
+      map.set(key, key);
+    } // for
+    long bytes = usedHeap() - before;
+
+    long start = System.nanoTime();
+    long sum = 0;
+    for (Integer key : keys) {
+      sum += map.get(key);
+    } // for
+    long gets = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    long[] total = new long[1];
+    for (int rep = 0; rep < 10; rep++) {
+      map.forEach((key, value) -> total[0] += value);
+    } // for
+    long scans = System.nanoTime() - start;
+
+    if (total[0] != 10 * sum) {
+      throw new IllegalStateException(name + ": sums differ");
+    } // if
+    System.out.printf("%-12s n=%d  bytes/entry: %5.1f  ns/get: %7.1f  ns/entry scanned: %5.2f%n",
+        name, keys.length, (double) bytes / keys.length, (double) gets / keys.length,
+        (double) scans / (10.0 * keys.length));
+  } // report(String, Integer[], Supplier)
+
+  /**
+   * Estimate the heap in use, after collecting garbage.
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    } // for
+    return runtime.totalMemory() - runtime.freeMemory();
+  } // usedHeap()
+
+} // class UnrolledBenchmark
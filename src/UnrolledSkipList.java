@@ -0,0 +1,469 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * An unrolled skip list: each node at the bottom holds a sorted block of up to blockSize keys and
+ * values in parallel arrays, and the towers index blocks by their first keys. A search follows the
+ * towers to the last block whose first key is at most the key, then binary searches the block.
+ *
+ * With blocks of 64 there are a sixty-fourth as many towers as in a SkipList, and a scan reads
+ * the arrays of one block after another instead of following a reference per entry.
+ *
+ * A set into a full block splits it in two, and the second half gets a tower of its own. A
+ * remove that leaves a block less than a quarter full merges the next block into it if the two
+ * fit in one; a block that becomes empty is unlinked.
+ */
+public class UnrolledSkipList<K, V> implements SimpleMap<K, V> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The block size if the caller does not give one.
+   */
+  static final int DEFAULT_BLOCK_SIZE = 64;
+
+  /**
+   * The tallest a tower can be.
+   */
+  static final int MAX_HEIGHT = 32;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The comparator used to determine the ordering in the list.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * The most entries a block holds.
+   */
+  final int blockSize;
+
+  /**
+   * A block with no entries whose next pointers are the front of each level.
+   */
+  final Block<K, V> head = new Block<K, V>(0, MAX_HEIGHT);
+
+  /**
+   * The predecessors found by the most recent search, one per level.
+   */
+  final Block<K, V>[] update = Block.links(MAX_HEIGHT);
+
+  /**
+   * The number of levels that have at least one block, or 1 if there are none.
+   */
+  int height = 1;
+
+  /**
+   * The number of entries.
+   */
+  int size;
+
+  /**
+   * Where the heights of new blocks come from.
+   */
+  LevelGenerator levels = LevelGenerator.random(0.5);
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, list that orders keys using comparator, with blocks of the default
+   * size.
+   */
+  public UnrolledSkipList(Comparator<K> comparator) {
+    this(comparator, DEFAULT_BLOCK_SIZE);
+  } // UnrolledSkipList(Comparator<K>)
+
+  /**
+   * Create a new, empty, list with blocks of up to blockSize entries.
+   *
+   * @throws IllegalArgumentException if blockSize is less than 4.
+   */
+  public UnrolledSkipList(Comparator<K> comparator, int blockSize) {
+    if (blockSize < 4) {
+      throw new IllegalArgumentException("block size must be at least 4: " + blockSize);
+    } // if
+    this.comparator = comparator;
+    this.blockSize = blockSize;
+  } // UnrolledSkipList(Comparator<K>, int)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public V set(K key, V value) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    Block<K, V> block = search(key, false);
+    if (block == this.head) {
+      // key precedes every block, so it goes at the front of the first
+      block = this.head.next[0];
+      if (block == null) {
+        block = new Block<K, V>(this.blockSize, newHeight());
+        link(block);
+      } // if
+    } // if
+    int index = block.indexOf(key, this.comparator);
+    if (index >= 0) {
+      V result = block.value(index);
+      block.values[index] = value;
+      return result;
+    } // if
+    index = -(index + 1);
+    if (block.count == this.blockSize) {
+      Block<K, V> second = split(block);
+      if (index > block.count) {
+        index -= block.count;
+        block = second;
+      } // if
+    } // if
+    block.insert(index, key, value);
+    this.size++;
+    return null;
+  } // set(K, V)
+
+  @Override
+  public V get(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    Block<K, V> block = search(key, false);
+    int index = (block == this.head) ? -1 : block.indexOf(key, this.comparator);
+    return (index >= 0) ? block.value(index) : null;
+  } // get(K)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  @Override
+  public boolean containsKey(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    Block<K, V> block = search(key, false);
+    return block != this.head && block.indexOf(key, this.comparator) >= 0;
+  } // containsKey(K)
+
+  @Override
+  public V remove(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    Block<K, V> block = search(key, false);
+    int index = (block == this.head) ? -1 : block.indexOf(key, this.comparator);
+    if (index < 0) {
+      return null;
+    } // if
+    V result = block.value(index);
+    this.size--;
+    if (block.count == 1) {
+      // Unlink it while it still has a first key to search for
+      unlink(block, block.key(0));
+      return result;
+    } // if
+    block.delete(index);
+    if (block.count < this.blockSize / 4) {
+      // Absorb the next block if there is room
+      Block<K, V> next = block.next[0];
+      if (next != null && block.count + next.count <= this.blockSize) {
+        K nextFirst = next.key(0);
+        System.arraycopy(next.keys, 0, block.keys, block.count, next.count);
+        System.arraycopy(next.values, 0, block.values, block.count, next.count);
+        block.count += next.count;
+        unlink(next, nextFirst);
+      } // if
+    } // if
+    return result;
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return new Cursor<K>() {
+      @Override
+      K get(Block<K, V> block, int index) {
+        return block.key(index);
+      } // get(Block, int)
+    };
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    return new Cursor<V>() {
+      @Override
+      V get(Block<K, V> block, int index) {
+        return block.value(index);
+      } // get(Block, int)
+    };
+  } // values()
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Block<K, V> block = this.head.next[0]; block != null; block = block.next[0]) {
+      for (int i = 0; i < block.count; i++) {
+        action.accept(block.key(i), block.value(i));
+      } // for
+    } // for
+  } // forEach(BiConsumer)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Count the blocks.
+   */
+  public int blocks() {
+    int result = 0;
+    for (Block<K, V> block = this.head.next[0]; block != null; block = block.next[0]) {
+      result++;
+    } // for
+    return result;
+  } // blocks()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Find the last block on each level whose first key is at most key (or, if strict, less than
+   * key), storing them in update.
+   *
+   * @return that block on level 0, or the head if there is none.
+   */
+  Block<K, V> search(K key, boolean strict) {
+    int limit = strict ? 0 : 1;
+    Block<K, V> current = this.head;
+    for (int i = this.height - 1; i >= 0; i--) {
+      while (current.next[i] != null
+          && this.comparator.compare(current.next[i].key(0), key) < limit) {
+        current = current.next[i];
+      } // while
+      this.update[i] = current;
+    } // for
+    return current;
+  } // search(K, boolean)
+
+  /**
+   * Pick the height of a new block.
+   */
+  int newHeight() {
+    int result = this.levels.height(MAX_HEIGHT);
+    while (this.height < result) {
+      this.update[this.height++] = this.head;
+    } // while
+    return result;
+  } // newHeight()
+
+  /**
+   * Link a new block in after the blocks in update, stepping past any that belong before it. The
+   * block must have entries unless the list has no blocks.
+   */
+  void link(Block<K, V> block) {
+    for (int i = 0; i < block.next.length; i++) {
+      Block<K, V> pred = this.update[i];
+      while (pred.next[i] != null
+          && this.comparator.compare(pred.next[i].key(0), block.key(0)) < 0) {
+        pred = pred.next[i];
+      } // while
+      block.next[i] = pred.next[i];
+      pred.next[i] = block;
+    } // for
+  } // link(Block<K, V>)
+
+  /**
+   * Move the second half of a full block, found by the last search, to a new block after it.
+   *
+   * @return the new block.
+   */
+  Block<K, V> split(Block<K, V> block) {
+    int half = block.count / 2;
+    Block<K, V> second = new Block<K, V>(this.blockSize, newHeight());
+    second.count = block.count - half;
+    System.arraycopy(block.keys, half, second.keys, 0, second.count);
+    System.arraycopy(block.values, half, second.values, 0, second.count);
+    for (int i = half; i < block.count; i++) {
+      block.keys[i] = null;
+      block.values[i] = null;
+    } // for
+    block.count = half;
+    link(second);
+    return second;
+  } // split(Block<K, V>)
+
+  /**
+   * Unlink a block whose first key is first.
+   */
+  void unlink(Block<K, V> block, K first) {
+    search(first, true);
+    for (int i = 0; i < block.next.length; i++) {
+      this.update[i].next[i] = block.next[i];
+    } // for
+    while (this.height > 1 && this.head.next[this.height - 1] == null) {
+      this.height--;
+    } // while
+  } // unlink(Block<K, V>, K)
+
+  /**
+   * Walks the entries of every block in turn.
+   */
+  abstract class Cursor<T> implements Iterator<T> {
+    Block<K, V> block = UnrolledSkipList.this.head.next[0];
+    int index = 0;
+
+    /**
+     * Get the part of an entry we return.
+     */
+    abstract T get(Block<K, V> block, int index);
+
+    @Override
+    public boolean hasNext() {
+      return this.block != null;
+    } // hasNext()
+
+    @Override
+    public T next() {
+      if (this.block == null) {
+        throw new NoSuchElementException();
+      } // if
+      T result = get(this.block, this.index++);
+      if (this.index == this.block.count) {
+        this.block = this.block.next[0];
+        this.index = 0;
+      } // if
+      return result;
+    } // next()
+  } // class Cursor<T>
+
+} // class UnrolledSkipList<K, V>
+
+/**
+ * A block of entries in an unrolled skip list.
+ */
+class Block<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The keys, in order; only the first count are used.
+   */
+  final Object[] keys;
+
+  /**
+   * The values that go with them.
+   */
+  final Object[] values;
+
+  /**
+   * The number of entries.
+   */
+  int count;
+
+  /**
+   * Pointers to the next blocks.
+   */
+  final Block<K, V>[] next;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an empty block with room for capacity entries and a tower of height n.
+   */
+  Block(int capacity, int n) {
+    this.keys = new Object[capacity];
+    this.values = new Object[capacity];
+    this.next = links(n);
+  } // Block(int, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the key at index.
+   */
+  @SuppressWarnings("unchecked")
+  K key(int index) {
+    return (K) this.keys[index];
+  } // key(int)
+
+  /**
+   * Get the value at index.
+   */
+  @SuppressWarnings("unchecked")
+  V value(int index) {
+    return (V) this.values[index];
+  } // value(int)
+
+  /**
+   * Find key by binary search.
+   *
+   * @return its index, or -(i + 1) if it belongs at index i.
+   */
+  int indexOf(K key, Comparator<K> comparator) {
+    int lo = 0;
+    int hi = this.count - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int order = comparator.compare(key(mid), key);
+      if (order < 0) {
+        lo = mid + 1;
+      } else if (order > 0) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      } // if/else
+    } // while
+    return -(lo + 1);
+  } // indexOf(K, Comparator<K>)
+
+  /**
+   * Insert an entry at index, given that there is room.
+   */
+  void insert(int index, K key, V value) {
+    System.arraycopy(this.keys, index, this.keys, index + 1, this.count - index);
+    System.arraycopy(this.values, index, this.values, index + 1, this.count - index);
+    this.keys[index] = key;
+    this.values[index] = value;
+    this.count++;
+  } // insert(int, K, V)
+
+  /**
+   * Delete the entry at index.
+   */
+  void delete(int index) {
+    this.count--;
+    System.arraycopy(this.keys, index + 1, this.keys, index, this.count - index);
+    System.arraycopy(this.values, index + 1, this.values, index, this.count - index);
+    this.keys[this.count] = null;
+    this.values[this.count] = null;
+  } // delete(int)
+
+  /**
+   * Create an array of n null forward pointers.
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> Block<K, V>[] links(int n) {
+    return (Block<K, V>[]) new Block<?, ?>[n];
+  } // links(int)
+
+} // class Block<K, V>
@@ -0,0 +1,66 @@
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.Test;
+
+/**
+ * Some tests of unrolled skip lists.
+ */
+public class UnrolledSkipListTests {
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Random sets and removes agree with a TreeMap, with blocks small enough to split and merge
+   * often.
+   */
+  @Test
+  public void randomTest() {
+    Random random = new Random(0);
+    for (int blockSize : new int[] {4, 5, 64}) {
+      UnrolledSkipList<Integer, String> ints =
+          new UnrolledSkipList<Integer, String>((i, j) -> Integer.compare(i, j), blockSize);
+      TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+      for (int i = 0; i < 20000; i++) {
+        int key = random.nextInt(1000);
+        // Grow for a while, then shrink, so that blocks drain and merge
+        boolean removing = (i / 5000) % 2 == 1 ? random.nextInt(4) != 0 : random.nextInt(4) == 0;
+        if (removing) {
+          assertEquals(expected.remove(key), ints.remove(key));
+        } else {
+          assertEquals(expected.put(key, "v" + i), ints.set(key, "v" + i));
+        } // if/else
+        assertEquals(expected.containsKey(key), ints.containsKey(key));
+        assertEquals(expected.get(key), ints.get(key));
+      } // for
+      SimpleMapTests.check(expected, ints);
+      assertTrue(ints.blocks() <= expected.size());
+    } // for
+  } // randomTest()
+
+  /**
+   * Sorted inserts fill blocks to about half, and removing everything leaves no blocks.
+   */
+  @Test
+  public void blockTest() {
+    UnrolledSkipList<Integer, Integer> ints =
+        new UnrolledSkipList<Integer, Integer>((i, j) -> Integer.compare(i, j), 8);
+    for (int i = 0; i < 1000; i++) {
+      ints.set(i, i);
+    } // for
+    assertTrue("blocks: " + ints.blocks(), ints.blocks() <= 1000 / 4 + 1);
+    for (int i = 999; i >= 0; i--) {
+      assertEquals(Integer.valueOf(i), ints.remove(i));
+    } // for
+    assertEquals(0, ints.size());
+    assertEquals(0, ints.blocks());
+    assertEquals(1, ints.height);
+    assertFalse(ints.keys().hasNext());
+    assertNull(ints.get(5));
+    assertThrows(NullPointerException.class, () -> ints.set(null, 1));
+  } // blockTest()
+
+} // class UnrolledSkipListTests
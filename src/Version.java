@@ -0,0 +1,44 @@
+/**
+ * One version of an entry in a VersionedSkipList.
+ */
+class Version<V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The stamp of the write that made this version.
+   */
+  final long stamp;
+
+  /**
+   * The value.
+   */
+  final V value;
+
+  /**
+   * Whether this version marks a removal.
+   */
+  final boolean removed;
+
+  /**
+   * The next older version, or null if no snapshot needs one. Vacuuming may cut the chain short.
+   */
+  Version<V> older;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a version.
+   */
+  Version(long stamp, V value, boolean removed, Version<V> older) {
+    this.stamp = stamp;
+    this.value = value;
+    this.removed = removed;
+    this.older = older;
+  } // Version(long, V, boolean, Version<V>)
+
+} // class Version<V>
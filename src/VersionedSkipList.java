@@ -0,0 +1,607 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * A skip list that keeps old versions of its entries, so that snapshot() can hand out read-only
+ * views of the map as it was at a moment in time. A snapshot costs O(1) to take, and scanning it
+ * takes no locks, so long scans neither block writers nor see their changes.
+ *
+ * Each node holds a chain of versions, newest first, each stamped with the write that made it.
+ * A removal adds a tombstone version rather than unlinking the node. A snapshot taken at stamp s
+ * sees, for each node, the newest version no newer than s. Writers publish nodes and versions
+ * with release stores and snapshots read them with acquire loads, so a scan on another thread
+ * never sees half of a write.
+ *
+ * Versions that no live snapshot can see are garbage. When there are no snapshots, writers don't
+ * keep old versions at all. Otherwise vacuum() drops them, and unlinks nodes whose tombstones
+ * every snapshot can see; writers call it themselves once the garbage made since the last vacuum
+ * outnumbers the entries. A snapshot stops holding versions when it is closed or, if it is
+ * simply dropped, once the JVM collects it.
+ *
+ * Writes, and reads of the current state, lock the map. Hand a snapshot to another thread the
+ * way you would any other object, through something that publishes it safely.
+ */
+public class VersionedSkipList<K, V> implements SimpleMap<K, V> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * How much garbage, beyond one item per live entry, we let pile up before vacuuming.
+   */
+  static final int VACUUM_SLACK = 64;
+
+  /**
+   * Access to the value field of nodes, which holds their version chains.
+   */
+  static final VarHandle VERSION;
+
+  static {
+    try {
+      VERSION = MethodHandles.lookup().findVarHandle(SLNode.class, "value", Object.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    } // try/catch
+  } // static
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The underlying list, whose values are version chains.
+   */
+  final SkipList<K, Version<V>> list;
+
+  /**
+   * The stamp of the most recent write.
+   */
+  long stamp;
+
+  /**
+   * The number of entries in the current version of the map.
+   */
+  int size;
+
+  /**
+   * The superseded versions and tombstones made since the last vacuum, plus those it left.
+   */
+  int garbage;
+
+  /**
+   * The garbage that the last vacuum had to leave, because some snapshot could still see it.
+   */
+  int pinned;
+
+  /**
+   * The snapshots that may still be in use.
+   */
+  final ArrayList<SnapshotRef> snapshots = new ArrayList<SnapshotRef>();
+
+  /**
+   * Where the JVM tells us about snapshots that were dropped without being closed.
+   */
+  final ReferenceQueue<Object> dropped = new ReferenceQueue<Object>();
+
+  /**
+   * The stamp of the oldest snapshot that may still be in use, if there are any.
+   */
+  long oldest;
+
+  /**
+   * The stamp of the newest snapshot that may still be in use, if there are any.
+   */
+  long newest;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, versioned skip list that orders values using the specified comparator.
+   */
+  public VersionedSkipList(Comparator<K> comparator) {
+    this.list = new SkipList<K, Version<V>>(comparator);
+  } // VersionedSkipList(Comparator<K>)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public synchronized V set(K key, V value) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    reap();
+    this.stamp++;
+    this.list.findPredecessors(key);
+    SLNode<K, Version<V>> node = this.list.update[0].next[0];
+    if (node == null || this.list.comparator.compare(key, node.key) != 0) {
+      this.list.store(key, new Version<V>(this.stamp, value, false, null));
+      this.size++;
+      return null;
+    } // if
+    Version<V> old = node.value;
+    setVersion(node, new Version<V>(this.stamp, value, false, supersede(old)));
+    if (old.removed) {
+      this.size++;
+      return null;
+    } // if
+    return old.value;
+  } // set(K, V)
+
+  @Override
+  public synchronized V get(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    SLNode<K, Version<V>> node = this.list.find(key);
+    return (node == null || node.value.removed) ? null : node.value.value;
+  } // get(K)
+
+  @Override
+  public synchronized int size() {
+    return this.size;
+  } // size()
+
+  @Override
+  public synchronized boolean containsKey(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    SLNode<K, Version<V>> node = this.list.find(key);
+    return node != null && !node.value.removed;
+  } // containsKey(K)
+
+  @Override
+  public synchronized V remove(K key) {
+    // Check for valid key
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    reap();
+    this.list.findPredecessors(key);
+    SLNode<K, Version<V>> node = this.list.update[0].next[0];
+    if (node == null || this.list.comparator.compare(key, node.key) != 0 || node.value.removed) {
+      return null;
+    } // if
+    Version<V> old = node.value;
+    this.stamp++;
+    this.size--;
+    if (this.snapshots.isEmpty()) {
+      // Nobody can see the old version, so the node can go now
+      this.list.unlink(key);
+    } else {
+      // The tombstone is garbage too, until every snapshot sees it
+      this.garbage++;
+      setVersion(node, new Version<V>(this.stamp, null, true, supersede(old)));
+    } // if/else
+    return old.value;
+  } // remove(K)
+
+  /**
+   * Get an iterator for the keys, in order, as of now. Later changes don't affect it.
+   */
+  @Override
+  public Iterator<K> keys() {
+    return snapshot().keys();
+  } // keys()
+
+  /**
+   * Get an iterator for the values, in key order, as of now. Later changes don't affect it.
+   */
+  @Override
+  public Iterator<V> values() {
+    return snapshot().values();
+  } // values()
+
+  /**
+   * Apply a function to each key/value pair, in key order, as of now. The map is not locked
+   * while the action runs, and the action may change it.
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    try (Snapshot snapshot = snapshot()) {
+      snapshot.forEach(action);
+    } // try
+  } // forEach(BiConsumer)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Get a read-only view of the map as it is now. Close it when done, so that writers can
+   * discard the versions it would otherwise keep alive.
+   */
+  public synchronized Snapshot snapshot() {
+    reap();
+    Snapshot result = new Snapshot(this.stamp, this.size);
+    if (this.snapshots.isEmpty()) {
+      this.oldest = this.stamp;
+    } // if
+    this.newest = this.stamp;
+    this.snapshots.add(result.ref);
+    return result;
+  } // snapshot()
+
+  /**
+   * Discard the versions that no live snapshot can see, and unlink the nodes whose tombstones
+   * every live snapshot can see. Takes O(n) time.
+   */
+  public synchronized void vacuum() {
+    reap();
+    SkipList<K, Version<V>> list = this.list;
+    long[] stamps = new long[this.snapshots.size()];
+    for (int i = 0; i < stamps.length; i++) {
+      stamps[i] = this.snapshots.get(i).stamp;
+    } // for
+    Arrays.sort(stamps);
+    // update holds the last node we kept on each level
+    SLNode<K, Version<V>>[] last = list.update;
+    for (int i = 0; i < list.height; i++) {
+      last[i] = list.head;
+    } // for
+    int unlinked = 0;
+    int left = 0;
+    for (SLNode<K, Version<V>> node = list.head.next[0]; node != null; node = node.next[0]) {
+      Version<V> newest = node.value;
+      if (newest.removed && (stamps.length == 0 || newest.stamp <= stamps[0])) {
+        // Every snapshot sees the removal
+        for (int i = 0; i < node.next.length; i++) {
+          SLNode.setNext(last[i].next, i, node.next[i]);
+        } // for
+        unlinked++;
+        continue;
+      } // if
+      // Keep each older version that some snapshot sees: one stamped at or before the snapshot,
+      // whose successor is stamped after it. Readers part way down the chain still find their
+      // way, because we only change the links of versions we keep.
+      Version<V> kept = newest;
+      long bound = newest.stamp;
+      for (Version<V> version = newest.older; version != null && stamps.length > 0
+          && bound > stamps[0]; version = version.older) {
+        if (sees(stamps, version.stamp, bound)) {
+          kept.older = version;
+          kept = version;
+          left++;
+        } // if
+        bound = version.stamp;
+      } // for
+      kept.older = null;
+      if (newest.removed) {
+        left++;
+      } // if
+      node.prev = last[0];
+      for (int i = 0; i < node.next.length; i++) {
+        last[i] = node;
+      } // for
+    } // for
+    list.tail = last[0];
+    list.size -= unlinked;
+    list.modCount++;
+    while (list.height > 1 && list.head.next[list.height - 1] == null) {
+      list.height--;
+    } // while
+    this.garbage = left;
+    this.pinned = left;
+  } // vacuum()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Get the rest of the chain that a new version of a node should keep, given the node's current
+   * chain. When there are no snapshots, nothing is kept. If old was written after the newest
+   * snapshot, nobody sees it, so we skip it. Otherwise it becomes garbage, and if every snapshot
+   * sees it, nothing older than it is needed.
+   */
+  Version<V> supersede(Version<V> old) {
+    if (this.snapshots.isEmpty()) {
+      return null;
+    } // if
+    if (old.stamp > this.newest) {
+      return old.older;
+    } // if
+    if (old.stamp <= this.oldest) {
+      old.older = null;
+    } // if
+    this.garbage++;
+    return old;
+  } // supersede(Version<V>)
+
+  /**
+   * Determine if any of the sorted stamps lies in [lo, hi).
+   */
+  static boolean sees(long[] stamps, long lo, long hi) {
+    int i = Arrays.binarySearch(stamps, lo);
+    if (i < 0) {
+      i = -i - 1;
+    } // if
+    return i < stamps.length && stamps[i] < hi;
+  } // sees(long[], long, long)
+
+  /**
+   * Install a new version chain in a node, publishing it to snapshots, and vacuum if enough
+   * garbage has built up since the last time. Waiting for more new garbage than there are
+   * entries keeps the cost of vacuuming at O(1) per write.
+   */
+  void setVersion(SLNode<K, Version<V>> node, Version<V> version) {
+    VERSION.setRelease(node, version);
+    if (this.garbage > this.pinned + this.size + VACUUM_SLACK) {
+      vacuum();
+    } // if
+  } // setVersion(SLNode, Version<V>)
+
+  /**
+   * Forget the snapshots that the JVM has collected.
+   */
+  void reap() {
+    boolean changed = false;
+    for (Reference<?> ref = this.dropped.poll(); ref != null; ref = this.dropped.poll()) {
+      changed |= this.snapshots.remove(ref);
+    } // for
+    if (changed) {
+      findOldest();
+    } // if
+  } // reap()
+
+  /**
+   * Recompute the stamps of the oldest and newest live snapshots.
+   */
+  void findOldest() {
+    this.oldest = Long.MAX_VALUE;
+    this.newest = Long.MIN_VALUE;
+    for (SnapshotRef ref : this.snapshots) {
+      this.oldest = Math.min(this.oldest, ref.stamp);
+      this.newest = Math.max(this.newest, ref.stamp);
+    } // for
+  } // findOldest()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A read-only view of the map at one moment.
+   */
+  public class Snapshot implements SimpleMap<K, V>, AutoCloseable {
+
+    /**
+     * The stamp of the last write we see.
+     */
+    final long stamp;
+
+    /**
+     * The number of entries we see.
+     */
+    final int size;
+
+    /**
+     * How the map keeps track of us.
+     */
+    final SnapshotRef ref;
+
+    /**
+     * Create a snapshot that sees the writes up to stamp.
+     */
+    Snapshot(long stamp, int size) {
+      this.stamp = stamp;
+      this.size = size;
+      this.ref = new SnapshotRef(this, stamp, VersionedSkipList.this.dropped);
+    } // Snapshot(long, int)
+
+    @Override
+    public V set(K key, V value) {
+      throw new UnsupportedOperationException("snapshots are read-only");
+    } // set(K, V)
+
+    @Override
+    public V get(K key) {
+      Version<V> version = visible(search(key));
+      return (version == null) ? null : version.value;
+    } // get(K)
+
+    @Override
+    public int size() {
+      return this.size;
+    } // size()
+
+    @Override
+    public boolean containsKey(K key) {
+      return visible(search(key)) != null;
+    } // containsKey(K)
+
+    @Override
+    public V remove(K key) {
+      throw new UnsupportedOperationException("snapshots are read-only");
+    } // remove(K)
+
+    @Override
+    public Iterator<K> keys() {
+      return new Iterator<K>() {
+        Scan scan = new Scan();
+
+        @Override
+        public boolean hasNext() {
+          return this.scan.node != null;
+        } // hasNext()
+
+        @Override
+        public K next() {
+          K key = this.scan.node().key;
+          this.scan.advance();
+          return key;
+        } // next()
+      };
+    } // keys()
+
+    @Override
+    public Iterator<V> values() {
+      return new Iterator<V>() {
+        Scan scan = new Scan();
+
+        @Override
+        public boolean hasNext() {
+          return this.scan.node != null;
+        } // hasNext()
+
+        @Override
+        public V next() {
+          V value = this.scan.version().value;
+          this.scan.advance();
+          return value;
+        } // next()
+      };
+    } // values()
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+      for (Scan scan = new Scan(); scan.node != null; scan.advance()) {
+        action.accept(scan.node.key, scan.version.value);
+      } // for
+    } // forEach(BiConsumer)
+
+    /**
+     * Stop using the snapshot. It may not be used afterwards.
+     */
+    @Override
+    public void close() {
+      synchronized (VersionedSkipList.this) {
+        if (VersionedSkipList.this.snapshots.remove(this.ref)) {
+          this.ref.clear();
+          findOldest();
+        } // if
+      } // synchronized
+    } // close()
+
+    /**
+     * Find the node with the given key, using acquire loads so that we see whole nodes even
+     * while a writer is at work.
+     */
+    SLNode<K, Version<V>> search(K key) {
+      // Check for valid key
+      if (key == null) {
+        throw new NullPointerException("null key");
+      } // if
+      Comparator<K> comparator = VersionedSkipList.this.list.comparator;
+      SLNode<K, Version<V>> current = VersionedSkipList.this.list.head;
+      // The head's links get replaced when the list grows, so read them through an acquire too
+      SLNode<K, Version<V>>[] links = SLNode.getLinks(current);
+      for (int i = links.length - 1; i >= 0; i--) {
+        SLNode<K, Version<V>> next = SLNode.getNext(links, i);
+        while (next != null && comparator.compare(key, next.key) > 0) {
+          current = next;
+          links = current.next;
+          next = SLNode.getNext(links, i);
+        } // while
+      } // for
+      current = SLNode.getNext(links, 0);
+      if (current != null && comparator.compare(key, current.key) == 0) {
+        return current;
+      } // if
+      return null;
+    } // search(K)
+
+    /**
+     * Get the version of a node that we see, or null if we don't see the node at all.
+     */
+    @SuppressWarnings("unchecked")
+    Version<V> visible(SLNode<K, Version<V>> node) {
+      if (node == null) {
+        return null;
+      } // if
+      Version<V> version = (Version<V>) VERSION.getAcquire(node);
+      while (version != null && version.stamp > this.stamp) {
+        version = version.older;
+      } // while
+      return (version == null || version.removed) ? null : version;
+    } // visible(SLNode)
+
+    /**
+     * A walk along level 0 that stops only at the nodes we see.
+     */
+    class Scan {
+      /**
+       * The node we're at, or null at the end.
+       */
+      SLNode<K, Version<V>> node;
+
+      /**
+       * The version of node that we see.
+       */
+      Version<V> version;
+
+      /**
+       * Start at the first node we see.
+       */
+      Scan() {
+        this.node = VersionedSkipList.this.list.head;
+        advance();
+      } // Scan()
+
+      /**
+       * Move to the next node we see.
+       */
+      void advance() {
+        do {
+          this.node = SLNode.getNext(SLNode.getLinks(this.node), 0);
+          this.version = visible(this.node);
+        } while (this.node != null && this.version == null);
+      } // advance()
+
+      /**
+       * Get the node, complaining if there isn't one.
+       */
+      SLNode<K, Version<V>> node() {
+        if (this.node == null) {
+          throw new NoSuchElementException();
+        } // if
+        return this.node;
+      } // node()
+
+      /**
+       * Get the version, complaining if there isn't one.
+       */
+      Version<V> version() {
+        node();
+        return this.version;
+      } // version()
+    } // class Scan
+
+  } // class Snapshot
+
+  /**
+   * A weak reference to a snapshot, which remembers its stamp after the snapshot is gone.
+   */
+  static class SnapshotRef extends WeakReference<Object> {
+    /**
+     * The snapshot's stamp.
+     */
+    final long stamp;
+
+    /**
+     * Track a snapshot.
+     */
+    SnapshotRef(Object snapshot, long stamp, ReferenceQueue<Object> queue) {
+      super(snapshot, queue);
+      this.stamp = stamp;
+    } // SnapshotRef(Object, long, ReferenceQueue)
+  } // class SnapshotRef
+
+} // class VersionedSkipList<K, V>
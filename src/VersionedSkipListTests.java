@@ -0,0 +1,263 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Some tests of versioned skip lists and their snapshots.
+ */
+public class VersionedSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A sorted list of integers for tests.
+   */
+  VersionedSkipList<Integer, Integer> ints;
+
+  /**
+   * For reporting errors: what went wrong, in any thread.
+   */
+  ArrayList<String> errors;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Set up everything.
+   */
+  @BeforeEach
+  public void setup() {
+    this.ints = new VersionedSkipList<Integer, Integer>((i, j) -> i - j);
+    this.errors = new ArrayList<String>();
+  } // setup
+
+  /**
+   * Log a failure from any thread.
+   */
+  void log(String str) {
+    synchronized (this.errors) {
+      System.err.println(str);
+      this.errors.add(str);
+    } // synchronized
+  } // log
+
+  /**
+   * Check that a map holds exactly the expected entries, in order.
+   */
+  static void check(TreeMap<Integer, Integer> expected, SimpleMap<Integer, Integer> map) {
+    assertEquals(expected.size(), map.size());
+    Iterator<Integer> keys = map.keys();
+    Iterator<Integer> values = map.values();
+    for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+      assertEquals(entry.getKey(), keys.next());
+      assertEquals(entry.getValue(), values.next());
+      assertEquals(entry.getValue(), map.get(entry.getKey()));
+    } // for
+    assertFalse(keys.hasNext());
+    assertFalse(values.hasNext());
+  } // check(TreeMap, SimpleMap)
+
+  /**
+   * Count the nodes and versions in the underlying list.
+   */
+  int[] census() {
+    int nodes = 0;
+    int versions = 0;
+    for (SLNode<Integer, Version<Integer>> node = ints.list.head.next[0]; node != null;
+        node = node.next[0]) {
+      nodes++;
+      for (Version<Integer> version = node.value; version != null; version = version.older) {
+        versions++;
+      } // for
+    } // for
+    return new int[] {nodes, versions};
+  } // census()
+
+  /**
+   * Take a snapshot and forget it.
+   */
+  void dropSnapshot() {
+    ints.snapshot();
+  } // dropSnapshot()
+
+  // +----------------+--------------------------------------------------
+  // | Snapshot Tests |
+  // +----------------+
+
+  /**
+   * Snapshots keep showing the map as it was while it changes underneath them.
+   */
+  @Test
+  public void isolationTest() {
+    setup();
+    Random random = new Random();
+    TreeMap<Integer, Integer> current = new TreeMap<Integer, Integer>();
+    ArrayList<TreeMap<Integer, Integer>> expected = new ArrayList<TreeMap<Integer, Integer>>();
+    ArrayList<VersionedSkipList<Integer, Integer>.Snapshot> snapshots =
+        new ArrayList<VersionedSkipList<Integer, Integer>.Snapshot>();
+    for (int i = 0; i < 5000; i++) {
+      int key = random.nextInt(300);
+      if (random.nextInt(3) == 0) {
+        assertEquals(current.remove(key), ints.remove(key));
+      } else {
+        assertEquals(current.put(key, i), ints.set(key, i));
+      } // if/else
+      if (i % 500 == 0) {
+        expected.add(new TreeMap<Integer, Integer>(current));
+        snapshots.add(ints.snapshot());
+      } // if
+      if (i % 700 == 0 && !snapshots.isEmpty()) {
+        // Close the oldest one now and then
+        snapshots.remove(0).close();
+        expected.remove(0);
+      } // if
+    } // for
+    check(current, ints);
+    for (int i = 0; i < snapshots.size(); i++) {
+      check(expected.get(i), snapshots.get(i));
+      assertFalse(snapshots.get(i).containsKey(-1));
+    } // for
+    assertThrows(UnsupportedOperationException.class, () -> snapshots.get(0).set(1, 1));
+  } // isolationTest()
+
+  /**
+   * Once the snapshots are closed, vacuuming leaves one version per live entry.
+   */
+  @Test
+  public void vacuumTest() {
+    setup();
+    for (int i = 0; i < 100; i++) {
+      ints.set(i, i);
+    } // for
+    VersionedSkipList<Integer, Integer>.Snapshot snapshot = ints.snapshot();
+    for (int i = 0; i < 100; i++) {
+      if (i % 2 == 0) {
+        ints.remove(i);
+      } else {
+        ints.set(i, -i);
+      } // if/else
+    } // for
+    assertEquals(100, snapshot.size());
+    assertEquals(Integer.valueOf(4), snapshot.get(4));
+    assertArrayEquals(new int[] {100, 200}, census());
+    ints.vacuum();
+    // The snapshot still needs everything
+    assertArrayEquals(new int[] {100, 200}, census());
+    snapshot.close();
+    ints.vacuum();
+    assertArrayEquals(new int[] {50, 50}, census());
+    assertEquals(50, ints.size());
+    assertEquals(50, ints.list.size());
+    // The back links skip the nodes that were unlinked
+    Iterator<Integer> keys = ints.list.descendingKeys();
+    for (int i = 99; i > 0; i -= 2) {
+      assertEquals(Integer.valueOf(i), keys.next());
+    } // for
+    assertFalse(keys.hasNext());
+  } // vacuumTest()
+
+  /**
+   * Garbage doesn't pile up without bound while a snapshot is open, and a snapshot that is
+   * dropped without being closed stops holding versions once the JVM collects it.
+   */
+  @Test
+  public void garbageTest() throws InterruptedException {
+    setup();
+    for (int i = 0; i < 100; i++) {
+      ints.set(i, i);
+    } // for
+    VersionedSkipList<Integer, Integer>.Snapshot snapshot = ints.snapshot();
+    for (int round = 0; round < 100; round++) {
+      for (int i = 0; i < 100; i++) {
+        ints.set(i, round);
+      } // for
+    } // for
+    // Each node keeps its newest version and the one the snapshot sees
+    assertTrue(census()[1] <= 3 * 100 + VersionedSkipList.VACUUM_SLACK);
+    assertEquals(Integer.valueOf(7), snapshot.get(7));
+    snapshot.close();
+
+    dropSnapshot();
+    for (int i = 0; i < 100; i++) {
+      ints.remove(i);
+    } // for
+    for (int tries = 0; tries < 50 && !ints.snapshots.isEmpty(); tries++) {
+      System.gc();
+      Thread.sleep(10);
+      synchronized (ints) {
+        ints.reap();
+      } // synchronized
+    } // for
+    assertTrue(ints.snapshots.isEmpty());
+    ints.vacuum();
+    assertArrayEquals(new int[] {0, 0}, census());
+  } // garbageTest()
+
+  // +--------------+----------------------------------------------------
+  // | Stress Tests |
+  // +--------------+
+
+  /**
+   * A writer moves amounts between accounts, keeping the total fixed, while a reader on another
+   * thread scans snapshots; every snapshot must add up to the same total.
+   */
+  @Test
+  public void concurrentScanTest() throws InterruptedException {
+    setup();
+    int accounts = 1000;
+    for (int i = 0; i < accounts; i++) {
+      ints.set(i, 100);
+    } // for
+    AtomicBoolean done = new AtomicBoolean(false);
+    Thread writer = new Thread(() -> {
+      Random random = new Random();
+      for (int i = 0; i < 200000; i++) {
+        int from = random.nextInt(accounts);
+        int to = random.nextInt(accounts);
+        if (from == to) {
+          continue;
+        } // if
+        // Move everything at once, so that removal and insertion get exercised too
+        synchronized (ints) {
+          Integer amount = ints.remove(from);
+          if (amount == null) {
+            continue;
+          } // if
+          Integer balance = ints.get(to);
+          ints.set(to, (balance == null) ? amount : balance + amount);
+        } // synchronized
+      } // for
+      done.set(true);
+    });
+    writer.start();
+    int scans = 0;
+    while (!done.get() && errors.isEmpty()) {
+      try (VersionedSkipList<Integer, Integer>.Snapshot snapshot = ints.snapshot()) {
+        long[] total = new long[1];
+        snapshot.forEach((key, value) -> total[0] += value);
+        if (total[0] != 100 * accounts) {
+          log("snapshot " + scans + " adds up to " + total[0]);
+        } // if
+      } // try
+      scans++;
+    } // while
+    writer.join();
+    if (!errors.isEmpty()) {
+      fail(errors.get(0));
+    } // if
+    long[] total = new long[1];
+    ints.forEach((key, value) -> total[0] += value);
+    assertEquals(100 * accounts, total[0]);
+  } // concurrentScanTest()
+
+} // class VersionedSkipListTests